@@ -0,0 +1,50 @@
+package com.samatov.payment_service.benchmark;
+
+import com.samatov.payment_service.dto.CardDto;
+import com.samatov.payment_service.exception.InvalidCardException;
+import com.samatov.payment_service.mapper.CardMapperImpl;
+import com.samatov.payment_service.repository.CardRepository;
+import com.samatov.payment_service.service.CardService;
+import com.samatov.payment_service.service.impl.CardServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CardServiceImpl#validateCard} for a matching card and for a CVV mismatch; the
+ * latter includes building and propagating the {@link InvalidCardException}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardValidationBenchmark {
+
+    private CardService cardService;
+
+    @Setup
+    public void setUp() {
+        CardRepository cardRepository = Stubs.of(CardRepository.class, Map.of(
+                "findByCardNumber", args -> Mono.fromSupplier(Fixtures::card)));
+        cardService = new CardServiceImpl(cardRepository, new CardMapperImpl());
+    }
+
+    @Benchmark
+    public CardDto validCard() {
+        return cardService.validateCard(Fixtures.CARD_NUMBER, Fixtures.EXP_DATE, Fixtures.CVV).block();
+    }
+
+    @Benchmark
+    public Object wrongCvv() {
+        return cardService.validateCard(Fixtures.CARD_NUMBER, Fixtures.EXP_DATE, "000")
+                .onErrorResume(InvalidCardException.class, Mono::just)
+                .block();
+    }
+}
@@ -0,0 +1,135 @@
+package com.samatov.payment_service.benchmark;
+
+import com.samatov.payment_service.dto.CardDataDto;
+import com.samatov.payment_service.dto.CustomerDto;
+import com.samatov.payment_service.dto.PayoutRequestDto;
+import com.samatov.payment_service.dto.TopUpRequestDto;
+import com.samatov.payment_service.enums.CardType;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.Language;
+import com.samatov.payment_service.enums.PaymentMethod;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.model.Account;
+import com.samatov.payment_service.model.Card;
+import com.samatov.payment_service.model.Customer;
+import com.samatov.payment_service.model.Merchant;
+import com.samatov.payment_service.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+final class Fixtures {
+
+    static final String CARD_NUMBER = "4111111111111111";
+    static final String EXP_DATE = "12/29";
+    static final String CVV = "123";
+
+    static final long CUSTOMER_USER_ID = 1L;
+    static final long MERCHANT_USER_ID = 2L;
+
+    private Fixtures() {
+    }
+
+    static Account account(long id, long userId) {
+        Account account = new Account();
+        account.setId(id);
+        account.setUserId(userId);
+        account.setBalance(new BigDecimal("1000000.00"));
+        account.setFrozenAmount(new BigDecimal("0.00"));
+        account.setCurrency(Currency.USD);
+        account.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        return account;
+    }
+
+    static Card card() {
+        Card card = new Card();
+        card.setId(1L);
+        card.setAccountId(10L);
+        card.setCardNumber(CARD_NUMBER);
+        card.setCardType(CardType.VISA);
+        card.setExpDate(EXP_DATE);
+        card.setCvv(CVV);
+        return card;
+    }
+
+    static Customer customer() {
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setUserId(CUSTOMER_USER_ID);
+        customer.setFirstName("John");
+        customer.setLastName("Doe");
+        customer.setCountry("USA");
+        return customer;
+    }
+
+    static Merchant merchant() {
+        Merchant merchant = new Merchant();
+        merchant.setId(1L);
+        merchant.setUserId(MERCHANT_USER_ID);
+        return merchant;
+    }
+
+    static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(42L);
+        transaction.setAccountFrom(10L);
+        transaction.setAccountTo(20L);
+        transaction.setAmount(new BigDecimal("49.99"));
+        transaction.setCurrency(Currency.USD);
+        transaction.setPaymentMethod(PaymentMethod.CARD);
+        transaction.setCardNumber(CARD_NUMBER);
+        transaction.setLanguage(Language.EN);
+        transaction.setNotificationUrl("https://example.com/webhook");
+        transaction.setStatus(TransactionStatus.IN_PROGRESS);
+        transaction.setMessage("Transaction created successfully");
+        transaction.setType(TransactionType.TOP_UP);
+        transaction.setCustomerFirstName("John");
+        transaction.setCustomerLastName("Doe");
+        transaction.setCustomerCountry("USA");
+        transaction.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 40));
+        transaction.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 10, 40));
+        return transaction;
+    }
+
+    static TopUpRequestDto topUpRequest() {
+        TopUpRequestDto request = new TopUpRequestDto();
+        request.setPaymentMethod(PaymentMethod.CARD);
+        request.setAmount(new BigDecimal("49.99"));
+        request.setCurrency(Currency.USD);
+        request.setCardData(cardData());
+        request.setLanguage(Language.EN);
+        request.setNotificationUrl("https://example.com/webhook");
+        request.setCustomer(customerDto());
+        return request;
+    }
+
+    static PayoutRequestDto payoutRequest() {
+        PayoutRequestDto request = new PayoutRequestDto();
+        request.setMerchantId(MERCHANT_USER_ID);
+        request.setPaymentMethod(PaymentMethod.CARD);
+        request.setAmount(new BigDecimal("49.99"));
+        request.setCurrency(Currency.USD);
+        request.setCardData(cardData());
+        request.setLanguage(Language.EN);
+        request.setNotificationUrl("https://example.com/webhook");
+        request.setCustomer(customerDto());
+        return request;
+    }
+
+    private static CardDataDto cardData() {
+        CardDataDto cardData = new CardDataDto();
+        cardData.setCardNumber(CARD_NUMBER);
+        cardData.setExpDate(EXP_DATE);
+        cardData.setCvv(CVV);
+        return cardData;
+    }
+
+    private static CustomerDto customerDto() {
+        CustomerDto customer = new CustomerDto();
+        customer.setFirstName("John");
+        customer.setLastName("Doe");
+        customer.setCountry("USA");
+        return customer;
+    }
+}
@@ -0,0 +1,73 @@
+package com.samatov.payment_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.samatov.payment_service.dto.TopUpRequestDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.mapper.TransactionMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request and response (de)serialization with an ObjectMapper built the way Spring Boot
+ * builds the application one (java.time module, ISO dates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacksonBenchmark {
+
+    private ObjectReader topUpReader;
+    private ObjectWriter topUpWriter;
+    private ObjectReader transactionReader;
+    private ObjectWriter transactionWriter;
+
+    private TopUpRequestDto topUpRequest;
+    private TransactionDto transaction;
+    private byte[] topUpJson;
+    private byte[] transactionJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        topUpReader = objectMapper.readerFor(TopUpRequestDto.class);
+        topUpWriter = objectMapper.writerFor(TopUpRequestDto.class);
+        transactionReader = objectMapper.readerFor(TransactionDto.class);
+        transactionWriter = objectMapper.writerFor(TransactionDto.class);
+
+        topUpRequest = Fixtures.topUpRequest();
+        transaction = new TransactionMapperImpl().toDto(Fixtures.transaction());
+        topUpJson = topUpWriter.writeValueAsBytes(topUpRequest);
+        transactionJson = transactionWriter.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public TopUpRequestDto readTopUpRequest() throws IOException {
+        return topUpReader.readValue(topUpJson);
+    }
+
+    @Benchmark
+    public byte[] writeTopUpRequest() throws IOException {
+        return topUpWriter.writeValueAsBytes(topUpRequest);
+    }
+
+    @Benchmark
+    public TransactionDto readTransaction() throws IOException {
+        return transactionReader.readValue(transactionJson);
+    }
+
+    @Benchmark
+    public byte[] writeTransaction() throws IOException {
+        return transactionWriter.writeValueAsBytes(transaction);
+    }
+}
@@ -0,0 +1,110 @@
+package com.samatov.payment_service.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.samatov.payment_service.dto.TopUpRequestDto;
+import com.samatov.payment_service.logging.SamplingTurboFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the intake log line on the calling thread. {@code sync-eager} is the old setup:
+ * the whole request DTO formatted and written synchronously by the request thread.
+ * {@code async-structured} logs a few key-value fields through the async appender, and
+ * {@code async-sampled} adds the production sampling filter on top. Output goes to a null
+ * stream so the numbers are logging overhead only; the async variants never block, so a
+ * full queue shows up as dropped lines rather than latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class LoggingBenchmark {
+
+    @Param({"sync-eager", "async-structured", "async-sampled"})
+    public String mode;
+
+    private LoggerContext context;
+    private org.slf4j.Logger log;
+    private TopUpRequestDto request;
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%15.15t] %-40.40logger{39} : %m %kvp%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> sink = new OutputStreamAppender<>();
+        sink.setContext(context);
+        sink.setName("sink");
+        sink.setEncoder(encoder);
+        sink.setOutputStream(OutputStream.nullOutputStream());
+        sink.start();
+
+        Appender<ILoggingEvent> appender = sink;
+        if (!mode.equals("sync-eager")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("async");
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(sink);
+            async.start();
+            appender = async;
+        }
+        if (mode.equals("async-sampled")) {
+            SamplingTurboFilter.Category hotPath = new SamplingTurboFilter.Category();
+            hotPath.setLogger("com.samatov.payment_service.service.impl");
+            hotPath.setSampleRate(0.1);
+            SamplingTurboFilter filter = new SamplingTurboFilter();
+            filter.setContext(context);
+            filter.addCategory(hotPath);
+            filter.start();
+            context.addTurboFilter(filter);
+        }
+
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        log = context.getLogger("com.samatov.payment_service.service.impl.PaymentServiceImpl");
+        request = Fixtures.topUpRequest();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void intakeLogLine() {
+        if (mode.equals("sync-eager")) {
+            log.info("Processing top-up request: {}", request);
+        } else {
+            log.atInfo()
+                    .addKeyValue("amount", request.getAmount())
+                    .addKeyValue("currency", request.getCurrency())
+                    .addKeyValue("paymentMethod", request.getPaymentMethod())
+                    .log("Processing top-up request");
+        }
+    }
+}
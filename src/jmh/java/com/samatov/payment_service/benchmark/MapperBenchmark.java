@@ -0,0 +1,61 @@
+package com.samatov.payment_service.benchmark;
+
+import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.mapper.AccountMapper;
+import com.samatov.payment_service.mapper.AccountMapperImpl;
+import com.samatov.payment_service.mapper.TransactionMapper;
+import com.samatov.payment_service.mapper.TransactionMapperImpl;
+import com.samatov.payment_service.model.Account;
+import com.samatov.payment_service.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final TransactionMapper transactionMapper = new TransactionMapperImpl();
+    private final AccountMapper accountMapper = new AccountMapperImpl();
+
+    private Transaction transaction;
+    private TransactionDto transactionDto;
+    private Account account;
+    private AccountDto accountDto;
+
+    @Setup
+    public void setUp() {
+        transaction = Fixtures.transaction();
+        transactionDto = transactionMapper.toDto(transaction);
+        account = Fixtures.account(10L, Fixtures.CUSTOMER_USER_ID);
+        accountDto = accountMapper.toDto(account);
+    }
+
+    @Benchmark
+    public TransactionDto transactionToDto() {
+        return transactionMapper.toDto(transaction);
+    }
+
+    @Benchmark
+    public Transaction transactionToEntity() {
+        return transactionMapper.toEntity(transactionDto);
+    }
+
+    @Benchmark
+    public AccountDto accountToDto() {
+        return accountMapper.toDto(account);
+    }
+
+    @Benchmark
+    public Account accountToEntity() {
+        return accountMapper.toEntity(accountDto);
+    }
+}
@@ -0,0 +1,51 @@
+package com.samatov.payment_service.benchmark;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The amount handling a payment actually goes through: intake validates the request amount
+ * with {@link Money#of(BigDecimal, Currency)} and {@link Money#isPositive()}, and the account
+ * service hands {@link Money#toBigDecimal()} to the conditional balance UPDATEs, which do the
+ * arithmetic in SQL. {@code bigDecimal} is the same check done on the request value directly.
+ * Run with {@code ./gradlew jmh -PjmhInclude=MoneyBenchmark}; the gc profiler reports
+ * gc.alloc.rate.norm (bytes per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoneyBenchmark {
+
+    private BigDecimal amount;
+
+    @Setup
+    public void setUp() {
+        amount = new BigDecimal("49.99");
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        if (amount.signum() > 0 && amount.stripTrailingZeros().scale() <= Currency.USD.getMinorUnitExponent()) {
+            bh.consume(amount.setScale(Currency.USD.getMinorUnitExponent()));
+        }
+    }
+
+    @Benchmark
+    public void money(Blackhole bh) {
+        Money money = Money.of(amount, Currency.USD);
+        if (money.isPositive()) {
+            bh.consume(money.toBigDecimal());
+        }
+    }
+}
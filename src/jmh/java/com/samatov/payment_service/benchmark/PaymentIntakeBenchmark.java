@@ -0,0 +1,139 @@
+package com.samatov.payment_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samatov.payment_service.config.ClusterProperties;
+import com.samatov.payment_service.config.TransactionEventsProperties;
+import com.samatov.payment_service.config.TransactionHoldProperties;
+import com.samatov.payment_service.config.TransactionListingProperties;
+import com.samatov.payment_service.dto.PayoutRequestDto;
+import com.samatov.payment_service.dto.PayoutResponseDto;
+import com.samatov.payment_service.dto.TopUpRequestDto;
+import com.samatov.payment_service.dto.TopUpResponseDto;
+import com.samatov.payment_service.mapper.AccountMapperImpl;
+import com.samatov.payment_service.mapper.CardMapperImpl;
+import com.samatov.payment_service.mapper.CustomerMapperImpl;
+import com.samatov.payment_service.mapper.MerchantMapperImpl;
+import com.samatov.payment_service.mapper.TransactionMapperImpl;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Transaction;
+import com.samatov.payment_service.repository.AccountRepository;
+import com.samatov.payment_service.repository.CardRepository;
+import com.samatov.payment_service.repository.CustomerRepository;
+import com.samatov.payment_service.repository.MerchantRepository;
+import com.samatov.payment_service.repository.TransactionRepository;
+import com.samatov.payment_service.service.PaymentService;
+import com.samatov.payment_service.service.TransactionStatsService;
+import com.samatov.payment_service.service.impl.AccountServiceImpl;
+import com.samatov.payment_service.service.impl.CardServiceImpl;
+import com.samatov.payment_service.service.impl.CustomerServiceImpl;
+import com.samatov.payment_service.service.impl.MerchantServiceImpl;
+import com.samatov.payment_service.service.impl.PaymentServiceImpl;
+import com.samatov.payment_service.service.impl.TransactionEventPublisher;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
+import com.samatov.payment_service.service.impl.TransactionServiceImpl;
+import com.samatov.payment_service.service.impl.TransactionStatusRelay;
+import com.samatov.payment_service.service.impl.TransactionStatusWaiters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Top-up and payout intake through the real service graph (card validation, customer
+ * lookup, freeze, transaction creation, mapping and event publication). Repositories
+ * answer synchronously, so the numbers cover the service and Reactor overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaymentIntakeBenchmark {
+
+    private PaymentService paymentService;
+    private TopUpRequestDto topUpRequest;
+    private PayoutRequestDto payoutRequest;
+
+    @Setup
+    public void setUp() {
+        AtomicLong transactionIds = new AtomicLong();
+
+        AccountRepository accountRepository = Stubs.of(AccountRepository.class, Map.of(
+                "findById", args -> Mono.fromSupplier(() -> Fixtures.account((Long) args[0], (Long) args[0])),
+                "findByUserId", args -> Mono.fromSupplier(() -> Fixtures.account((Long) args[0], (Long) args[0])),
+                "freeze", args -> Mono.fromSupplier(() -> Fixtures.account((Long) args[0], (Long) args[0]))));
+        CardRepository cardRepository = Stubs.of(CardRepository.class, Map.of(
+                "findByCardNumber", args -> Mono.fromSupplier(Fixtures::card)));
+        CustomerRepository customerRepository = Stubs.of(CustomerRepository.class, Map.of(
+                "findByFirstNameAndLastName", args -> Mono.fromSupplier(Fixtures::customer)));
+        MerchantRepository merchantRepository = Stubs.of(MerchantRepository.class, Map.of(
+                "findAll", args -> Flux.just(Fixtures.merchant()),
+                "findByUserId", args -> Mono.fromSupplier(Fixtures::merchant)));
+        TransactionRepository transactionRepository = Stubs.of(TransactionRepository.class, Map.of(
+                "save", args -> {
+                    Transaction transaction = (Transaction) args[0];
+                    transaction.setId(transactionIds.incrementAndGet());
+                    transaction.setCreatedAt(LocalDateTime.now());
+                    return Mono.just(transaction);
+                }));
+        TransactionStatsService statsService = Stubs.of(TransactionStatsService.class, Map.of(
+                "recordCreated", args -> Mono.empty()));
+
+        TransactionEventsProperties eventsProperties = new TransactionEventsProperties();
+        TransactionEventPublisher eventPublisher = new TransactionEventPublisher(eventsProperties);
+        TransactionStatusWaiters statusWaiters = new TransactionStatusWaiters(eventsProperties);
+        TransactionHoldTracker holdTracker = new TransactionHoldTracker(new TransactionHoldProperties());
+        // a single node has no one to relay status changes to
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setEnabled(false);
+        TransactionStatusRelay statusRelay = new TransactionStatusRelay(
+                Stubs.of(DatabaseClient.class, Map.of()),
+                Stubs.of(ConnectionFactory.class, Map.of()),
+                new ObjectMapper(),
+                clusterProperties,
+                eventPublisher,
+                statusWaiters,
+                holdTracker);
+        TransactionServiceImpl transactionService = new TransactionServiceImpl(
+                transactionRepository,
+                new TransactionMapperImpl(),
+                new TransactionListingProperties(),
+                statsService,
+                eventPublisher,
+                statusWaiters,
+                holdTracker,
+                statusRelay);
+
+        paymentService = new PaymentServiceImpl(
+                new AccountServiceImpl(accountRepository, new AccountMapperImpl()),
+                new CardServiceImpl(cardRepository, new CardMapperImpl()),
+                new CustomerServiceImpl(customerRepository, new CustomerMapperImpl()),
+                new MerchantServiceImpl(merchantRepository, new MerchantMapperImpl()),
+                transactionService,
+                new PipelineMetrics(new SimpleMeterRegistry()));
+
+        topUpRequest = Fixtures.topUpRequest();
+        payoutRequest = Fixtures.payoutRequest();
+    }
+
+    @Benchmark
+    public TopUpResponseDto topUp() {
+        return paymentService.processTopUp(topUpRequest).block();
+    }
+
+    @Benchmark
+    public PayoutResponseDto payout() {
+        return paymentService.processWithdrawal(payoutRequest).block();
+    }
+}
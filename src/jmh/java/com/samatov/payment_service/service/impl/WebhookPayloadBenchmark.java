@@ -0,0 +1,39 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Webhook request body construction. Lives in the service package because the builder
+ * is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WebhookPayloadBenchmark {
+
+    private TransactionDto transaction;
+
+    @Setup
+    public void setUp() {
+        transaction = new TransactionDto();
+        transaction.setId(123456L);
+        transaction.setAmount(new BigDecimal("49.99"));
+        transaction.setCurrency(Currency.USD);
+    }
+
+    @Benchmark
+    public String successPayload() {
+        return WebhookServiceImpl.createWebhookRequestBody(transaction, "SUCCESS");
+    }
+}
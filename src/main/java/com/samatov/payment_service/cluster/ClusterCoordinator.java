@@ -0,0 +1,274 @@
+package com.samatov.payment_service.cluster;
+
+import com.samatov.payment_service.config.ClusterProperties;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.Wrapped;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Coordinates scheduled jobs across replicas with Postgres advisory locks. Each node keeps
+ * one dedicated lock session; owning partition {@code p} of a job means holding the
+ * advisory lock {@code (job key, p)} on that session. Locks go away with the session, so a
+ * node that dies or loses its connection hands its work over without any cleanup and the
+ * others pick it up on their next heartbeat.
+ * <p>
+ * Membership lives in {@code cluster_nodes}: each heartbeat refreshes this node's row and
+ * reads the nodes seen within the lease timeout. Partitioned jobs are laid out over those
+ * nodes with a {@link ConsistentHashRing}; a node unlocks the partitions the ring gave to
+ * someone else and tries to lock the ones it was given. A partition moving between nodes is
+ * only taken once its previous owner has let go of the lock, so two nodes never own it at
+ * the same time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterCoordinator {
+
+    private static final String APPLICATION_NAME_PREFIX = "payment-service-cluster:";
+
+    private static final String TRY_LOCK_SQL = "SELECT p FROM unnest($2::int[]) AS p WHERE pg_try_advisory_lock($1, p)";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock($1, $2)";
+    private static final String ANNOUNCE_SQL = """
+            INSERT INTO cluster_nodes (node_id) VALUES ($1)
+            ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = CURRENT_TIMESTAMP""";
+    private static final String LIVE_NODES_SQL =
+            "SELECT node_id FROM cluster_nodes WHERE heartbeat_at > CURRENT_TIMESTAMP - make_interval(secs => $1)";
+    private static final String PRUNE_SQL =
+            "DELETE FROM cluster_nodes WHERE heartbeat_at < CURRENT_TIMESTAMP - make_interval(secs => $1)";
+    private static final String LEAVE_SQL = "DELETE FROM cluster_nodes WHERE node_id = $1";
+
+    private final ConnectionFactory connectionFactory;
+    private final ClusterProperties clusterProperties;
+    private final List<ClusterJob> jobs;
+
+    private final Map<String, Set<Integer>> ownedPartitions = new ConcurrentHashMap<>();
+    private volatile long leaseExpiresNanos = System.nanoTime();
+    // only used from the heartbeat loop, which runs one beat at a time
+    private volatile Connection session;
+    private Disposable heartbeat;
+
+    @PostConstruct
+    void start() {
+        if (!clusterProperties.isEnabled()) {
+            log.info("Cluster coordination is disabled, this node runs every job");
+            return;
+        }
+        heartbeat = Flux.interval(Duration.ZERO, clusterProperties.getHeartbeatInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> heartbeat()
+                        .onErrorResume(error -> {
+                            log.warn("Cluster heartbeat failed, giving up owned jobs", error);
+                            return closeSession();
+                        }), 1)
+                .subscribe();
+        log.info("Cluster coordination started for node {}: jobs={}, heartbeatInterval={}, leaseTimeout={}",
+                clusterProperties.getNodeId(), jobs, clusterProperties.getHeartbeatInterval(), clusterProperties.getLeaseTimeout());
+    }
+
+    public boolean isLeader(String jobName) {
+        return ownedPartitions(jobName).contains(0);
+    }
+
+    public Set<Integer> ownedPartitions(String jobName) {
+        ClusterJob job = job(jobName);
+        if (!clusterProperties.isEnabled()) {
+            return IntStream.range(0, job.partitions()).boxed().collect(Collectors.toUnmodifiableSet());
+        }
+        // a node whose heartbeats stall stops acting as owner before its locks are released
+        if (System.nanoTime() - leaseExpiresNanos >= 0) {
+            return Set.of();
+        }
+        return ownedPartitions.getOrDefault(jobName, Set.of());
+    }
+
+    public int ownedPartitionCount(String jobName) {
+        return ownedPartitions(jobName).size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (heartbeat == null) {
+            return;
+        }
+        heartbeat.dispose();
+        try {
+            // leaving the membership table lets the others rebalance right away instead of after the lease timeout
+            leave().then(closeSession()).block(clusterProperties.getHeartbeatInterval());
+            log.info("Released cluster jobs of node {}", clusterProperties.getNodeId());
+        } catch (RuntimeException e) {
+            log.warn("Could not close the cluster lock session cleanly", e);
+        }
+    }
+
+    private Mono<Void> heartbeat() {
+        long startedNanos = System.nanoTime();
+        return session()
+                .flatMap(connection -> announce(connection)
+                        .thenMany(query(connection.createStatement(LIVE_NODES_SQL)
+                                .bind("$1", leaseSeconds()), String.class))
+                        .collectList()
+                        .map(nodeIds -> new ConsistentHashRing(nodeIds, clusterProperties.getVirtualNodes()))
+                        .flatMap(ring -> Flux.fromIterable(jobs)
+                                .concatMap(job -> rebalance(connection, job, ring))
+                                .then()))
+                .doOnSuccess(done -> leaseExpiresNanos = startedNanos + clusterProperties.getLeaseTimeout().toNanos())
+                .timeout(clusterProperties.getLeaseTimeout());
+    }
+
+    private Mono<Connection> session() {
+        Connection current = session;
+        if (current != null) {
+            return Mono.just(current);
+        }
+        // the lock session must be a physical connection: a pooled one would carry its locks back into the pool
+        return Mono.from(unpooled().create())
+                .flatMap(connection -> Flux.concat(
+                                setConfig(connection, "application_name", APPLICATION_NAME_PREFIX + clusterProperties.getNodeId()),
+                                setConfig(connection, "tcp_keepalives_idle", seconds(clusterProperties.getKeepaliveIdle())),
+                                setConfig(connection, "tcp_keepalives_interval", seconds(clusterProperties.getKeepaliveInterval())),
+                                setConfig(connection, "tcp_keepalives_count", String.valueOf(clusterProperties.getKeepaliveCount())))
+                        .then(Mono.just(connection))
+                        .onErrorResume(error -> Mono.from(connection.close()).then(Mono.error(error))))
+                .doOnNext(connection -> {
+                    session = connection;
+                    log.info("Opened cluster lock session for node {}", clusterProperties.getNodeId());
+                });
+    }
+
+    private Mono<Void> announce(Connection connection) {
+        return query(connection.createStatement(ANNOUNCE_SQL).bind("$1", clusterProperties.getNodeId()))
+                .then(query(connection.createStatement(PRUNE_SQL).bind("$1", leaseSeconds() * 10)));
+    }
+
+    private Mono<Void> leave() {
+        Connection connection = session;
+        if (connection == null) {
+            return Mono.empty();
+        }
+        return query(connection.createStatement(LEAVE_SQL).bind("$1", clusterProperties.getNodeId()))
+                .onErrorResume(error -> {
+                    log.debug("Could not remove node {} from the cluster table", clusterProperties.getNodeId(), error);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> rebalance(Connection connection, ClusterJob job, ConsistentHashRing ring) {
+        Set<Integer> assigned = job.isSingleton()
+                ? Set.of(0)
+                : ring.partitionsOf(clusterProperties.getNodeId(), job.partitions());
+        Set<Integer> owned = ownedPartitions.getOrDefault(job.name(), Set.of());
+        List<Integer> toRelease = owned.stream().filter(partition -> !assigned.contains(partition)).sorted().toList();
+        List<Integer> toAcquire = assigned.stream().filter(partition -> !owned.contains(partition)).sorted().toList();
+        return release(connection, job, toRelease)
+                .then(acquire(connection, job, toAcquire));
+    }
+
+    private Mono<Void> acquire(Connection connection, ClusterJob job, List<Integer> candidates) {
+        if (candidates.isEmpty()) {
+            return Mono.empty();
+        }
+        // partitions still locked by their previous owner come back on a later heartbeat
+        return query(connection.createStatement(TRY_LOCK_SQL)
+                        .bind("$1", job.lockKey())
+                        .bind("$2", candidates.toArray(Integer[]::new)), Integer.class)
+                .collectList()
+                .filter(acquired -> !acquired.isEmpty())
+                .doOnNext(acquired -> {
+                    Set<Integer> updated = new TreeSet<>(ownedPartitions.getOrDefault(job.name(), Set.of()));
+                    updated.addAll(acquired);
+                    ownedPartitions.put(job.name(), Set.copyOf(updated));
+                    log.info("Node {} took over partitions {} of job {}", clusterProperties.getNodeId(), acquired, job.name());
+                })
+                .then();
+    }
+
+    private Mono<Void> release(Connection connection, ClusterJob job, List<Integer> released) {
+        if (released.isEmpty()) {
+            return Mono.empty();
+        }
+        // stop acting as owner before the locks become available to other nodes
+        Set<Integer> remaining = new TreeSet<>(ownedPartitions.getOrDefault(job.name(), Set.of()));
+        released.forEach(remaining::remove);
+        ownedPartitions.put(job.name(), Set.copyOf(remaining));
+        return Flux.fromIterable(released)
+                .concatMap(partition -> query(connection.createStatement(UNLOCK_SQL)
+                        .bind("$1", job.lockKey())
+                        .bind("$2", partition), Boolean.class))
+                .then(Mono.fromRunnable(() -> log.info("Node {} handed over partitions {} of job {}",
+                        clusterProperties.getNodeId(), released, job.name())));
+    }
+
+    private Mono<Void> closeSession() {
+        ownedPartitions.clear();
+        leaseExpiresNanos = System.nanoTime();
+        Connection connection = session;
+        session = null;
+        if (connection == null) {
+            return Mono.empty();
+        }
+        return Mono.from(connection.close())
+                .onErrorResume(error -> {
+                    log.debug("Error closing cluster lock session", error);
+                    return Mono.empty();
+                });
+    }
+
+    private ConnectionFactory unpooled() {
+        if (connectionFactory instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof ConnectionFactory target) {
+            return target;
+        }
+        return connectionFactory;
+    }
+
+    private ClusterJob job(String jobName) {
+        return jobs.stream()
+                .filter(job -> job.name().equals(jobName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown cluster job: " + jobName));
+    }
+
+    private static Mono<Void> setConfig(Connection connection, String name, String value) {
+        return query(connection.createStatement("SELECT set_config($1, $2, false)")
+                .bind("$1", name)
+                .bind("$2", value), String.class)
+                .then();
+    }
+
+    private static Mono<Void> query(Statement statement) {
+        return Flux.from(statement.execute())
+                .flatMap(Result::getRowsUpdated)
+                .then();
+    }
+
+    private static <T> Flux<T> query(Statement statement, Class<T> type) {
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, type)));
+    }
+
+    private double leaseSeconds() {
+        return clusterProperties.getLeaseTimeout().toMillis() / 1000.0;
+    }
+
+    private static String seconds(Duration duration) {
+        return String.valueOf(Math.max(1, duration.toSeconds()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.samatov.payment_service.cluster;
+
+/**
+ * A scheduled job coordinated across nodes. A singleton job runs on exactly one node at a
+ * time; a partitioned job splits its work into a fixed number of partitions that are
+ * spread over the live nodes.
+ */
+public record ClusterJob(String name, int partitions) {
+
+    public ClusterJob {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("A cluster job needs at least one partition: " + name);
+        }
+    }
+
+    public static ClusterJob singleton(String name) {
+        return new ClusterJob(name, 1);
+    }
+
+    public static ClusterJob partitioned(String name, int partitions) {
+        return new ClusterJob(name, partitions);
+    }
+
+    public boolean isSingleton() {
+        return partitions == 1;
+    }
+
+    /**
+     * First key of the two-key advisory lock; the partition number is the second.
+     */
+    int lockKey() {
+        return name.hashCode() & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,61 @@
+package com.samatov.payment_service.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps job partitions onto nodes with a consistent-hash ring. Every node is placed on the
+ * ring at a number of virtual points, and a partition belongs to the first node point at
+ * or after its own hash. When a node joins or leaves only the partitions next to its points
+ * move; the rest keep their owner, so a rebalance hands over roughly 1/N of the work.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(nodeId + "#" + i), nodeId);
+            }
+        }
+    }
+
+    public String ownerOf(int partition) {
+        if (points.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry(hash("partition-" + partition));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    public Set<Integer> partitionsOf(String nodeId, int partitions) {
+        Set<Integer> owned = new TreeSet<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            if (ownerOf(partition).equals(nodeId)) {
+                owned.add(partition);
+            }
+        }
+        return owned;
+    }
+
+    // 64-bit FNV-1a finished with the murmur3 mixer, so nearby keys land far apart
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
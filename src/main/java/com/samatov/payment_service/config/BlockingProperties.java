@@ -0,0 +1,27 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "blocking")
+public class BlockingProperties {
+    // VIRTUAL runs every blocking call on its own virtual thread, BOUNDED_ELASTIC falls back to a bounded elastic pool
+    private Mode mode = Mode.VIRTUAL;
+    private String threadNamePrefix = "blocking-";
+    private Pinning pinning = new Pinning();
+
+    public enum Mode {
+        VIRTUAL, BOUNDED_ELASTIC
+    }
+
+    @Data
+    public static class Pinning {
+        // streams jdk.VirtualThreadPinned from an always-on JFR recording
+        private boolean detectionEnabled = true;
+        // pinned sections shorter than this are not reported
+        private Duration threshold = Duration.ofMillis(20);
+    }
+}
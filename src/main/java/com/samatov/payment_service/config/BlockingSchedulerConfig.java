@@ -0,0 +1,38 @@
+package com.samatov.payment_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Configuration
+public class BlockingSchedulerConfig {
+
+    public static final String BLOCKING = "blocking";
+
+    /**
+     * Scheduler for every blocking call made from a reactive pipeline. On virtual threads a
+     * blocked call costs a parked continuation instead of a platform thread, so there is no
+     * pool to exhaust and the Netty event loops are never the ones waiting.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(BlockingProperties blockingProperties, MeterRegistry registry) {
+        log.info("Blocking work runs on {}", blockingProperties.getMode());
+        if (blockingProperties.getMode() == BlockingProperties.Mode.BOUNDED_ELASTIC) {
+            // a pool of its own: disposing the shared Schedulers.boundedElastic() on shutdown would break every other user of it
+            return Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                    Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, BLOCKING);
+        }
+        ExecutorService executor = ExecutorServiceMetrics.monitor(registry,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(blockingProperties.getThreadNamePrefix(), 0).factory()),
+                BLOCKING);
+        return Schedulers.fromExecutorService(executor, BLOCKING);
+    }
+}
@@ -0,0 +1,28 @@
+package com.samatov.payment_service.config;
+
+import com.samatov.payment_service.cluster.ClusterJob;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConfig {
+
+    public static final String SETTLEMENT_SWEEP = "settlement-sweep";
+    public static final String PARTITION_MAINTENANCE = "partition-maintenance";
+    public static final String HOLD_RECOVERY = "hold-recovery";
+
+    @Bean
+    public ClusterJob settlementSweepJob(TransactionProcessingProperties processingProperties) {
+        return ClusterJob.partitioned(SETTLEMENT_SWEEP, processingProperties.getPartitions());
+    }
+
+    @Bean
+    public ClusterJob partitionMaintenanceJob() {
+        return ClusterJob.singleton(PARTITION_MAINTENANCE);
+    }
+
+    @Bean
+    public ClusterJob holdRecoveryJob() {
+        return ClusterJob.singleton(HOLD_RECOVERY);
+    }
+}
@@ -0,0 +1,25 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterProperties {
+    // when off every node runs every job, as a single instance would
+    private boolean enabled = true;
+    private String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    // lock session check and rebalance period; a released job is picked up within one interval
+    private Duration heartbeatInterval = Duration.ofSeconds(2);
+    // a node that has not heartbeated for this long stops acting as owner even if it still holds locks
+    private Duration leaseTimeout = Duration.ofSeconds(6);
+    // server-side TCP keepalive on the lock session so Postgres drops a dead node's locks quickly
+    private Duration keepaliveIdle = Duration.ofSeconds(5);
+    private Duration keepaliveInterval = Duration.ofSeconds(2);
+    private int keepaliveCount = 3;
+    // points per node on the consistent-hash ring; more points give a more even split
+    private int virtualNodes = 64;
+}
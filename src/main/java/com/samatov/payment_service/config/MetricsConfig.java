@@ -0,0 +1,48 @@
+package com.samatov.payment_service.config;
+
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.cluster.ClusterJob;
+import com.samatov.payment_service.service.impl.TransactionEventPublisher;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
+import com.samatov.payment_service.service.impl.TransactionStatusWaiters;
+import com.samatov.payment_service.service.impl.WebhookBatchWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder queueDepthMetrics(WebhookBatchWriter webhookBatchWriter,
+                                         TransactionEventPublisher transactionEventPublisher,
+                                         TransactionStatusWaiters transactionStatusWaiters,
+                                         TransactionHoldTracker transactionHoldTracker) {
+        return registry -> {
+            Gauge.builder("webhook.batch.pending", webhookBatchWriter, WebhookBatchWriter::pendingCount)
+                    .description("Webhook records waiting to be written")
+                    .register(registry);
+            Gauge.builder("transaction.events.subscribers", transactionEventPublisher, TransactionEventPublisher::subscriberCount)
+                    .description("Open transaction status streams")
+                    .register(registry);
+            Gauge.builder("transaction.long-poll.waiters", transactionStatusWaiters, TransactionStatusWaiters::waiterCount)
+                    .description("Requests waiting for a transaction status")
+                    .register(registry);
+            Gauge.builder("transaction.holds.tracked", transactionHoldTracker, TransactionHoldTracker::trackedCount)
+                    .description("Open holds waiting in this node's expiry wheel")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder clusterMetrics(ClusterCoordinator clusterCoordinator, List<ClusterJob> clusterJobs) {
+        return registry -> clusterJobs.forEach(job ->
+                Gauge.builder("cluster.partitions.owned", clusterCoordinator, coordinator -> coordinator.ownedPartitionCount(job.name()))
+                        .description("Partitions of a cluster job owned by this node, 1 for the leader of a singleton job")
+                        .tag("job", job.name())
+                        .register(registry));
+    }
+}
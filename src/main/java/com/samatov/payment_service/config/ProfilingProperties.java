@@ -0,0 +1,21 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "profiling.jfr")
+public class ProfilingProperties {
+    // where recordings are dumped before being downloaded
+    private Path dumpDirectory = Path.of(System.getProperty("java.io.tmpdir"), "payment-service-jfr");
+    // JDK settings preset the recording starts from: "default" or "profile"
+    private String settings = "profile";
+    private Duration maxAge = Duration.ofMinutes(30);
+    private long maxSizeBytes = 256L * 1024 * 1024;
+    // dumps older than this, or beyond the newest max-dump-files, are deleted on the next dump
+    private Duration dumpRetention = Duration.ofHours(24);
+    private int maxDumpFiles = 20;
+}
@@ -0,0 +1,66 @@
+package com.samatov.payment_service.config;
+
+import com.samatov.payment_service.enums.Currency;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "provider.simulator")
+public class ProviderSimulatorProperties {
+    // makes every outcome and delay reproducible; unset draws fresh randomness on each run
+    private Long seed;
+    // first matching rule wins, transactions no rule matches use the defaults
+    private List<Rule> rules = new ArrayList<>();
+    private Rule defaults = new Rule();
+    // card number -> SUCCESS or a decline code, applied regardless of the rules
+    private Map<String, String> testCards = defaultTestCards();
+
+    @Data
+    public static class Rule {
+        private String name = "default";
+        // merchant side of the transaction: account_to of a top-up, account_from of a payout; empty matches any
+        private Set<Long> merchantAccounts = Set.of();
+        private Set<Currency> currencies = Set.of();
+        // inclusive lower and exclusive upper bound, either may be left open
+        private BigDecimal minAmount;
+        private BigDecimal maxAmount;
+        private double successRate = 0.8;
+        // relative weights of the decline codes a failed transaction is given; none means generic_decline
+        private Map<String, Double> declineCodes = new LinkedHashMap<>();
+        private Delay delay = new Delay();
+    }
+
+    @Data
+    public static class Delay {
+        private Distribution distribution = Distribution.FIXED;
+        // the fixed delay, the mean of the normal distribution or the median of the long tail
+        private Duration mean = Duration.ZERO;
+        private Duration stddev = Duration.ZERO;
+        // spread of the long tail; 1.0 puts roughly one reply in twenty past five times the median
+        private double sigma = 1.0;
+        // a settlement batch waits for its slowest reply, so every sample is capped
+        private Duration max = Duration.ofSeconds(30);
+    }
+
+    public enum Distribution {
+        FIXED, NORMAL, LONG_TAIL
+    }
+
+    private static Map<String, String> defaultTestCards() {
+        Map<String, String> cards = new LinkedHashMap<>();
+        cards.put("4242424242424242", "SUCCESS");
+        cards.put("4000000000000002", "card_declined");
+        cards.put("4000000000009995", "insufficient_funds");
+        cards.put("4000000000000069", "expired_card");
+        cards.put("4000000000000119", "processing_error");
+        return cards;
+    }
+}
@@ -0,0 +1,65 @@
+package com.samatov.payment_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    public static final String FAST_START = "fast-start";
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(StartupProperties startupProperties) {
+        return flyway -> {
+            if (startupProperties.isReplica()) {
+                log.info("Replica start, leaving schema migrations to the first node of the rollout");
+                return;
+            }
+            flyway.migrate();
+        };
+    }
+
+    /**
+     * Marks API docs and admin beans lazy so they are created on the first request that needs
+     * them instead of on every start. Runs before properties are bound, so the prefixes are
+     * read straight from the environment. Under AOT this runs at build time and the lazy
+     * flags end up in the generated bean definitions.
+     */
+    @Bean
+    @Profile(FAST_START)
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        List<String> prefixes = Binder.get(environment)
+                .bind("startup.lazy-bean-prefixes", Bindable.listOf(String.class))
+                .orElseGet(() -> new StartupProperties().getLazyBeanPrefixes());
+        return beanFactory -> {
+            int lazy = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || definition.isLazyInit()) {
+                    continue;
+                }
+                String type = definition.getBeanClassName();
+                if (type == null && definition.getFactoryBeanName() != null && beanFactory.containsBeanDefinition(definition.getFactoryBeanName())) {
+                    type = beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName();
+                }
+                String beanType = type;
+                if (beanType != null && prefixes.stream().anyMatch(beanType::startsWith)) {
+                    definition.setLazyInit(true);
+                    lazy++;
+                }
+            }
+            log.info("Deferred {} API docs and admin beans to first use", lazy);
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "startup")
+public class StartupProperties {
+    // replicas trust the schema the first node of the rollout migrated and skip Flyway altogether
+    private boolean replica = false;
+    // bean class prefixes created on first use under the fast-start profile: API docs and admin endpoints
+    private List<String> lazyBeanPrefixes = List.of(
+            "org.springdoc.",
+            "com.samatov.payment_service.config.SwaggerConfig",
+            "com.samatov.payment_service.controller.ProfilingController",
+            "com.samatov.payment_service.service.impl.ProfilingServiceImpl");
+    // slowest bean instantiations listed in the startup timeline report
+    private int reportTopSteps = 10;
+}
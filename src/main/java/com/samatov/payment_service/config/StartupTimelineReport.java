@@ -0,0 +1,50 @@
+package com.samatov.payment_service.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long startup took and which beans were slowest to create. The full timeline
+ * stays available at {@code /actuator/startup}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupTimelineReport {
+
+    private static final String BEAN_INSTANTIATION = "spring.beans.instantiate";
+
+    private final StartupProperties startupProperties;
+
+    @EventListener
+    public void report(ApplicationReadyEvent event) {
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+        StartupTimeline timeline = startup.getBufferedTimeline();
+        String slowest = timeline.getEvents().stream()
+                .filter(step -> BEAN_INSTANTIATION.equals(step.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(startupProperties.getReportTopSteps())
+                .map(step -> beanName(step) + "=" + step.getDuration().toMillis() + "ms")
+                .collect(Collectors.joining(", "));
+        log.info("Ready after {} ms; slowest beans, including their dependencies: {}", event.getTimeTaken().toMillis(), slowest);
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent step) {
+        for (var tag : step.getStartupStep().getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
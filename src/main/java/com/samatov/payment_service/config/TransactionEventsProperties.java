@@ -0,0 +1,30 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.events")
+public class TransactionEventsProperties {
+    // status changes buffered per subscriber before the overflow policy kicks in
+    private int subscriberBufferSize = 256;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    private int maxSubscribers = 10_000;
+    private LongPoll longPoll = new LongPoll();
+
+    @Data
+    public static class LongPoll {
+        private int maxWaiters = 10_000;
+        private Duration defaultTimeout = Duration.ofSeconds(10);
+        private Duration maxTimeout = Duration.ofSeconds(30);
+    }
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_LATEST,
+        DISCONNECT
+    }
+}
@@ -0,0 +1,20 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.holds")
+public class TransactionHoldProperties {
+    // how long frozen funds may stay unsettled before the transaction is failed and the hold released
+    private Duration ttl = Duration.ofMinutes(15);
+    // resolution of the expiry timing wheel; a hold expires at most one tick late
+    private Duration tick = Duration.ofSeconds(1);
+    private int wheelSize = 512;
+    // safety net for holds this node never saw being created, e.g. of a node that went away
+    private Duration recoveryInterval = Duration.ofMinutes(10);
+    private int recoveryBatchSize = 500;
+    private int expiryConcurrency = 16;
+}
@@ -0,0 +1,13 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.listing")
+public class TransactionListingProperties {
+    private int defaultPageSize = 50;
+    private int maxPageSize = 500;
+    // rows pulled from the database per round trip while streaming an export
+    private int exportFetchSize = 500;
+}
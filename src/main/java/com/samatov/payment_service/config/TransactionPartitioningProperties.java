@@ -0,0 +1,13 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.partitioning")
+public class TransactionPartitioningProperties {
+    // monthly partitions created in advance so inserts never hit a missing range
+    private int monthsAhead = 3;
+    // partitions older than this many months are detached and dropped, 0 keeps all history
+    private int retentionMonths = 0;
+}
@@ -0,0 +1,56 @@
+package com.samatov.payment_service.config;
+
+import com.samatov.payment_service.enums.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "transaction.processing")
+public class TransactionProcessingProperties {
+    // IN_PROGRESS transactions claimed per processing run, split across the lanes by weight
+    private int batchSize = 500;
+    // account_from hash partitions the settlement sweep is split into across nodes
+    private int partitions = 64;
+    private Polling polling = new Polling();
+    // provider answers for one payer arriving this close together settle in one database transaction
+    private Duration settleWindow = Duration.ofMillis(10);
+    // how long shutdown waits for the batch in flight; keep below spring.lifecycle.timeout-per-shutdown-phase
+    private Duration drainTimeout = Duration.ofSeconds(30);
+    // transactions taken from one merchant account per round-robin round
+    private int merchantQuantum = 10;
+    // amount tier boundaries; within a round lower tiers are settled first
+    private List<BigDecimal> amountTiers = List.of(new BigDecimal("100"), new BigDecimal("1000"), new BigDecimal("10000"));
+    private List<Lane> lanes = List.of(
+            new Lane("top-up", Set.of(TransactionType.TOP_UP), 3, 64),
+            new Lane("payout", Set.of(TransactionType.WITHDRAWAL), 1, 16));
+
+    @Data
+    public static class Polling {
+        // pause after a partly filled batch; a full batch is followed by the next claim right away
+        private Duration minInterval = Duration.ofMillis(250);
+        // ceiling for the back-off while batches come back empty
+        private Duration maxInterval = Duration.ofSeconds(10);
+        private double backoffMultiplier = 2.0;
+        // the backlog count is a scan of the IN_PROGRESS index, so it is taken at most this often
+        private Duration backlogSampleInterval = Duration.ofSeconds(5);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lane {
+        private String name;
+        private Set<TransactionType> types;
+        // share of each batch relative to the other lanes
+        private int weight = 1;
+        // webhooks of this lane sent in parallel; funds settle for every answered account at once
+        private int concurrency = 32;
+    }
+}
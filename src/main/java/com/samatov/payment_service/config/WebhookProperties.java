@@ -0,0 +1,36 @@
+package com.samatov.payment_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "webhook")
+public class WebhookProperties {
+
+    private String baseUrl = "https://proselyte.net/webhook/transaction";
+    private Client client = new Client();
+    private Batch batch = new Batch();
+
+    @Data
+    public static class Client {
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Batch {
+        // flush as soon as this many delivery records are buffered
+        private int maxSize = 100;
+        // ...or when the oldest buffered record has waited this long
+        private Duration maxWait = Duration.ofMillis(200);
+        private int queueCapacity = 4096;
+        // how long a caller is held back while the queue is full before the write fails
+        private Duration enqueueTimeout = Duration.ofSeconds(5);
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+}
@@ -1,6 +1,9 @@
 package com.samatov.payment_service.controller;
 
 import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.exception.InvalidRequestException;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.service.AccountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -94,10 +97,12 @@ public class AccountController {
             description = "Замораживает указанную сумму на счете")
     @ApiResponse(responseCode = "200", description = "Средства успешно заморожены",
             content = @Content(schema = @Schema(implementation = AccountDto.class)))
+    @ApiResponse(responseCode = "400", description = "Валюта не совпадает с валютой счета")
     @ApiResponse(responseCode = "404", description = "Счет не найден")
     @PostMapping("/{id}/freeze")
-    public Mono<ResponseEntity<AccountDto>> freezeFunds(@PathVariable Long id, @RequestParam BigDecimal amount) {
-        return accountService.freezeFunds(id, amount)
+    public Mono<ResponseEntity<AccountDto>> freezeFunds(@PathVariable Long id, @RequestParam BigDecimal amount,
+                                                        @RequestParam Currency currency) {
+        return accountService.freezeFunds(id, toMoney(amount, currency))
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -106,10 +111,12 @@ public class AccountController {
             description = "Размораживает указанную сумму на счете")
     @ApiResponse(responseCode = "200", description = "Средства успешно разморожены",
             content = @Content(schema = @Schema(implementation = AccountDto.class)))
+    @ApiResponse(responseCode = "400", description = "Валюта не совпадает с валютой счета")
     @ApiResponse(responseCode = "404", description = "Счет не найден")
     @PostMapping("/{id}/unfreeze")
-    public Mono<ResponseEntity<AccountDto>> unfreezeFunds(@PathVariable Long id, @RequestParam BigDecimal amount) {
-        return accountService.unfreezeFunds(id, amount)
+    public Mono<ResponseEntity<AccountDto>> unfreezeFunds(@PathVariable Long id, @RequestParam BigDecimal amount,
+                                                          @RequestParam Currency currency) {
+        return accountService.unfreezeFunds(id, toMoney(amount, currency))
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -118,14 +125,24 @@ public class AccountController {
             description = "Переводит указанную сумму с одного счета на другой")
     @ApiResponse(responseCode = "200", description = "Средства успешно переведены",
             content = @Content(schema = @Schema(implementation = AccountDto.class)))
+    @ApiResponse(responseCode = "400", description = "Валюта не совпадает с валютой одного из счетов")
     @ApiResponse(responseCode = "404", description = "Один из счетов не найден")
     @PostMapping("/transfer")
     public Mono<ResponseEntity<AccountDto>> transferFunds(
             @RequestParam Long fromAccountId,
             @RequestParam Long toAccountId,
-            @RequestParam BigDecimal amount) {
-        return accountService.transferFunds(fromAccountId, toAccountId, amount)
+            @RequestParam BigDecimal amount,
+            @RequestParam Currency currency) {
+        return accountService.transferFunds(fromAccountId, toAccountId, toMoney(amount, currency))
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    private static Money toMoney(BigDecimal amount, Currency currency) {
+        try {
+            return Money.of(amount, currency);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.samatov.payment_service.controller;
+
+import com.samatov.payment_service.dto.RecordingDto;
+import com.samatov.payment_service.service.ProfilingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/admin/profiling/recordings")
+@RequiredArgsConstructor
+@Tag(name = "Profiling", description = "API для управления JFR записями")
+public class ProfilingController {
+
+    private final ProfilingService profilingService;
+
+    @Operation(summary = "Запуск JFR записи",
+            description = "Запускает запись с событиями платежного сервиса. "
+                    + "Порог отсекает события стадий короче указанной длительности")
+    @ApiResponse(responseCode = "200", description = "Запись запущена",
+            content = @Content(schema = @Schema(implementation = RecordingDto.class)))
+    @PostMapping
+    public Mono<RecordingDto> startRecording(
+            @Parameter(description = "Порог длительности для событий платежного сервиса", example = "5ms")
+            @RequestParam(required = false) String threshold,
+            @Parameter(description = "Длительность записи, без нее запись идет до остановки", example = "5m")
+            @RequestParam(required = false) String duration) {
+        return profilingService.startRecording(
+                threshold != null ? DurationStyle.detectAndParse(threshold) : null,
+                duration != null ? DurationStyle.detectAndParse(duration) : null);
+    }
+
+    @Operation(summary = "Получение списка JFR записей",
+            description = "Возвращает записи, запущенные через этот сервис; записи, начатые JVM при старте, не включаются")
+    @ApiResponse(responseCode = "200", description = "Успешное получение списка записей",
+            content = @Content(schema = @Schema(implementation = RecordingDto.class)))
+    @GetMapping
+    public Flux<RecordingDto> getRecordings() {
+        return profilingService.findRecordings();
+    }
+
+    @Operation(summary = "Выгрузка JFR записи",
+            description = "Сохраняет текущее содержимое записи в файл и отдает его")
+    @ApiResponse(responseCode = "200", description = "Файл записи")
+    @ApiResponse(responseCode = "404", description = "Запись не найдена")
+    @GetMapping("/{id}/dump")
+    public Mono<ResponseEntity<Resource>> dumpRecording(@PathVariable Long id) {
+        return profilingService.dumpRecording(id)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename(file.getFileName().toString())
+                                .build()
+                                .toString())
+                        .body(new FileSystemResource(file)));
+    }
+
+    @Operation(summary = "Остановка JFR записи",
+            description = "Останавливает запись, данные остаются доступны для выгрузки")
+    @ApiResponse(responseCode = "200", description = "Запись остановлена",
+            content = @Content(schema = @Schema(implementation = RecordingDto.class)))
+    @ApiResponse(responseCode = "404", description = "Запись не найдена")
+    @PostMapping("/{id}/stop")
+    public Mono<RecordingDto> stopRecording(@PathVariable Long id) {
+        return profilingService.stopRecording(id);
+    }
+
+    @Operation(summary = "Закрытие JFR записи",
+            description = "Закрывает запись и освобождает ее данные на диске")
+    @ApiResponse(responseCode = "200", description = "Запись закрыта")
+    @ApiResponse(responseCode = "404", description = "Запись не найдена")
+    @DeleteMapping("/{id}")
+    public Mono<Void> closeRecording(@PathVariable Long id) {
+        return profilingService.closeRecording(id);
+    }
+}
@@ -1,20 +1,33 @@
 package com.samatov.payment_service.controller;
 
+import com.samatov.payment_service.config.TransactionEventsProperties;
 import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.dto.TransactionPageDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.exception.InvalidRequestException;
 import com.samatov.payment_service.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/payments")
@@ -23,9 +36,11 @@ import java.time.LocalDateTime;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionEventsProperties eventsProperties;
 
     @Operation(summary = "Получение списка транзакций",
-            description = "Возвращает список транзакций с возможностью фильтрации по дате")
+            description = "Возвращает список транзакций с возможностью фильтрации по дате. "
+                    + "Без дат возвращает только первую страницу последних транзакций")
     @ApiResponse(responseCode = "200", description = "Успешное получение списка транзакций",
             content = @Content(schema = @Schema(implementation = TransactionDto.class)))
     @GetMapping("/transaction/list")
@@ -35,18 +50,117 @@ public class TransactionController {
         if (start_date != null && end_date != null) {
             return transactionService.findByCreatedAtBetween(start_date, end_date);
         }
-        return transactionService.findAll();
+        return transactionService.findPage(new TransactionFilterDto(), null, null)
+                .flatMapIterable(TransactionPageDto::getItems);
+    }
+
+    @Operation(summary = "Потоковая выгрузка транзакций (NDJSON)",
+            description = "Передает транзакции за период построчно по мере чтения из базы, без буферизации всего ответа")
+    @ApiResponse(responseCode = "200", description = "Поток транзакций",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = TransactionDto.class)))
+    @GetMapping(value = "/transaction/list", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TransactionDto> exportTransactionList(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start_date,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end_date) {
+        return transactionService.streamByCreatedAtBetween(start_date, end_date);
+    }
+
+    @Operation(summary = "Потоковая выгрузка транзакций (SSE)",
+            description = "Передает транзакции за период как server-sent events по мере чтения из базы")
+    @ApiResponse(responseCode = "200", description = "Поток транзакций",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                    schema = @Schema(implementation = TransactionDto.class)))
+    @GetMapping(value = "/transaction/list", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TransactionDto>> streamTransactionList(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start_date,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end_date) {
+        return transactionService.streamByCreatedAtBetween(start_date, end_date)
+                .map(transaction -> ServerSentEvent.builder(transaction)
+                        .id(String.valueOf(transaction.getId()))
+                        .event("transaction")
+                        .build());
+    }
+
+    @Operation(summary = "Постраничное получение транзакций",
+            description = "Возвращает страницу транзакций от новых к старым. "
+                    + "Для следующей страницы передайте nextCursor из предыдущего ответа")
+    @ApiResponse(responseCode = "200", description = "Успешное получение страницы транзакций",
+            content = @Content(schema = @Schema(implementation = TransactionPageDto.class)))
+    @ApiResponse(responseCode = "400", description = "Неверный курсор")
+    @GetMapping("/transaction/page")
+    public Mono<TransactionPageDto> getTransactionPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page_size,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) Long merchant_account_id,
+            @RequestParam(required = false) Currency currency) {
+        TransactionFilterDto filter = new TransactionFilterDto();
+        filter.setStatus(status);
+        filter.setType(type);
+        filter.setMerchantAccountId(merchant_account_id);
+        filter.setCurrency(currency);
+        return transactionService.findPage(filter, cursor, page_size);
     }
 
     @Operation(summary = "Получение деталей транзакции",
             description = "Возвращает детальную информацию о конкретной транзакции")
     @ApiResponse(responseCode = "200", description = "Успешное получение деталей транзакции",
             content = @Content(schema = @Schema(implementation = TransactionDto.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректное время ожидания")
     @ApiResponse(responseCode = "404", description = "Транзакция не найдена")
+    @ApiResponse(responseCode = "503", description = "Превышено число ожидающих запросов")
     @GetMapping("/transaction/{transactionId}/details")
-    public Mono<ResponseEntity<TransactionDto>> getTransactionDetails(@PathVariable Long transactionId) {
-        return transactionService.findById(transactionId)
+    public Mono<ResponseEntity<TransactionDto>> getTransactionDetails(
+            @PathVariable Long transactionId,
+            @Parameter(description = "Ждать, пока транзакция не перейдет в один из статусов", example = "SUCCESS,FAILED")
+            @RequestParam(required = false) Set<TransactionStatus> waitFor,
+            @Parameter(description = "Максимальное время ожидания", example = "10s")
+            @RequestParam(required = false) String timeout) {
+        Mono<TransactionDto> transaction = waitFor == null || waitFor.isEmpty()
+                ? transactionService.findById(transactionId)
+                : transactionService.waitForStatus(transactionId, waitFor, resolveWaitTimeout(timeout));
+        return transaction
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Подписка на изменения статусов транзакций",
+            description = "Server-sent events с изменениями статусов по счету или по конкретной транзакции. "
+                    + "Поток по транзакции начинается с ее текущего состояния и завершается на финальном статусе")
+    @ApiResponse(responseCode = "200", description = "Поток изменений статусов",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                    schema = @Schema(implementation = TransactionDto.class)))
+    @ApiResponse(responseCode = "400", description = "Не указан ни account_id, ни transaction_id")
+    @ApiResponse(responseCode = "503", description = "Превышено число подписчиков")
+    @GetMapping(value = "/transaction/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TransactionDto>> streamTransactionStatuses(
+            @RequestParam(required = false) Long account_id,
+            @RequestParam(required = false) Long transaction_id) {
+        Flux<ServerSentEvent<TransactionDto>> events = transactionService.streamStatusChanges(account_id, transaction_id)
+                .map(transaction -> ServerSentEvent.builder(transaction)
+                        .id(String.valueOf(transaction.getId()))
+                        .event("status")
+                        .build());
+        return events.publish(shared -> Flux.merge(
+                shared,
+                Flux.interval(eventsProperties.getHeartbeatInterval())
+                        .map(tick -> ServerSentEvent.<TransactionDto>builder().comment("heartbeat").build())
+                        .takeUntilOther(shared.then(Mono.just(Boolean.TRUE)))));
+    }
+
+    private Duration resolveWaitTimeout(String timeout) {
+        TransactionEventsProperties.LongPoll longPoll = eventsProperties.getLongPoll();
+        if (timeout == null) {
+            return longPoll.getDefaultTimeout();
+        }
+        Duration requested;
+        try {
+            requested = DurationStyle.detectAndParse(timeout);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid timeout: " + timeout);
+        }
+        return requested.compareTo(longPoll.getMaxTimeout()) > 0 ? longPoll.getMaxTimeout() : requested;
+    }
+}
@@ -0,0 +1,51 @@
+package com.samatov.payment_service.controller;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.service.TransactionStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/v1/payments/stats")
+@RequiredArgsConstructor
+@Tag(name = "Transaction stats", description = "API для агрегированной статистики транзакций")
+public class TransactionStatsController {
+
+    private final TransactionStatsService transactionStatsService;
+
+    @Operation(summary = "Дневная статистика транзакций",
+            description = "Возвращает количество и сумму транзакций по мерчанту, дню, валюте, типу и статусу")
+    @ApiResponse(responseCode = "200", description = "Успешное получение статистики",
+            content = @Content(schema = @Schema(implementation = TransactionDailyStatsDto.class)))
+    @GetMapping("/daily")
+    public Flux<TransactionDailyStatsDto> getDailyStats(
+            @RequestParam(required = false) Long merchant_account_id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Currency currency) {
+        return transactionStatsService.findDailyStats(merchant_account_id, from, to, currency);
+    }
+
+    @Operation(summary = "Пересчет дневной статистики",
+            description = "Пересчитывает дневную статистику за период по таблице транзакций")
+    @ApiResponse(responseCode = "200", description = "Статистика пересчитана, возвращается число записанных строк")
+    @PostMapping("/daily/rebuild")
+    public Mono<ResponseEntity<Long>> rebuildDailyStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return transactionStatsService.rebuild(from, to)
+                .map(ResponseEntity::ok);
+    }
+}
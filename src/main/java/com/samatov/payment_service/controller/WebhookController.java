@@ -1,6 +1,7 @@
 package com.samatov.payment_service.controller;
 
 import com.samatov.payment_service.dto.WebhookDto;
+import com.samatov.payment_service.service.TransactionService;
 import com.samatov.payment_service.service.WebhookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -19,6 +20,7 @@ import reactor.core.publisher.Mono;
 public class WebhookController {
 
     private final WebhookService webhookService;
+    private final TransactionService transactionService;
 
     @Operation(summary = "Отправка вебхука",
             description = "Отправляет вебхук для указанной транзакции")
@@ -29,7 +31,8 @@ public class WebhookController {
     public Mono<ResponseEntity<Void>> sendWebhook(
             @PathVariable Long transactionId,
             @RequestParam String status) {
-        return webhookService.sendWebhook(transactionId, status)
+        return transactionService.findById(transactionId)
+                .flatMap(transaction -> webhookService.sendWebhook(transaction, status))
                 .then(Mono.just(ResponseEntity.ok().<Void>build()))
                 .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().<Void>build()));
     }
@@ -2,17 +2,21 @@ package com.samatov.payment_service.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
+import lombok.ToString;
 
 @Data
 @Schema(description = "Данные карты")
 public class CardDataDto {
 
     @Schema(description = "Номер карты", example = "4111111111111111")
+    @ToString.Exclude
     private String cardNumber;
 
     @Schema(description = "Дата истечения срока действия", example = "12/25")
+    @ToString.Exclude
     private String expDate;
 
     @Schema(description = "CVV код", example = "123")
+    @ToString.Exclude
     private String cvv;
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.samatov.payment_service.dto;
 import com.samatov.payment_service.enums.CardType;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -17,15 +18,18 @@ public class CardDto {
     private Long accountId;
 
     @Schema(description = "Номер карты", example = "4111111111111111")
+    @ToString.Exclude
     private String cardNumber;
 
     @Schema(description = "Тип карты", example = "VISA")
     private CardType cardType;
 
     @Schema(description = "Дата истечения срока действия", example = "12/25")
+    @ToString.Exclude
     private String expDate;
 
     @Schema(description = "CVV код", example = "123")
+    @ToString.Exclude
     private String cvv;
 
     @Schema(description = "Дата создания", example = "2023-05-01T10:40:00Z")
@@ -0,0 +1,29 @@
+package com.samatov.payment_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Schema(description = "JFR запись")
+public class RecordingDto {
+
+    @Schema(description = "Идентификатор записи", example = "3")
+    private Long id;
+
+    @Schema(description = "Имя записи", example = "payment-service-1714560000000")
+    private String name;
+
+    @Schema(description = "Состояние записи", example = "RUNNING")
+    private String state;
+
+    @Schema(description = "Время начала записи", example = "2024-05-01T10:40:00Z")
+    private Instant startTime;
+
+    @Schema(description = "Порог для событий платежного сервиса", example = "20 ms")
+    private String eventThreshold;
+
+    @Schema(description = "Файл последнего дампа", example = "/tmp/payment-service-jfr/payment-service-3.jfr")
+    private String dumpFile;
+}
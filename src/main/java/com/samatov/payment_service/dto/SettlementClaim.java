@@ -0,0 +1,22 @@
+package com.samatov.payment_service.dto;
+
+import com.samatov.payment_service.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One lane's share of a settlement claim: IN_PROGRESS transactions of the given types in
+ * the given account partitions ({@code null} for all of them), taken round-robin across
+ * merchant accounts, {@code merchantQuantum} per merchant per round, smaller amount tiers
+ * first within a round.
+ */
+public record SettlementClaim(Set<TransactionType> types,
+                              Collection<Integer> partitions,
+                              int partitionCount,
+                              int merchantQuantum,
+                              List<BigDecimal> amountTiers,
+                              int limit) {
+}
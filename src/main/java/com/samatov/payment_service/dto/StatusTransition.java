@@ -0,0 +1,15 @@
+package com.samatov.payment_service.dto;
+
+import com.samatov.payment_service.enums.TransactionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Target status and message for one transaction of a bulk status transition. The creation
+ * time keeps the lookup to the transaction's monthly partition.
+ */
+public record StatusTransition(Long id,
+                               LocalDateTime createdAt,
+                               TransactionStatus status,
+                               String message) {
+}
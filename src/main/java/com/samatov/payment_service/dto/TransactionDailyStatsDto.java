@@ -0,0 +1,36 @@
+package com.samatov.payment_service.dto;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Schema(description = "Дневная статистика транзакций мерчанта")
+public class TransactionDailyStatsDto {
+
+    @Schema(description = "ID счета мерчанта", example = "2")
+    private Long merchantAccountId;
+
+    @Schema(description = "День", example = "2023-05-01")
+    private LocalDate day;
+
+    @Schema(description = "Валюта", example = "USD")
+    private Currency currency;
+
+    @Schema(description = "Тип транзакции", example = "TOP_UP")
+    private TransactionType type;
+
+    @Schema(description = "Статус транзакции", example = "SUCCESS")
+    private TransactionStatus status;
+
+    @Schema(description = "Количество транзакций", example = "42")
+    private Long count;
+
+    @Schema(description = "Сумма транзакций", example = "4200.00")
+    private BigDecimal amount;
+}
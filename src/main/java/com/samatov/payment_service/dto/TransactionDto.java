@@ -3,6 +3,7 @@ package com.samatov.payment_service.dto;
 import com.samatov.payment_service.enums.*;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -30,6 +31,7 @@ public class TransactionDto {
     private PaymentMethod paymentMethod;
 
     @Schema(description = "Номер карты (если применимо)", example = "4111111111111111")
+    @ToString.Exclude
     private String cardNumber;
 
     @Schema(description = "Язык", example = "EN")
@@ -56,6 +58,9 @@ public class TransactionDto {
     @Schema(description = "Страна клиента", example = "USA")
     private String customerCountry;
 
+    @Schema(description = "Срок удержания средств", example = "2023-05-01T10:45:00Z")
+    private LocalDateTime holdExpiresAt;
+
     @Schema(description = "Дата создания", example = "2023-05-01T10:30:00Z")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,24 @@
+package com.samatov.payment_service.dto;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Фильтр списка транзакций")
+public class TransactionFilterDto {
+
+    @Schema(description = "Статус транзакции", example = "SUCCESS")
+    private TransactionStatus status;
+
+    @Schema(description = "Тип транзакции", example = "TOP_UP")
+    private TransactionType type;
+
+    @Schema(description = "ID счета мерчанта", example = "2")
+    private Long merchantAccountId;
+
+    @Schema(description = "Валюта", example = "USD")
+    private Currency currency;
+}
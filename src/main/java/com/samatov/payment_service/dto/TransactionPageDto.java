@@ -0,0 +1,17 @@
+package com.samatov.payment_service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Страница транзакций")
+public class TransactionPageDto {
+
+    @Schema(description = "Транзакции страницы, от новых к старым")
+    private List<TransactionDto> items;
+
+    @Schema(description = "Курсор следующей страницы, отсутствует на последней странице", example = "MjAyMy0wNS0wMVQxMDozMDowMHwxMjM0")
+    private String nextCursor;
+}
@@ -1,5 +1,12 @@
 package com.samatov.payment_service.enums;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
 public enum Currency {
-    USD, EUR, GBP, JPY, BRL
-}
\ No newline at end of file
+    USD(2), EUR(2), GBP(2), JPY(0), BRL(2);
+
+    private final int minorUnitExponent;
+}
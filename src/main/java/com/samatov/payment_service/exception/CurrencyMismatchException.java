@@ -0,0 +1,7 @@
+package com.samatov.payment_service.exception;
+
+public class CurrencyMismatchException extends RuntimeException {
+    public CurrencyMismatchException(String message) {
+        super(message);
+    }
+}
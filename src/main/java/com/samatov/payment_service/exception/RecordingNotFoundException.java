@@ -0,0 +1,7 @@
+package com.samatov.payment_service.exception;
+
+public class RecordingNotFoundException extends RuntimeException {
+    public RecordingNotFoundException(String message) {
+        super(message);
+    }
+}
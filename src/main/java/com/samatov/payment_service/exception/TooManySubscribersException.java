@@ -0,0 +1,7 @@
+package com.samatov.payment_service.exception;
+
+public class TooManySubscribersException extends RuntimeException {
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
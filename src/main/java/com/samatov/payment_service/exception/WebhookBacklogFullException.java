@@ -0,0 +1,7 @@
+package com.samatov.payment_service.exception;
+
+public class WebhookBacklogFullException extends RuntimeException {
+    public WebhookBacklogFullException(String message) {
+        super(message);
+    }
+}
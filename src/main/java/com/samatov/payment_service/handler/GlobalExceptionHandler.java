@@ -53,12 +53,42 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
+    @ExceptionHandler(CurrencyMismatchException.class)
+    public ResponseEntity<String> handleCurrencyMismatchException(CurrencyMismatchException ex) {
+        log.error("Currency mismatch exception", ex);
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
     @ExceptionHandler(TransactionNotFoundException.class)
     public ResponseEntity<String> handleTransactionNotFoundException(TransactionNotFoundException ex) {
         log.error("Transaction not found exception", ex);
         return ResponseEntity.notFound().build();
     }
 
+    @ExceptionHandler(RecordingNotFoundException.class)
+    public ResponseEntity<String> handleRecordingNotFoundException(RecordingNotFoundException ex) {
+        log.error("Recording not found exception", ex);
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        log.error("Invalid cursor exception", ex);
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleInvalidRequestException(InvalidRequestException ex) {
+        log.error("Invalid request exception", ex);
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TooManySubscribersException.class)
+    public ResponseEntity<String> handleTooManySubscribersException(TooManySubscribersException ex) {
+        log.error("Too many subscribers exception", ex);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception ex) {
         log.error("Unexpected error", ex);
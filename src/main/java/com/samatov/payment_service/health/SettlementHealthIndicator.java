@@ -0,0 +1,31 @@
+package com.samatov.payment_service.health;
+
+import com.samatov.payment_service.service.impl.SettlementPoller;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the node OUT_OF_SERVICE as soon as settlement starts draining, so the readiness
+ * probe fails and the load balancer stops sending it traffic before it goes away.
+ */
+@Component("settlement")
+@RequiredArgsConstructor
+public class SettlementHealthIndicator implements HealthIndicator {
+
+    private final SettlementPoller settlementPoller;
+
+    @Override
+    public Health health() {
+        if (settlementPoller.isDraining()) {
+            return Health.outOfService()
+                    .withDetail("draining", true)
+                    .withDetail("stopped", !settlementPoller.isRunning())
+                    .build();
+        }
+        return Health.up()
+                .withDetail("draining", false)
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.samatov.payment_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.samatov.payment.AccountOperation")
+@Label("Account Operation")
+@Category({"Payment Service", "Accounts"})
+@Description("Read-modify-write of an account balance: freeze, unfreeze or transfer")
+@Threshold("20 ms")
+@StackTrace(false)
+public class AccountOperationEvent extends Event implements OutcomeEvent {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Account Id")
+    public long accountId;
+
+    @Label("Counterparty Account Id")
+    public long counterpartyAccountId;
+
+    @Label("Outcome")
+    public String outcome;
+
+    public AccountOperationEvent(String stage, Long accountId, Long counterpartyAccountId) {
+        this.stage = stage;
+        this.accountId = JfrEvents.id(accountId);
+        this.counterpartyAccountId = JfrEvents.id(counterpartyAccountId);
+    }
+
+    @Override
+    public void outcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,81 @@
+package com.samatov.payment_service.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Wraps reactive stages in custom JFR events. The event begins on subscription and is
+ * committed when the stage terminates; the thresholds on the event classes keep fast
+ * stages out of the recording. Nothing is timed while no recording has the event enabled.
+ */
+public final class JfrEvents {
+
+    public static final List<Class<? extends Event>> EVENT_TYPES = List.of(
+            PaymentIntakeEvent.class,
+            SettlementEvent.class,
+            AccountOperationEvent.class,
+            WebhookDeliveryEvent.class);
+
+    private JfrEvents() {
+    }
+
+    public static void register() {
+        EVENT_TYPES.forEach(FlightRecorder::register);
+    }
+
+    public static <E extends Event & OutcomeEvent, T> Mono<T> record(Supplier<E> factory, Mono<T> source) {
+        return record(factory, source, (event, value) -> {
+        });
+    }
+
+    public static <E extends Event & OutcomeEvent, T> Mono<T> record(Supplier<E> factory, Mono<T> source, BiConsumer<E, T> onValue) {
+        return Mono.defer(() -> {
+            E event = factory.get();
+            if (!event.isEnabled()) {
+                return source;
+            }
+            event.begin();
+            return source
+                    .doOnNext(value -> onValue.accept(event, value))
+                    .doOnError(error -> event.outcome(error.getClass().getSimpleName()))
+                    .doFinally(signal -> commit(event, signal));
+        });
+    }
+
+    public static <E extends Event & OutcomeEvent, T> Flux<T> record(Supplier<E> factory, Flux<T> source) {
+        return Flux.defer(() -> {
+            E event = factory.get();
+            if (!event.isEnabled()) {
+                return source;
+            }
+            event.begin();
+            return source
+                    .doOnError(error -> event.outcome(error.getClass().getSimpleName()))
+                    .doFinally(signal -> commit(event, signal));
+        });
+    }
+
+    public static long id(Long id) {
+        return id == null ? 0 : id;
+    }
+
+    private static <E extends Event & OutcomeEvent> void commit(E event, SignalType signal) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        if (signal == SignalType.CANCEL) {
+            event.outcome("cancelled");
+        } else if (signal != SignalType.ON_ERROR) {
+            event.outcome("success");
+        }
+        event.commit();
+    }
+}
@@ -0,0 +1,10 @@
+package com.samatov.payment_service.jfr;
+
+/**
+ * Event that records how the traced operation ended: {@code success}, {@code cancelled}
+ * or the simple name of the error.
+ */
+public interface OutcomeEvent {
+
+    void outcome(String outcome);
+}
@@ -0,0 +1,42 @@
+package com.samatov.payment_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.samatov.payment.Intake")
+@Label("Payment Intake")
+@Category({"Payment Service", "Intake"})
+@Description("Top-up or payout request from card validation to the transaction insert")
+@Threshold("20 ms")
+@StackTrace(false)
+public class PaymentIntakeEvent extends Event implements OutcomeEvent {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Transaction Id")
+    public long transactionId;
+
+    @Label("Account From")
+    public long accountFrom;
+
+    @Label("Account To")
+    public long accountTo;
+
+    @Label("Outcome")
+    public String outcome;
+
+    public PaymentIntakeEvent(String stage) {
+        this.stage = stage;
+    }
+
+    @Override
+    public void outcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
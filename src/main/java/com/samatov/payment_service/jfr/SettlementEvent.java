@@ -0,0 +1,64 @@
+package com.samatov.payment_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.samatov.payment.Settlement")
+@Label("Settlement")
+@Category({"Payment Service", "Settlement"})
+@Description("Settlement stage of a batch or of a single transaction")
+@Threshold("50 ms")
+@StackTrace(false)
+public class SettlementEvent extends Event implements OutcomeEvent {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Transaction Id")
+    public long transactionId;
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Account From")
+    public long accountFrom;
+
+    @Label("Account To")
+    public long accountTo;
+
+    @Label("Outcome")
+    public String outcome;
+
+    public SettlementEvent(String stage) {
+        this.stage = stage;
+    }
+
+    public static SettlementEvent transition(Long accountFrom) {
+        SettlementEvent event = new SettlementEvent("transition");
+        event.accountFrom = JfrEvents.id(accountFrom);
+        return event;
+    }
+
+    public static SettlementEvent funds(Long transactionId, String status, Long accountFrom, Long accountTo) {
+        SettlementEvent event = new SettlementEvent("funds");
+        event.batchSize = 1;
+        event.transactionId = JfrEvents.id(transactionId);
+        event.status = status;
+        event.accountFrom = JfrEvents.id(accountFrom);
+        event.accountTo = JfrEvents.id(accountTo);
+        return event;
+    }
+
+    @Override
+    public void outcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,78 @@
+package com.samatov.payment_service.jfr;
+
+import com.samatov.payment_service.config.BlockingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches for virtual threads that stay pinned to their carrier, e.g. blocking inside a
+ * {@code synchronized} block or a native frame. Every pinned section above the threshold is
+ * timed in {@code blocking.virtual.pinned}; the first one seen at each call site is logged
+ * with its stack so it can be fixed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final BlockingProperties blockingProperties;
+    private final MeterRegistry registry;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private Timer pinned;
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        BlockingProperties.Pinning pinning = blockingProperties.getPinning();
+        if (blockingProperties.getMode() != BlockingProperties.Mode.VIRTUAL || !pinning.isDetectionEnabled()) {
+            return;
+        }
+        pinned = Timer.builder("blocking.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(registry);
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(pinning.getThreshold()).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning detection started: threshold={}", pinning.getThreshold());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        String site = frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(frame -> frame.getMethod().getType().getName() + '.' + frame.getMethod().getName() + ':' + frame.getLineNumber())
+                .filter(frame -> frame.startsWith("com.samatov"))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0).getMethod().getType().getName());
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms at {}: {}", event.getDuration().toMillis(), site, frames);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.samatov.payment_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.samatov.payment.WebhookDelivery")
+@Label("Webhook Delivery")
+@Category({"Payment Service", "Webhooks"})
+@Description("Webhook HTTP call to the merchant notification URL")
+@Threshold("100 ms")
+@StackTrace(false)
+public class WebhookDeliveryEvent extends Event implements OutcomeEvent {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Transaction Id")
+    public long transactionId;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Outcome")
+    public String outcome;
+
+    public WebhookDeliveryEvent(String stage, Long transactionId, String status) {
+        this.stage = stage;
+        this.transactionId = JfrEvents.id(transactionId);
+        this.status = status;
+    }
+
+    @Override
+    public void outcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,17 @@
+package com.samatov.payment_service.logging;
+
+public final class LogMasking {
+
+    private LogMasking() {
+    }
+
+    /**
+     * Keeps the last four digits of a card number, e.g. {@code ************1111}.
+     */
+    public static String cardNumber(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() <= 4) {
+            return "****";
+        }
+        return "*".repeat(cardNumber.length() - 4) + cardNumber.substring(cardNumber.length() - 4);
+    }
+}
@@ -0,0 +1,109 @@
+package com.samatov.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback turbo filter that keeps per-request logging on the hot path within a budget.
+ * Each configured category (a logger name prefix) samples events below WARN at a fixed
+ * rate and caps how many of them pass per second; WARN and ERROR are never dropped.
+ * Runs before the event is created, so dropped calls cost no formatting or allocation.
+ *
+ * <pre>
+ * &lt;turboFilter class="com.samatov.payment_service.logging.SamplingTurboFilter"&gt;
+ *   &lt;category&gt;
+ *     &lt;logger&gt;com.samatov.payment_service.service.impl.PaymentServiceImpl&lt;/logger&gt;
+ *     &lt;sampleRate&gt;0.1&lt;/sampleRate&gt;
+ *     &lt;maxPerSecond&gt;200&lt;/maxPerSecond&gt;
+ *   &lt;/category&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<Category> categories = new ArrayList<>();
+
+    public void addCategory(Category category) {
+        categories.add(category);
+    }
+
+    public long getSuppressedCount() {
+        return categories.stream().mapToLong(category -> category.suppressed.get()).sum();
+    }
+
+    @Override
+    public void start() {
+        for (Category category : categories) {
+            if (category.getLogger() == null || category.getSampleRate() < 0 || category.getSampleRate() > 1) {
+                addError("Sampling category needs a logger and a sample rate between 0 and 1: " + category.getLogger());
+                return;
+            }
+        }
+        // longest prefix first so a specific logger wins over its package
+        categories.sort((a, b) -> Integer.compare(b.getLogger().length(), a.getLogger().length()));
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isXxxEnabled() and the fluent atXxx() builders probe with a null format; sampling those
+        // would make guards flicker and charge the budget twice for one logged event
+        if (format == null || level == null || level.isGreaterOrEqual(Level.WARN) || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        String name = logger.getName();
+        for (Category category : categories) {
+            if (name.startsWith(category.getLogger())) {
+                return category.admit() ? FilterReply.NEUTRAL : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    @Getter
+    @Setter
+    public static class Category {
+        private String logger;
+        private double sampleRate = 1.0;
+        // 0 disables the rate limit
+        private int maxPerSecond;
+
+        @Getter(AccessLevel.NONE)
+        private final AtomicLong window = new AtomicLong();
+        @Getter(AccessLevel.NONE)
+        private final AtomicInteger admitted = new AtomicInteger();
+        @Getter(AccessLevel.NONE)
+        private final AtomicLong suppressed = new AtomicLong();
+
+        boolean admit() {
+            if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                suppressed.incrementAndGet();
+                return false;
+            }
+            if (maxPerSecond > 0) {
+                long second = System.currentTimeMillis() / 1000;
+                long current = window.get();
+                if (second != current && window.compareAndSet(current, second)) {
+                    admitted.set(0);
+                }
+                if (admitted.incrementAndGet() > maxPerSecond) {
+                    suppressed.incrementAndGet();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.samatov.payment_service.mapper;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.model.TransactionDailyStats;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface TransactionDailyStatsMapper {
+    TransactionDailyStatsDto toDto(TransactionDailyStats stats);
+}
@@ -0,0 +1,145 @@
+package com.samatov.payment_service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers and counters for the payment pipeline. Every stage is a {@code stage} tag on one
+ * of three timers, so dashboards can stack the stages of a pipeline:
+ * <ul>
+ *     <li>{@code payment.intake} — card_validation, customer_resolve, account_lookup, hold, insert</li>
+ *     <li>{@code payment.settlement} — claim, transition, funds</li>
+ *     <li>{@code webhook.delivery} — send, record</li>
+ * </ul>
+ * Each timer also carries {@code outcome} (success, error, cancelled). Settlement lanes
+ * additionally report how long transactions waited to be claimed and how many accounts
+ * each lane is settling at the moment, and expired holds are counted by whether the timing
+ * wheel or the recovery sweep found them.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String INTAKE = "payment.intake";
+    public static final String SETTLEMENT = "payment.settlement";
+    public static final String WEBHOOK = "webhook.delivery";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> expiredHolds = new ConcurrentHashMap<>();
+    private final AtomicLong settlementBacklog = new AtomicLong();
+    private final AtomicLong pollIntervalNanos = new AtomicLong();
+    private final Map<String, Timer> laneWaits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> laneInFlight = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("payment.settlement.backlog", settlementBacklog, AtomicLong::get)
+                .description("Transactions waiting in IN_PROGRESS at the last settlement run")
+                .register(registry);
+        Gauge.builder("payment.settlement.poll.interval", pollIntervalNanos, nanos -> nanos.get() / 1e9)
+                .description("Delay before the next settlement claim, zero while batches come back full")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public <T> Mono<T> intake(String stage, Mono<T> source) {
+        return time(INTAKE, stage, source);
+    }
+
+    public <T> Mono<T> settlement(String stage, Mono<T> source) {
+        return time(SETTLEMENT, stage, source);
+    }
+
+    public <T> Flux<T> settlement(String stage, Flux<T> source) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return source.doFinally(signal -> sample.stop(timer(SETTLEMENT, stage, outcome(signal))));
+        });
+    }
+
+    public <T> Mono<T> webhook(String stage, Mono<T> source) {
+        return time(WEBHOOK, stage, source);
+    }
+
+    public void settled(String status) {
+        counters.computeIfAbsent(status, key -> Counter.builder("payment.settlement.transactions")
+                        .tag("status", key)
+                        .register(registry))
+                .increment();
+    }
+
+    public void holdExpired(String source) {
+        expiredHolds.computeIfAbsent(source, key -> Counter.builder("transaction.holds.expired")
+                        .description("Transactions failed because their hold ran out before settlement")
+                        .tag("source", key)
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordSettlementBacklog(long inProgress) {
+        settlementBacklog.set(inProgress);
+    }
+
+    public void recordPollInterval(Duration interval) {
+        pollIntervalNanos.set(interval.toNanos());
+    }
+
+    public void recordLaneWait(String lane, Duration wait) {
+        laneWaits.computeIfAbsent(lane, key -> Timer.builder("payment.settlement.lane.wait")
+                        .description("Time from transaction creation until a settlement lane claimed it")
+                        .tag("lane", key)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(wait);
+    }
+
+    public <T> Mono<T> inLane(String lane, Mono<T> source) {
+        AtomicInteger inFlight = laneInFlight.computeIfAbsent(lane, key -> {
+            AtomicInteger gauge = new AtomicInteger();
+            Gauge.builder("payment.settlement.lane.in_flight", gauge, AtomicInteger::get)
+                    .description("Transactions a settlement lane is working on")
+                    .tag("lane", key)
+                    .register(registry);
+            return gauge;
+        });
+        return Mono.defer(() -> {
+            inFlight.incrementAndGet();
+            return source.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    private <T> Mono<T> time(String name, String stage, Mono<T> source) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return source.doFinally(signal -> sample.stop(timer(name, stage, outcome(signal))));
+        });
+    }
+
+    private Timer timer(String name, String stage, String outcome) {
+        return timers.computeIfAbsent(name + ':' + stage + ':' + outcome, key -> Timer.builder(name)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancelled";
+            default -> "success";
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.samatov.payment_service.model;
+
+import com.samatov.payment_service.enums.Currency;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Amount in the smallest unit of its currency (cents, yen, ...). Building one rejects an
+ * amount finer than the currency allows; balances themselves are updated in SQL, so
+ * entities and DTOs keep {@code BigDecimal} and are converted with
+ * {@link #of(BigDecimal, Currency)} and {@link #toBigDecimal()}.
+ */
+public record Money(long minorUnits, Currency currency) {
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        Objects.requireNonNull(amount, "amount");
+        Objects.requireNonNull(currency, "currency");
+        try {
+            return new Money(amount.movePointRight(currency.getMinorUnitExponent()).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString() + " is not representable in " + currency, e);
+        }
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getMinorUnitExponent());
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
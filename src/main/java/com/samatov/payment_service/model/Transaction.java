@@ -6,6 +6,7 @@ import lombok.EqualsAndHashCode;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 
 @Data
@@ -26,4 +27,5 @@ public class Transaction extends BaseEntity {
     private String customerFirstName;
     private String customerLastName;
     private String customerCountry;
+    private LocalDateTime holdExpiresAt;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.samatov.payment_service.model;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import lombok.Data;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Table("transaction_daily_stats")
+public class TransactionDailyStats {
+    private Long merchantAccountId;
+    private LocalDate day;
+    private Currency currency;
+    private TransactionType type;
+    private TransactionStatus status;
+    @Column("tx_count")
+    private Long count;
+    @Column("amount_sum")
+    private BigDecimal amount;
+    private LocalDateTime updatedAt;
+}
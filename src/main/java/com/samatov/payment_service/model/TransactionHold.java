@@ -0,0 +1,6 @@
+package com.samatov.payment_service.model;
+
+import java.time.LocalDateTime;
+
+public record TransactionHold(Long transactionId, LocalDateTime createdAt, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,6 @@
+package com.samatov.payment_service.model;
+
+import com.samatov.payment_service.enums.TransactionStatus;
+
+public record TransactionStatusChange(Transaction transaction, TransactionStatus previousStatus) {
+}
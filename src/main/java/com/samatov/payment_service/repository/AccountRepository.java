@@ -1,9 +1,33 @@
 package com.samatov.payment_service.repository;
 
 import com.samatov.payment_service.model.Account;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+
 public interface AccountRepository extends ReactiveCrudRepository<Account, Long> {
     Mono<Account> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    @Query("SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE")
+    Flux<Long> lockInIdOrder(Collection<Long> ids);
+
+    @Query("UPDATE accounts SET balance = balance - :amount, frozen_amount = frozen_amount + :amount, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = :id AND currency = :currency AND balance >= :amount RETURNING *")
+    Mono<Account> freeze(Long id, BigDecimal amount, String currency);
+
+    @Query("UPDATE accounts SET balance = balance + :amount, frozen_amount = frozen_amount - :amount, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = :id AND currency = :currency AND frozen_amount >= :amount RETURNING *")
+    Mono<Account> unfreeze(Long id, BigDecimal amount, String currency);
+
+    @Query("UPDATE accounts SET balance = balance - :amount, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = :id AND currency = :currency AND balance >= :amount RETURNING *")
+    Mono<Account> debit(Long id, BigDecimal amount, String currency);
+
+    @Query("UPDATE accounts SET balance = balance + :amount, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = :id AND currency = :currency RETURNING *")
+    Mono<Account> credit(Long id, BigDecimal amount, String currency);
+}
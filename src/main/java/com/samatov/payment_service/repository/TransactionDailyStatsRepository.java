@@ -0,0 +1,106 @@
+package com.samatov.payment_service.repository;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.model.TransactionDailyStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class TransactionDailyStatsRepository {
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO transaction_daily_stats (merchant_account_id, day, currency, type, status, tx_count, amount_sum) VALUES ";
+    private static final String UPSERT_SUFFIX =
+            " ON CONFLICT (merchant_account_id, day, currency, type, status) DO UPDATE"
+                    + " SET tx_count = transaction_daily_stats.tx_count + EXCLUDED.tx_count,"
+                    + " amount_sum = transaction_daily_stats.amount_sum + EXCLUDED.amount_sum,"
+                    + " updated_at = CURRENT_TIMESTAMP";
+    private static final String REBUILD =
+            "INSERT INTO transaction_daily_stats (merchant_account_id, day, currency, type, status, tx_count, amount_sum)"
+                    + " SELECT CASE WHEN type = 'TOP_UP' THEN account_to ELSE account_from END,"
+                    + " created_at::DATE, currency, type, status, count(*), sum(amount)"
+                    + " FROM transactions"
+                    + " WHERE created_at >= :from AND created_at < :toExclusive"
+                    + " GROUP BY 1, 2, 3, 4, 5";
+
+    private final R2dbcEntityTemplate template;
+
+    /**
+     * Adds each row's count and amount to the matching rollup row, creating it if needed.
+     * Rows must have distinct keys; callers pass them in key order so concurrent
+     * upserts lock rollup rows in the same order.
+     */
+    public Mono<Long> applyDeltas(List<TransactionDailyStats> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.just(0L);
+        }
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+        for (int i = 0; i < deltas.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:merchantAccountId").append(i)
+                    .append(", :day").append(i)
+                    .append(", :currency").append(i)
+                    .append(", :type").append(i)
+                    .append(", :status").append(i)
+                    .append(", :count").append(i)
+                    .append(", :amount").append(i)
+                    .append(')');
+        }
+        sql.append(UPSERT_SUFFIX);
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        for (int i = 0; i < deltas.size(); i++) {
+            TransactionDailyStats delta = deltas.get(i);
+            spec = spec.bind("merchantAccountId" + i, delta.getMerchantAccountId())
+                    .bind("day" + i, delta.getDay())
+                    .bind("currency" + i, delta.getCurrency().name())
+                    .bind("type" + i, delta.getType().name())
+                    .bind("status" + i, delta.getStatus().name())
+                    .bind("count" + i, delta.getCount())
+                    .bind("amount" + i, delta.getAmount());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Flux<TransactionDailyStats> findDaily(Long merchantAccountId, LocalDate from, LocalDate to, Currency currency) {
+        Criteria criteria = Criteria.where("day").between(from, to);
+        if (merchantAccountId != null) {
+            criteria = criteria.and("merchantAccountId").is(merchantAccountId);
+        }
+        if (currency != null) {
+            criteria = criteria.and("currency").is(currency.name());
+        }
+        Query query = Query.query(criteria)
+                .sort(Sort.by("day", "merchantAccountId", "currency", "type", "status"));
+        return template.select(TransactionDailyStats.class).matching(query).all();
+    }
+
+    public Mono<Long> deleteBetween(LocalDate from, LocalDate to) {
+        return template.getDatabaseClient()
+                .sql("DELETE FROM transaction_daily_stats WHERE day BETWEEN :from AND :to")
+                .bind("from", from)
+                .bind("to", to)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> rebuildBetween(LocalDate from, LocalDate to) {
+        return template.getDatabaseClient()
+                .sql(REBUILD)
+                .bind("from", from.atStartOfDay())
+                .bind("toExclusive", to.plusDays(1).atStartOfDay())
+                .fetch().rowsUpdated();
+    }
+}
@@ -2,12 +2,21 @@ package com.samatov.payment_service.repository;
 
 import com.samatov.payment_service.enums.TransactionStatus;
 import com.samatov.payment_service.model.Transaction;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 
-public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Long> {
+public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Long>, TransactionRepositoryCustom {
+    Mono<Transaction> findByIdAndCreatedAt(Long id, LocalDateTime createdAt);
     Flux<Transaction> findByStatus(TransactionStatus status);
     Flux<Transaction> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT * FROM transactions WHERE status = 'IN_PROGRESS' AND hold_expires_at <= :now ORDER BY hold_expires_at LIMIT :limit")
+    Flux<Transaction> findExpiredHolds(LocalDateTime now, int limit);
+
+    @Query("SELECT count(*) FROM transactions WHERE status = 'IN_PROGRESS'")
+    Mono<Long> countInProgress();
 }
\ No newline at end of file
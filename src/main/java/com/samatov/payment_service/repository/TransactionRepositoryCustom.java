@@ -0,0 +1,28 @@
+package com.samatov.payment_service.repository;
+
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionCursor;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.model.Transaction;
+import com.samatov.payment_service.model.TransactionHold;
+import com.samatov.payment_service.model.TransactionStatusChange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+    Flux<Transaction> findPage(TransactionFilterDto filter, TransactionCursor after, int limit);
+    Flux<Transaction> findInProgress(SettlementClaim claim);
+    Flux<TransactionHold> findOpenHolds();
+    Flux<Transaction> streamByCreatedAtBetween(LocalDateTime start, LocalDateTime end, int fetchSize);
+    Mono<TransactionStatusChange> updateStatus(Long id, LocalDateTime createdAt, TransactionStatus status, String message);
+    Mono<Transaction> compareAndSetStatus(Long id, LocalDateTime createdAt, TransactionStatus expected, TransactionStatus status, String message);
+    Flux<Transaction> compareAndSetStatuses(List<StatusTransition> transitions, TransactionStatus expected);
+    Mono<Integer> ensurePartitions(int monthsAhead);
+    Mono<Integer> dropPartitionsBefore(LocalDate cutoff);
+}
@@ -0,0 +1,257 @@
+package com.samatov.payment_service.repository;
+
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionCursor;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.model.Transaction;
+import com.samatov.payment_service.model.TransactionHold;
+import com.samatov.payment_service.model.TransactionStatusChange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private static final String UPDATE_STATUS =
+            "UPDATE transactions SET status = :status, message = :message, updated_at = CURRENT_TIMESTAMP";
+
+    // the row lock taken in the CTE holds until the UPDATE commits, so the status it returns is
+    // exactly the one this UPDATE replaced; created_at keeps both lookups to one monthly partition
+    private static final String UPDATE_STATUS_RETURNING_PREVIOUS = """
+            WITH previous AS (
+                SELECT id, created_at, status FROM transactions WHERE id = :id AND created_at = :createdAt FOR UPDATE
+            )
+            UPDATE transactions t SET status = :status, message = :message, updated_at = CURRENT_TIMESTAMP
+            FROM previous
+            WHERE t.id = previous.id AND t.created_at = previous.created_at
+            RETURNING t.*, previous.status AS previous_status""";
+
+    // one statement flips a whole group, each row to its own status; the created_at range lets the
+    // planner skip the monthly partitions none of the rows can be in
+    private static final String COMPARE_AND_SET_STATUSES = """
+            UPDATE transactions t SET status = c.status, message = c.message, updated_at = CURRENT_TIMESTAMP
+            FROM unnest(CAST(:ids AS bigint[]), CAST(:createdAts AS timestamp[]), CAST(:statuses AS varchar[]), CAST(:messages AS varchar[]))
+                AS c (id, created_at, status, message)
+            WHERE t.id = c.id AND t.created_at = c.created_at AND t.status = :expected
+              AND t.created_at BETWEEN :oldest AND :newest
+            RETURNING t.*""";
+
+    // the recursive CTE skip-scans idx_transactions_in_progress_claim for the merchants with a
+    // backlog, one index probe per merchant, and the lateral takes at most :limit of each
+    // merchant's oldest rows from the same index, so the cost follows the merchants and the
+    // batch size rather than the backlog. merchant_rank numbers those rows oldest first, so
+    // ordering by rank / quantum interleaves merchants and one merchant's backlog cannot
+    // crowd out the others
+    private static final String FAIR_CLAIM = """
+            WITH RECURSIVE merchants (type, merchant) AS (
+                SELECT lane.type,
+                       (SELECT CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END
+                        FROM transactions t
+                        WHERE t.status = 'IN_PROGRESS' AND t.type = lane.type
+                        ORDER BY CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END
+                        LIMIT 1)
+                FROM unnest(CAST(:types AS varchar[])) AS lane (type)
+                UNION ALL
+                SELECT m.type,
+                       (SELECT CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END
+                        FROM transactions t
+                        WHERE t.status = 'IN_PROGRESS' AND t.type = m.type
+                          AND CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END > m.merchant
+                        ORDER BY CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END
+                        LIMIT 1)
+                FROM merchants m
+                WHERE m.merchant IS NOT NULL
+            )
+            SELECT * FROM (
+                SELECT backlog.*,
+                       row_number() OVER (PARTITION BY m.merchant ORDER BY backlog.created_at, backlog.id) AS merchant_rank,
+                       width_bucket(backlog.amount, CAST(:amountTiers AS numeric[])) AS amount_tier
+                FROM merchants m
+                CROSS JOIN LATERAL (
+                    SELECT t.* FROM transactions t
+                    WHERE t.status = 'IN_PROGRESS' AND t.type = m.type
+                      AND CASE WHEN t.type = 'TOP_UP' THEN t.account_to ELSE t.account_from END = m.merchant%s
+                    ORDER BY t.created_at, t.id
+                    LIMIT :limit
+                ) backlog
+                WHERE m.merchant IS NOT NULL
+            ) ranked
+            ORDER BY (merchant_rank - 1) / :merchantQuantum, amount_tier, created_at, id
+            LIMIT :limit""";
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final Comparator<Transaction> NEWEST_FIRST_ORDER = Comparator.comparing(Transaction::getCreatedAt)
+            .thenComparing(Transaction::getId)
+            .reversed();
+
+    private final R2dbcEntityTemplate template;
+
+    @Override
+    public Flux<Transaction> findPage(TransactionFilterDto filter, TransactionCursor after, int limit) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            conditions.add(Criteria.where("status").is(filter.getStatus().name()));
+        }
+        if (filter.getType() != null) {
+            conditions.add(Criteria.where("type").is(filter.getType().name()));
+        }
+        if (filter.getCurrency() != null) {
+            conditions.add(Criteria.where("currency").is(filter.getCurrency().name()));
+        }
+        if (after != null) {
+            // the redundant upper bound gives the planner an index range to seek into
+            conditions.add(Criteria.where("createdAt").lessThanOrEquals(after.createdAt()));
+            conditions.add(Criteria.where("createdAt").lessThan(after.createdAt())
+                    .or(Criteria.where("createdAt").is(after.createdAt()).and("id").lessThan(after.id())));
+        }
+        if (filter.getMerchantAccountId() == null) {
+            return selectPage(conditions, limit);
+        }
+        // the merchant is the receiving side of a top-up and the paying side of a payout. An OR of
+        // the two has no ordered index, so each side is read newest first from its own account
+        // index, at most one page each, and the two are merged
+        Flux<Transaction> topUps = filter.getType() != TransactionType.WITHDRAWAL
+                ? selectPage(merchantSide(conditions, TransactionType.TOP_UP, "accountTo", filter.getMerchantAccountId()), limit)
+                : Flux.empty();
+        Flux<Transaction> payouts = filter.getType() != TransactionType.TOP_UP
+                ? selectPage(merchantSide(conditions, TransactionType.WITHDRAWAL, "accountFrom", filter.getMerchantAccountId()), limit)
+                : Flux.empty();
+        return Flux.mergeComparing(NEWEST_FIRST_ORDER, topUps, payouts)
+                .take(limit);
+    }
+
+    @Override
+    public Flux<Transaction> findInProgress(SettlementClaim claim) {
+        boolean partitioned = claim.partitions() != null;
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient()
+                .sql(FAIR_CLAIM.formatted(partitioned ? " AND mod(t.account_from, :partitionCount) IN (:partitions)" : ""))
+                .bind("types", claim.types().stream().map(TransactionType::name).toArray(String[]::new))
+                .bind("amountTiers", claim.amountTiers().stream()
+                        .map(BigDecimal::toPlainString)
+                        .collect(Collectors.joining(",", "{", "}")))
+                .bind("merchantQuantum", claim.merchantQuantum())
+                .bind("limit", claim.limit());
+        if (partitioned) {
+            spec = spec.bind("partitionCount", claim.partitionCount())
+                    .bind("partitions", claim.partitions());
+        }
+        return spec.map((row, metadata) -> template.getConverter().read(Transaction.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Flux<TransactionHold> findOpenHolds() {
+        return template.getDatabaseClient()
+                .sql("SELECT id, created_at, hold_expires_at FROM transactions WHERE status = 'IN_PROGRESS' AND hold_expires_at IS NOT NULL")
+                .map(row -> new TransactionHold(row.get("id", Long.class), row.get("created_at", LocalDateTime.class),
+                        row.get("hold_expires_at", LocalDateTime.class)))
+                .all();
+    }
+
+    @Override
+    public Flux<Transaction> streamByCreatedAtBetween(LocalDateTime start, LocalDateTime end, int fetchSize) {
+        return template.getDatabaseClient()
+                .sql("SELECT * FROM transactions WHERE created_at BETWEEN :start AND :end ORDER BY created_at, id")
+                .bind("start", start)
+                .bind("end", end)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> template.getConverter().read(Transaction.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Mono<TransactionStatusChange> updateStatus(Long id, LocalDateTime createdAt, TransactionStatus status, String message) {
+        return statusUpdate(UPDATE_STATUS_RETURNING_PREVIOUS, status, message)
+                .bind("id", id)
+                .bind("createdAt", createdAt)
+                .map((row, metadata) -> new TransactionStatusChange(
+                        template.getConverter().read(Transaction.class, row, metadata),
+                        TransactionStatus.valueOf(row.get("previous_status", String.class))))
+                .one();
+    }
+
+    @Override
+    public Mono<Transaction> compareAndSetStatus(Long id, LocalDateTime createdAt, TransactionStatus expected, TransactionStatus status, String message) {
+        return statusUpdate(UPDATE_STATUS + " WHERE id = :id AND created_at = :createdAt AND status = :expected RETURNING *", status, message)
+                .bind("id", id)
+                .bind("createdAt", createdAt)
+                .bind("expected", expected.name())
+                .map((row, metadata) -> template.getConverter().read(Transaction.class, row, metadata))
+                .one();
+    }
+
+    @Override
+    public Flux<Transaction> compareAndSetStatuses(List<StatusTransition> transitions, TransactionStatus expected) {
+        if (transitions.isEmpty()) {
+            return Flux.empty();
+        }
+        List<LocalDateTime> createdAts = transitions.stream().map(StatusTransition::createdAt).toList();
+        return template.getDatabaseClient()
+                .sql(COMPARE_AND_SET_STATUSES)
+                .bind("ids", transitions.stream().map(StatusTransition::id).toArray(Long[]::new))
+                // timestamps travel as text, the driver has no timestamp array codec
+                .bind("createdAts", createdAts.stream().map(LocalDateTime::toString).toArray(String[]::new))
+                .bind("statuses", transitions.stream().map(transition -> transition.status().name()).toArray(String[]::new))
+                .bind("messages", transitions.stream().map(StatusTransition::message).toArray(String[]::new))
+                .bind("expected", expected.name())
+                .bind("oldest", createdAts.stream().min(Comparator.naturalOrder()).orElseThrow())
+                .bind("newest", createdAts.stream().max(Comparator.naturalOrder()).orElseThrow())
+                .map((row, metadata) -> template.getConverter().read(Transaction.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Mono<Integer> ensurePartitions(int monthsAhead) {
+        return template.getDatabaseClient()
+                .sql("SELECT ensure_transactions_partitions(:monthsAhead)")
+                .bind("monthsAhead", monthsAhead)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Integer> dropPartitionsBefore(LocalDate cutoff) {
+        return template.getDatabaseClient()
+                .sql("SELECT drop_transactions_partitions_before(:cutoff)")
+                .bind("cutoff", cutoff)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    private Flux<Transaction> selectPage(List<Criteria> conditions, int limit) {
+        Query query = Query.query(conditions.isEmpty() ? Criteria.empty() : Criteria.from(conditions))
+                .sort(NEWEST_FIRST)
+                .limit(limit);
+        return template.select(Transaction.class).matching(query).all();
+    }
+
+    private static List<Criteria> merchantSide(List<Criteria> conditions, TransactionType type, String merchantColumn, Long merchantAccountId) {
+        List<Criteria> side = new ArrayList<>(conditions);
+        side.add(Criteria.where(merchantColumn).is(merchantAccountId));
+        side.add(Criteria.where("type").is(type.name()));
+        return side;
+    }
+
+    private DatabaseClient.GenericExecuteSpec statusUpdate(String sql, TransactionStatus status, String message) {
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql)
+                .bind("status", status.name());
+        return message != null ? spec.bind("message", message) : spec.bindNull("message", String.class);
+    }
+}
@@ -1,10 +1,11 @@
 package com.samatov.payment_service.service;
 
 import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.model.Money;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
+import java.util.Collection;
 
 public interface AccountService {
     Mono<AccountDto> findById(Long id);
@@ -13,7 +14,8 @@ public interface AccountService {
     Mono<AccountDto> createAccount(AccountDto accountDto);
     Mono<AccountDto> updateAccount(Long id, AccountDto accountDto);
     Mono<Void> deleteAccount(Long id);
-    Mono<AccountDto> freezeFunds(Long accountId, BigDecimal amount);
-    Mono<AccountDto> unfreezeFunds(Long accountId, BigDecimal amount);
-    Mono<AccountDto> transferFunds(Long fromAccountId, Long toAccountId, BigDecimal amount);
+    Mono<AccountDto> freezeFunds(Long accountId, Money amount);
+    Mono<AccountDto> unfreezeFunds(Long accountId, Money amount);
+    Mono<AccountDto> transferFunds(Long fromAccountId, Long toAccountId, Money amount);
+    Mono<Void> lockAccounts(Collection<Long> accountIds);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.dto.RecordingDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public interface ProfilingService {
+    Mono<RecordingDto> startRecording(Duration eventThreshold, Duration duration);
+    Flux<RecordingDto> findRecordings();
+    Mono<Path> dumpRecording(Long id);
+    Mono<RecordingDto> stopRecording(Long id);
+    Mono<Void> closeRecording(Long id);
+}
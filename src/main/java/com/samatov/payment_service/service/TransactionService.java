@@ -1,17 +1,35 @@
 package com.samatov.payment_service.service;
 
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
 import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.dto.TransactionPageDto;
 import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.model.TransactionHold;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 public interface TransactionService {
     Mono<TransactionDto> findById(Long id);
+    Mono<TransactionDto> waitForStatus(Long id, Set<TransactionStatus> statuses, Duration timeout);
     Flux<TransactionDto> findAll();
     Flux<TransactionDto> findByStatus(TransactionStatus status);
+    Flux<TransactionDto> findInProgress(SettlementClaim claim);
+    Mono<Long> countInProgress();
+    Flux<TransactionHold> findOpenHolds();
+    Flux<TransactionDto> findExpiredHolds(LocalDateTime now, int limit);
     Flux<TransactionDto> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+    Flux<TransactionDto> streamByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+    Mono<TransactionPageDto> findPage(TransactionFilterDto filter, String cursor, Integer pageSize);
     Mono<TransactionDto> createTransaction(TransactionDto transactionDto);
-    Mono<TransactionDto> updateStatus(Long id, TransactionStatus status, String message);
+    Mono<TransactionDto> updateStatus(Long id, LocalDateTime createdAt, TransactionStatus status, String message);
+    Mono<TransactionDto> transitionStatus(Long id, LocalDateTime createdAt, TransactionStatus from, TransactionStatus to, String message);
+    Flux<TransactionDto> transitionStatuses(List<StatusTransition> transitions, TransactionStatus from);
+    Flux<TransactionDto> streamStatusChanges(Long accountId, Long transactionId);
 }
\ No newline at end of file
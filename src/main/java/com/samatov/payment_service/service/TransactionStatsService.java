@@ -0,0 +1,18 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TransactionStatsService {
+    Mono<Void> recordCreated(TransactionDto transaction);
+    Mono<Void> recordTransitions(List<TransactionDto> transactions, TransactionStatus from);
+    Flux<TransactionDailyStatsDto> findDailyStats(Long merchantAccountId, LocalDate from, LocalDate to, Currency currency);
+    Mono<Long> rebuild(LocalDate from, LocalDate to);
+}
@@ -2,17 +2,24 @@ package com.samatov.payment_service.service.impl;
 
 import com.samatov.payment_service.dto.AccountDto;
 import com.samatov.payment_service.exception.AccountNotFoundException;
+import com.samatov.payment_service.exception.CurrencyMismatchException;
 import com.samatov.payment_service.exception.InsufficientFundsException;
+import com.samatov.payment_service.jfr.AccountOperationEvent;
+import com.samatov.payment_service.jfr.JfrEvents;
 import com.samatov.payment_service.mapper.AccountMapper;
+import com.samatov.payment_service.model.Account;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.repository.AccountRepository;
 import com.samatov.payment_service.service.AccountService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -76,59 +83,66 @@ public class AccountServiceImpl implements AccountService {
                 .doOnSuccess(v -> log.info("Deleted account with id: {}", id));
     }
 
+    // balances only change through conditional UPDATEs, so concurrent settlements on one account
+    // cannot overwrite each other and a balance never goes negative
     @Override
-    public Mono<AccountDto> freezeFunds(Long accountId, BigDecimal amount) {
+    public Mono<AccountDto> freezeFunds(Long accountId, Money amount) {
         log.debug("Freezing funds for account {}: {}", accountId, amount);
-        return accountRepository.findById(accountId)
-                .switchIfEmpty(Mono.error(new AccountNotFoundException("Account not found: " + accountId)))
-                .flatMap(account -> {
-                    if (account.getBalance().compareTo(amount) < 0) {
-                        return Mono.error(new InsufficientFundsException("Insufficient funds for account: " + accountId));
-                    }
-                    account.setBalance(account.getBalance().subtract(amount));
-                    account.setFrozenAmount(account.getFrozenAmount().add(amount));
-                    return accountRepository.save(account);
-                })
+        return accountRepository.freeze(accountId, amount.toBigDecimal(), amount.currency().name())
+                .switchIfEmpty(rejection(accountId, amount, () -> new InsufficientFundsException("Insufficient funds for account: " + accountId)))
                 .map(accountMapper::toDto)
-                .doOnSuccess(account -> log.info("Funds frozen for account {}: {}", accountId, amount));
+                .doOnSuccess(account -> log.info("Funds frozen for account {}: {}", accountId, amount))
+                .transform(freeze -> JfrEvents.record(() -> new AccountOperationEvent("freeze", accountId, null), freeze));
     }
 
     @Override
-    public Mono<AccountDto> unfreezeFunds(Long accountId, BigDecimal amount) {
+    public Mono<AccountDto> unfreezeFunds(Long accountId, Money amount) {
         log.debug("Unfreezing funds for account {}: {}", accountId, amount);
-        return accountRepository.findById(accountId)
-                .switchIfEmpty(Mono.error(new AccountNotFoundException("Account not found: " + accountId)))
-                .flatMap(account -> {
-                    if (account.getFrozenAmount().compareTo(amount) < 0) {
-                        return Mono.error(new InsufficientFundsException("Insufficient frozen funds for account: " + accountId));
-                    }
-                    account.setBalance(account.getBalance().add(amount));
-                    account.setFrozenAmount(account.getFrozenAmount().subtract(amount));
-                    return accountRepository.save(account);
-                })
+        return accountRepository.unfreeze(accountId, amount.toBigDecimal(), amount.currency().name())
+                .switchIfEmpty(rejection(accountId, amount, () -> new InsufficientFundsException("Insufficient frozen funds for account: " + accountId)))
                 .map(accountMapper::toDto)
-                .doOnSuccess(account -> log.info("Funds unfrozen for account {}: {}", accountId, amount));
+                .doOnSuccess(account -> log.info("Funds unfrozen for account {}: {}", accountId, amount))
+                .transform(unfreeze -> JfrEvents.record(() -> new AccountOperationEvent("unfreeze", accountId, null), unfreeze));
     }
 
     @Override
-    public Mono<AccountDto> transferFunds(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+    @Transactional
+    public Mono<AccountDto> transferFunds(Long fromAccountId, Long toAccountId, Money amount) {
         log.debug("Transferring funds from account {} to account {}: {}", fromAccountId, toAccountId, amount);
-        return accountRepository.findById(fromAccountId)
-                .switchIfEmpty(Mono.error(new AccountNotFoundException("From account not found: " + fromAccountId)))
-                .flatMap(fromAccount -> {
-                    if (fromAccount.getBalance().compareTo(amount) < 0) {
-                        return Mono.error(new InsufficientFundsException("Insufficient funds for account: " + fromAccountId));
-                    }
-                    fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-                    return accountRepository.save(fromAccount)
-                            .then(accountRepository.findById(toAccountId))
-                            .switchIfEmpty(Mono.error(new AccountNotFoundException("To account not found: " + toAccountId)))
-                            .flatMap(toAccount -> {
-                                toAccount.setBalance(toAccount.getBalance().add(amount));
-                                return accountRepository.save(toAccount);
-                            });
-                })
+        Mono<Account> debit = accountRepository.debit(fromAccountId, amount.toBigDecimal(), amount.currency().name())
+                .switchIfEmpty(rejection(fromAccountId, amount, () -> new InsufficientFundsException("Insufficient funds for account: " + fromAccountId)));
+        Mono<Account> credit = accountRepository.credit(toAccountId, amount.toBigDecimal(), amount.currency().name())
+                .switchIfEmpty(rejection(toAccountId, amount, () -> new IllegalStateException("Could not credit account: " + toAccountId)));
+        // rows are locked in id order, so two transfers in opposite directions cannot deadlock;
+        // a failed half rolls the other one back
+        Mono<Account> credited = fromAccountId < toAccountId
+                ? debit.then(credit)
+                : credit.flatMap(account -> debit.thenReturn(account));
+        return credited
                 .map(accountMapper::toDto)
-                .doOnSuccess(account -> log.info("Funds transferred from account {} to account {}: {}", fromAccountId, toAccountId, amount));
+                .doOnSuccess(account -> log.info("Funds transferred from account {} to account {}: {}", fromAccountId, toAccountId, amount))
+                .transform(transfer -> JfrEvents.record(() -> new AccountOperationEvent("transfer", fromAccountId, toAccountId), transfer));
+    }
+
+    // a transaction that moves funds between more than two accounts takes their row locks up front
+    // in id order, the same order a single transfer uses, so it cannot deadlock with another one
+    @Override
+    public Mono<Void> lockAccounts(Collection<Long> accountIds) {
+        log.debug("Locking accounts {}", accountIds);
+        return accountRepository.lockInIdOrder(accountIds)
+                .then();
+    }
+
+    // the conditional UPDATE matched no row; read the account once to report why
+    private Mono<Account> rejection(Long accountId, Money amount, Supplier<RuntimeException> otherwise) {
+        return Mono.defer(() -> accountRepository.findById(accountId))
+                .switchIfEmpty(Mono.error(new AccountNotFoundException("Account not found: " + accountId)))
+                .flatMap(account -> {
+                    if (account.getCurrency() != amount.currency()) {
+                        return Mono.error(new CurrencyMismatchException("Account " + accountId + " holds " + account.getCurrency()
+                                + ", cannot move " + amount));
+                    }
+                    return Mono.error(otherwise.get());
+                });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.samatov.payment_service.service.impl;
+
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs side effects of a change once the reactive transaction around it has committed, or
+ * right away when there is none. A rolled-back change leaves nothing behind, and the work
+ * neither runs inside the transaction nor holds its locks.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static Mono<Void> run(Supplier<Mono<Void>> action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronization -> synchronization.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.defer(action);
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, error -> Mono.empty())
+                .hasElement()
+                .flatMap(deferred -> deferred ? Mono.<Void>empty() : Mono.defer(action));
+    }
+}
@@ -3,6 +3,7 @@ package com.samatov.payment_service.service.impl;
 import com.samatov.payment_service.dto.CardDto;
 import com.samatov.payment_service.exception.CardNotFoundException;
 import com.samatov.payment_service.exception.InvalidCardException;
+import com.samatov.payment_service.logging.LogMasking;
 import com.samatov.payment_service.repository.CardRepository;
 import com.samatov.payment_service.mapper.CardMapper;
 import com.samatov.payment_service.service.CardService;
@@ -68,12 +69,12 @@ public class CardServiceImpl implements CardService {
 
     @Override
     public Mono<CardDto> validateCard(String cardNumber, String expDate, String cvv) {
-        log.debug("Validating card: {}", cardNumber);
+        log.debug("Validating card: {}", LogMasking.cardNumber(cardNumber));
         return cardRepository.findByCardNumber(cardNumber)
-                .switchIfEmpty(Mono.error(new CardNotFoundException("Card not found: " + cardNumber)))
+                .switchIfEmpty(Mono.error(new CardNotFoundException("Card not found: " + LogMasking.cardNumber(cardNumber))))
                 .filter(card -> card.getExpDate().equals(expDate) && card.getCvv().equals(cvv))
                 .map(cardMapper::toDto)
                 .switchIfEmpty(Mono.error(new InvalidCardException("Invalid card details")))
-                .doOnSuccess(card -> log.info("Card validated successfully: {}", cardNumber));
+                .doOnSuccess(card -> log.debug("Card validated successfully: {}", LogMasking.cardNumber(cardNumber)));
     }
 }
\ No newline at end of file
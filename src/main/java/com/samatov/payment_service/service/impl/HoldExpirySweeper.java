@@ -0,0 +1,158 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ClusterConfig;
+import com.samatov.payment_service.config.TransactionHoldProperties;
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Money;
+import com.samatov.payment_service.service.AccountService;
+import com.samatov.payment_service.service.TransactionService;
+import com.samatov.payment_service.service.WebhookService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Fails transactions that are still IN_PROGRESS when their hold runs out and gives the
+ * frozen funds back. Deadlines fire from {@link TransactionHoldTracker} on every tick; the
+ * tracker is seeded from the database at startup. A slow indexed sweep, run by one node of
+ * the cluster, catches holds no live node is tracking.
+ * <p>
+ * Shuts down in the same phase as settlement: no further ticks or sweeps start, and the
+ * expiries in flight finish within the same drain timeout.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HoldExpirySweeper implements SmartLifecycle {
+
+    private static final String EXPIRED_MESSAGE = "Hold expired before settlement";
+
+    private final TransactionHoldTracker holdTracker;
+    private final TransactionService transactionService;
+    private final AccountService accountService;
+    private final WebhookService webhookService;
+    private final TransactionHoldProperties holdProperties;
+    private final TransactionProcessingProperties processingProperties;
+    private final PipelineMetrics pipelineMetrics;
+    private final ClusterCoordinator clusterCoordinator;
+    private final TransactionalOperator transactionalOperator;
+
+    private final Sinks.Empty<Void> stopping = Sinks.empty();
+    private final Sinks.Empty<Void> drained = Sinks.empty();
+    private volatile boolean running;
+    private Disposable expiry;
+
+    @Override
+    public void start() {
+        running = true;
+        Mono<Void> ticks = transactionService.findOpenHolds()
+                .doOnNext(holdTracker::track)
+                .count()
+                .doOnNext(loaded -> log.info("Tracking {} open holds, ttl={}", loaded, holdProperties.getTtl()))
+                .onErrorResume(error -> {
+                    log.error("Could not load open holds, relying on the recovery sweep", error);
+                    return Mono.empty();
+                })
+                .thenMany(Flux.interval(holdProperties.getTick()).takeUntilOther(stopping.asMono()))
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(holdTracker.expire(System.currentTimeMillis()))
+                        .flatMap(hold -> expire(hold.transactionId(), hold.createdAt(), "wheel"), holdProperties.getExpiryConcurrency())
+                        .then())
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Hold expiry stopped unexpectedly", error);
+                    return Mono.empty();
+                });
+        Mono<Void> recovery = Flux.interval(holdProperties.getRecoveryInterval(), holdProperties.getRecoveryInterval())
+                .takeUntilOther(stopping.asMono())
+                .onBackpressureDrop()
+                .filter(tick -> clusterCoordinator.isLeader(ClusterConfig.HOLD_RECOVERY))
+                .concatMap(tick -> recover())
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Hold recovery stopped unexpectedly", error);
+                    return Mono.empty();
+                });
+        expiry = Mono.when(ticks, recovery)
+                .doFinally(signal -> drained.tryEmitEmpty())
+                .subscribe();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        Duration timeout = processingProperties.getDrainTimeout();
+        stopping.tryEmitEmpty();
+        drained.asMono()
+                .timeout(timeout, Mono.fromRunnable(() -> {
+                    log.warn("Hold expiry did not drain within {}, cutting off the expiries in flight", timeout);
+                    expiry.dispose();
+                }))
+                .doFinally(signal -> {
+                    running = false;
+                    log.info("Hold expiry stopped");
+                    callback.run();
+                })
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        stop(() -> {
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE;
+    }
+
+    private Mono<Long> recover() {
+        return transactionService.findExpiredHolds(LocalDateTime.now(), holdProperties.getRecoveryBatchSize())
+                .flatMap(transaction -> expire(transaction.getId(), transaction.getCreatedAt(), "recovery"), holdProperties.getExpiryConcurrency())
+                .count()
+                .doOnNext(expired -> {
+                    if (expired > 0) {
+                        log.warn("Recovery sweep expired {} holds no node was tracking", expired);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("Hold recovery sweep failed", error);
+                    return Mono.empty();
+                });
+    }
+
+    // the status compare-and-set decides between expiry and settlement, so funds move exactly once;
+    // the status change and the release commit together
+    private Mono<TransactionDto> expire(Long transactionId, LocalDateTime createdAt, String source) {
+        Mono<TransactionDto> release = transactionService.transitionStatus(transactionId, createdAt, TransactionStatus.IN_PROGRESS, TransactionStatus.FAILED, EXPIRED_MESSAGE)
+                .flatMap(transaction -> accountService.unfreezeFunds(transaction.getAccountFrom(), Money.of(transaction.getAmount(), transaction.getCurrency()))
+                        .thenReturn(transaction));
+        return transactionalOperator.transactional(release)
+                .flatMap(transaction -> webhookService.sendWebhook(transaction, transaction.getStatus().toString())
+                        .thenReturn(transaction))
+                .doOnNext(transaction -> pipelineMetrics.holdExpired(source))
+                .onErrorResume(error -> {
+                    log.error("Could not expire the hold of transaction {}", transactionId, error);
+                    return Mono.empty();
+                });
+    }
+}
@@ -1,14 +1,23 @@
 package com.samatov.payment_service.service.impl;
 
 import com.samatov.payment_service.dto.*;
+import com.samatov.payment_service.enums.Currency;
 import com.samatov.payment_service.enums.TransactionStatus;
 import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.exception.CurrencyMismatchException;
+import com.samatov.payment_service.exception.InvalidRequestException;
+import com.samatov.payment_service.jfr.JfrEvents;
+import com.samatov.payment_service.jfr.PaymentIntakeEvent;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -19,46 +28,111 @@ public class PaymentServiceImpl implements PaymentService {
     private final CustomerService customerService;
     private final MerchantService merchantService;
     private final TransactionService transactionService;
+    private final PipelineMetrics pipelineMetrics;
 
     @Override
     public Mono<TopUpResponseDto> processTopUp(TopUpRequestDto request) {
-        log.info("Processing top-up request: {}", request);
-        return cardService.validateCard(request.getCardData().getCardNumber(), request.getCardData().getExpDate(), request.getCardData().getCvv())
-                .flatMap(card -> customerService.findOrCreateCustomer(request.getCustomer()))
-                .flatMap(customer -> accountService.findByUserId(customer.getUserId())
+        log.atInfo()
+                .addKeyValue("amount", request.getAmount())
+                .addKeyValue("currency", request.getCurrency())
+                .addKeyValue("paymentMethod", request.getPaymentMethod())
+                .log("Processing top-up request");
+        return validateAmount(request.getAmount(), request.getCurrency())
+                .flatMap(amount -> topUp(request, amount))
+                .transform(intake -> JfrEvents.record(() -> new PaymentIntakeEvent("topup"), intake, PaymentServiceImpl::describe))
+                .map(this::createTopUpResponse)
+                .doOnSuccess(response -> log.atInfo()
+                        .addKeyValue("transactionId", response.getTransactionId())
+                        .addKeyValue("status", response.getStatus())
+                        .log("Top-up request processed"))
+                .doOnError(error -> log.error("Error processing top-up request", error));
+    }
+
+    @Override
+    public Mono<PayoutResponseDto> processWithdrawal(PayoutRequestDto request) {
+        log.atInfo()
+                .addKeyValue("merchantId", request.getMerchantId())
+                .addKeyValue("amount", request.getAmount())
+                .addKeyValue("currency", request.getCurrency())
+                .log("Processing withdrawal request");
+        return validateAmount(request.getAmount(), request.getCurrency())
+                .flatMap(amount -> withdraw(request, amount))
+                .transform(intake -> JfrEvents.record(() -> new PaymentIntakeEvent("payout"), intake, PaymentServiceImpl::describe))
+                .map(this::createPayoutResponse)
+                .doOnSuccess(response -> log.atInfo()
+                        .addKeyValue("transactionId", response.getTransactionId())
+                        .addKeyValue("status", response.getStatus())
+                        .log("Withdrawal request processed"))
+                .doOnError(error -> log.error("Error processing withdrawal request", error));
+    }
+
+    private Mono<TransactionDto> topUp(TopUpRequestDto request, Money amount) {
+        return pipelineMetrics.intake("card_validation",
+                        cardService.validateCard(request.getCardData().getCardNumber(), request.getCardData().getExpDate(), request.getCardData().getCvv()))
+                .flatMap(card -> pipelineMetrics.intake("customer_resolve", customerService.findOrCreateCustomer(request.getCustomer())))
+                .flatMap(customer -> pipelineMetrics.intake("account_lookup", accountService.findByUserId(customer.getUserId()))
                         .flatMap(customerAccount ->
-                                merchantService.findDefaultMerchant()
-                                        .flatMap(merchant -> accountService.findByUserId(merchant.getUserId())
+                                pipelineMetrics.intake("merchant_lookup", merchantService.findDefaultMerchant())
+                                        .flatMap(merchant -> pipelineMetrics.intake("account_lookup", accountService.findByUserId(merchant.getUserId()))
+                                                .flatMap(merchantAccount -> requireCurrency(merchantAccount, amount))
                                                 .flatMap(merchantAccount ->
-                                                        accountService.freezeFunds(customerAccount.getId(), request.getAmount())
-                                                                .then(createTopUpTransaction(customerAccount.getId(), merchantAccount.getId(), request, customer))
+                                                        pipelineMetrics.intake("hold", accountService.freezeFunds(customerAccount.getId(), amount))
+                                                                .then(pipelineMetrics.intake("insert",
+                                                                        createTopUpTransaction(customerAccount.getId(), merchantAccount.getId(), request, customer)))
                                                 )
                                         )
                         )
-                )
-                .map(this::createTopUpResponse)
-                .doOnSuccess(response -> log.info("Top-up request processed successfully: {}", response))
-                .doOnError(error -> log.error("Error processing top-up request", error));
+                );
     }
 
-    @Override
-    public Mono<PayoutResponseDto> processWithdrawal(PayoutRequestDto request) {
-        log.info("Processing withdrawal request: {}", request);
-        return merchantService.findByUserId(request.getMerchantId())
-                .flatMap(merchant -> accountService.findByUserId(merchant.getUserId())
+    private Mono<TransactionDto> withdraw(PayoutRequestDto request, Money amount) {
+        return pipelineMetrics.intake("merchant_lookup", merchantService.findByUserId(request.getMerchantId()))
+                .flatMap(merchant -> pipelineMetrics.intake("account_lookup", accountService.findByUserId(merchant.getUserId()))
                         .flatMap(merchantAccount ->
-                                customerService.findOrCreateCustomer(request.getCustomer())
-                                        .flatMap(customer -> accountService.findByUserId(customer.getUserId())
+                                pipelineMetrics.intake("customer_resolve", customerService.findOrCreateCustomer(request.getCustomer()))
+                                        .flatMap(customer -> pipelineMetrics.intake("account_lookup", accountService.findByUserId(customer.getUserId()))
+                                                .flatMap(customerAccount -> requireCurrency(customerAccount, amount))
                                                 .flatMap(customerAccount ->
-                                                        accountService.freezeFunds(merchantAccount.getId(), request.getAmount())
-                                                                .then(createWithdrawalTransaction(merchantAccount.getId(), customerAccount.getId(), request, customer))
+                                                        pipelineMetrics.intake("hold", accountService.freezeFunds(merchantAccount.getId(), amount))
+                                                                .then(pipelineMetrics.intake("insert",
+                                                                        createWithdrawalTransaction(merchantAccount.getId(), customerAccount.getId(), request, customer)))
                                                 )
                                         )
                         )
-                )
-                .map(this::createPayoutResponse)
-                .doOnSuccess(response -> log.info("Withdrawal request processed successfully: {}", response))
-                .doOnError(error -> log.error("Error processing withdrawal request", error));
+                );
+    }
+
+    // the frozen account is checked by freezeFunds; this catches a counterparty that could never be credited
+    private static Mono<AccountDto> requireCurrency(AccountDto account, Money amount) {
+        if (account.getCurrency() != amount.currency()) {
+            return Mono.error(new CurrencyMismatchException("Account " + account.getId() + " holds " + account.getCurrency()
+                    + ", cannot accept " + amount));
+        }
+        return Mono.just(account);
+    }
+
+    private Mono<Money> validateAmount(BigDecimal amount, Currency currency) {
+        return Mono.fromCallable(() -> {
+            if (amount == null || currency == null) {
+                throw new InvalidRequestException("Amount and currency are required");
+            }
+            Money money;
+            try {
+                money = Money.of(amount, currency);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException(e.getMessage());
+            }
+            if (!money.isPositive()) {
+                throw new InvalidRequestException("Amount must be positive");
+            }
+            return money;
+        });
+    }
+
+    private static void describe(PaymentIntakeEvent event, TransactionDto transaction) {
+        event.transactionId = JfrEvents.id(transaction.getId());
+        event.accountFrom = JfrEvents.id(transaction.getAccountFrom());
+        event.accountTo = JfrEvents.id(transaction.getAccountTo());
     }
 
     private Mono<TransactionDto> createTopUpTransaction(Long accountFromId, Long accountToId, TopUpRequestDto request, CustomerDto customer) {
@@ -0,0 +1,190 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.ProfilingProperties;
+import com.samatov.payment_service.dto.RecordingDto;
+import com.samatov.payment_service.exception.RecordingNotFoundException;
+import com.samatov.payment_service.jfr.JfrEvents;
+import com.samatov.payment_service.service.ProfilingService;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Starts, dumps and stops in-process JFR recordings. Only recordings started through this
+ * service are visible to it, so recordings owned by the JVM or by other components cannot be
+ * stopped or closed from here. Recording I/O is blocking, so all of it runs on the blocking
+ * scheduler.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfilingServiceImpl implements ProfilingService {
+
+    private final ProfilingProperties profilingProperties;
+    private final Scheduler blockingScheduler;
+
+    private final Map<Long, Duration> eventThresholds = new ConcurrentHashMap<>();
+    private final Map<Long, List<Path>> dumpFiles = new ConcurrentHashMap<>();
+    private final Set<Long> ownRecordings = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Mono<RecordingDto> startRecording(Duration eventThreshold, Duration duration) {
+        return Mono.fromCallable(() -> {
+                    JfrEvents.register();
+                    Recording recording = new Recording(Configuration.getConfiguration(profilingProperties.getSettings()));
+                    recording.setName("payment-service-" + System.currentTimeMillis());
+                    recording.setToDisk(true);
+                    recording.setMaxAge(profilingProperties.getMaxAge());
+                    recording.setMaxSize(profilingProperties.getMaxSizeBytes());
+                    if (duration != null) {
+                        recording.setDuration(duration);
+                    }
+                    if (eventThreshold != null) {
+                        JfrEvents.EVENT_TYPES.forEach(type -> recording.enable(type).withThreshold(eventThreshold));
+                        eventThresholds.put(recording.getId(), eventThreshold);
+                    }
+                    recording.start();
+                    ownRecordings.add(recording.getId());
+                    log.info("Started JFR recording {} ({}), event threshold {}",
+                            recording.getId(), recording.getName(), eventThreshold);
+                    return toDto(recording);
+                })
+                .subscribeOn(blockingScheduler);
+    }
+
+    @Override
+    public Flux<RecordingDto> findRecordings() {
+        return Flux.defer(() -> Flux.fromIterable(FlightRecorder.getFlightRecorder().getRecordings()))
+                .filter(recording -> ownRecordings.contains(recording.getId()))
+                .map(this::toDto)
+                .subscribeOn(blockingScheduler);
+    }
+
+    @Override
+    public Mono<Path> dumpRecording(Long id) {
+        return findRecording(id)
+                .map(recording -> {
+                    try {
+                        Files.createDirectories(profilingProperties.getDumpDirectory());
+                        Path file = profilingProperties.getDumpDirectory()
+                                .resolve(recording.getName() + "-" + System.currentTimeMillis() + ".jfr");
+                        recording.dump(file);
+                        dumpFiles.computeIfAbsent(id, recordingId -> new CopyOnWriteArrayList<>()).add(file);
+                        log.info("Dumped JFR recording {} to {}", id, file);
+                        pruneDumps(file);
+                        return file;
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not dump recording " + id, e);
+                    }
+                });
+    }
+
+    @Override
+    public Mono<RecordingDto> stopRecording(Long id) {
+        return findRecording(id)
+                .map(recording -> {
+                    recording.stop();
+                    log.info("Stopped JFR recording {}", id);
+                    return toDto(recording);
+                });
+    }
+
+    @Override
+    public Mono<Void> closeRecording(Long id) {
+        return findRecording(id)
+                .doOnNext(recording -> {
+                    recording.close();
+                    ownRecordings.remove(id);
+                    eventThresholds.remove(id);
+                    List<Path> files = dumpFiles.remove(id);
+                    if (files != null) {
+                        files.forEach(this::deleteDump);
+                    }
+                    log.info("Closed JFR recording {}", id);
+                })
+                .then();
+    }
+
+    private Mono<Recording> findRecording(Long id) {
+        return Mono.fromCallable(() -> FlightRecorder.getFlightRecorder().getRecordings().stream()
+                        .filter(recording -> recording.getId() == id && ownRecordings.contains(id))
+                        .findFirst()
+                        .orElseThrow(() -> new RecordingNotFoundException("Recording not found: " + id)))
+                .subscribeOn(blockingScheduler);
+    }
+
+    // removes dumps past the retention age, then the oldest ones beyond the file cap; the dump
+    // just written is always kept
+    private void pruneDumps(Path justWritten) {
+        Instant cutoff = Instant.now().minus(profilingProperties.getDumpRetention());
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(profilingProperties.getDumpDirectory())) {
+            dumps = files.filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .filter(file -> !file.equals(justWritten))
+                    .sorted(Comparator.comparing(ProfilingServiceImpl::lastModified).reversed())
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Could not list JFR dumps in {}", profilingProperties.getDumpDirectory(), e);
+            return;
+        }
+        int kept = 1;
+        for (Path dump : dumps) {
+            if (kept < profilingProperties.getMaxDumpFiles() && lastModified(dump).isAfter(cutoff)) {
+                kept++;
+            } else {
+                deleteDump(dump);
+            }
+        }
+    }
+
+    private void deleteDump(Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                log.info("Deleted JFR dump {}", file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete JFR dump {}", file, e);
+        }
+        dumpFiles.values().forEach(files -> files.remove(file));
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    private RecordingDto toDto(Recording recording) {
+        RecordingDto dto = new RecordingDto();
+        dto.setId(recording.getId());
+        dto.setName(recording.getName());
+        dto.setState(recording.getState().name());
+        dto.setStartTime(recording.getStartTime());
+        Duration threshold = eventThresholds.get(recording.getId());
+        dto.setEventThreshold(threshold != null ? threshold.toMillis() + " ms" : "default");
+        List<Path> files = dumpFiles.get(recording.getId());
+        dto.setDumpFile(files == null ? null : files.stream().reduce((first, second) -> second).map(Path::toString).orElse(null));
+        return dto;
+    }
+}
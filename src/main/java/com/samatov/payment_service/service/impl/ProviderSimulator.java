@@ -0,0 +1,105 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.ProviderSimulatorProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Decides how the simulated provider answers a transaction: success or a decline code, and
+ * how long the answer takes. Test cards force their outcome; everything else follows the
+ * first configured rule matching the merchant account, currency and amount.
+ * <p>
+ * Without a seed every decision draws from {@link ThreadLocalRandom}. With a seed each
+ * transaction gets its own {@link SplittableRandom} keyed by the seed and its id, so a run
+ * replays identically no matter how transactions are batched or which thread settles them.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProviderSimulator {
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final Outcome SUCCEEDED = new Outcome(TransactionStatus.SUCCESS, "Transaction processed successfully");
+
+    private final ProviderSimulatorProperties simulatorProperties;
+
+    public Decision decide(TransactionDto transaction) {
+        RandomGenerator random = random(transaction);
+        ProviderSimulatorProperties.Rule rule = ruleFor(transaction);
+        Duration delay = sampleDelay(rule.getDelay(), random);
+        String forced = transaction.getCardNumber() == null ? null : simulatorProperties.getTestCards().get(transaction.getCardNumber());
+        if (forced != null) {
+            return new Decision(SUCCESS.equals(forced) ? SUCCEEDED : declined(forced), delay);
+        }
+        if (random.nextDouble() < rule.getSuccessRate()) {
+            return new Decision(SUCCEEDED, delay);
+        }
+        return new Decision(declined(declineCode(rule, random)), delay);
+    }
+
+    private RandomGenerator random(TransactionDto transaction) {
+        Long seed = simulatorProperties.getSeed();
+        return seed == null ? ThreadLocalRandom.current() : new SplittableRandom(seed ^ transaction.getId());
+    }
+
+    private ProviderSimulatorProperties.Rule ruleFor(TransactionDto transaction) {
+        Long merchantAccount = transaction.getType() == TransactionType.TOP_UP ? transaction.getAccountTo() : transaction.getAccountFrom();
+        for (ProviderSimulatorProperties.Rule rule : simulatorProperties.getRules()) {
+            if (matches(rule, merchantAccount, transaction)) {
+                return rule;
+            }
+        }
+        return simulatorProperties.getDefaults();
+    }
+
+    private static boolean matches(ProviderSimulatorProperties.Rule rule, Long merchantAccount, TransactionDto transaction) {
+        BigDecimal amount = transaction.getAmount();
+        return (rule.getMerchantAccounts().isEmpty() || rule.getMerchantAccounts().contains(merchantAccount))
+                && (rule.getCurrencies().isEmpty() || rule.getCurrencies().contains(transaction.getCurrency()))
+                && (rule.getMinAmount() == null || amount.compareTo(rule.getMinAmount()) >= 0)
+                && (rule.getMaxAmount() == null || amount.compareTo(rule.getMaxAmount()) < 0);
+    }
+
+    private static Duration sampleDelay(ProviderSimulatorProperties.Delay delay, RandomGenerator random) {
+        long meanNanos = delay.getMean().toNanos();
+        long nanos = switch (delay.getDistribution()) {
+            case FIXED -> meanNanos;
+            case NORMAL -> meanNanos + (long) (delay.getStddev().toNanos() * random.nextGaussian());
+            case LONG_TAIL -> (long) (meanNanos * Math.exp(delay.getSigma() * random.nextGaussian()));
+        };
+        return Duration.ofNanos(Math.max(0, Math.min(nanos, delay.getMax().toNanos())));
+    }
+
+    private static String declineCode(ProviderSimulatorProperties.Rule rule, RandomGenerator random) {
+        double total = rule.getDeclineCodes().values().stream().mapToDouble(Double::doubleValue).sum();
+        double roll = random.nextDouble() * total;
+        String code = "generic_decline";
+        for (Map.Entry<String, Double> entry : rule.getDeclineCodes().entrySet()) {
+            code = entry.getKey();
+            roll -= entry.getValue();
+            if (roll < 0) {
+                break;
+            }
+        }
+        return code;
+    }
+
+    private static Outcome declined(String code) {
+        return new Outcome(TransactionStatus.FAILED, "Transaction declined: " + code);
+    }
+
+    public record Outcome(TransactionStatus status, String message) {
+    }
+
+    public record Decision(Outcome outcome, Duration delay) {
+    }
+}
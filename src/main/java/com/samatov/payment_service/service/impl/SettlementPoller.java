@@ -0,0 +1,143 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+/**
+ * Drives settlement as a self-scheduling loop instead of a fixed rate. The next claim is
+ * issued as soon as the previous batch has settled if that batch came back full, after
+ * the minimum interval if it was partly filled, and after an exponentially growing pause
+ * (up to the configured ceiling) while batches come back empty or fail.
+ * <p>
+ * On shutdown the loop stops claiming and stops applying provider answers. Transactions
+ * already being settled finish, funds and webhooks included, before the connection pool,
+ * the webhook writer and the cluster locks go away; the rest stay IN_PROGRESS for the next
+ * owner. A batch still running at the drain deadline is cut off, which rolls back any
+ * status change whose funds had not moved yet.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SettlementPoller implements SmartLifecycle {
+
+    private final TransactionProcessingService processingService;
+    private final TransactionService transactionService;
+    private final TransactionProcessingProperties processingProperties;
+    private final PipelineMetrics pipelineMetrics;
+
+    private volatile Duration interval = Duration.ZERO;
+    private volatile long lastBacklogSampleNanos;
+    private volatile boolean running;
+    private volatile boolean draining;
+    private final Sinks.Empty<Void> stopping = Sinks.empty();
+    private final Sinks.Empty<Void> drained = Sinks.empty();
+    private Disposable loop;
+
+    @Override
+    public void start() {
+        running = true;
+        loop = Mono.defer(this::poll)
+                .flatMap(claimed -> Mono.firstWithSignal(Mono.delay(nextInterval(claimed)).then(), stopping.asMono()))
+                .repeat(() -> !draining)
+                .doFinally(signal -> drained.tryEmitEmpty())
+                .subscribe(
+                        null,
+                        error -> log.error("Settlement poller stopped unexpectedly", error));
+        log.info("Settlement poller started: batchSize={}, polling={}",
+                processingProperties.getBatchSize(), processingProperties.getPolling());
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        Duration timeout = processingProperties.getDrainTimeout();
+        log.info("Draining settlement: no new claims or transitions, waiting up to {} for the batch in flight", timeout);
+        draining = true;
+        processingService.stopTransitions();
+        stopping.tryEmitEmpty();
+        drained.asMono()
+                .timeout(timeout, Mono.fromRunnable(() -> {
+                    log.warn("Settlement did not drain within {}, cutting off the batch in flight", timeout);
+                    loop.dispose();
+                }))
+                .doFinally(signal -> {
+                    running = false;
+                    log.info("Settlement drained");
+                    callback.run();
+                })
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        stop(() -> {
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // same phase as the web server's graceful shutdown, so settlement drains while open requests finish
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    private Mono<Integer> poll() {
+        return sampleBacklog()
+                .then(processingService.processTransactions())
+                .onErrorResume(error -> {
+                    log.error("Error processing transactions", error);
+                    return Mono.just(0);
+                });
+    }
+
+    private Duration nextInterval(int claimed) {
+        TransactionProcessingProperties.Polling polling = processingProperties.getPolling();
+        Duration next;
+        if (claimed >= processingProperties.getBatchSize()) {
+            next = Duration.ZERO;
+        } else if (claimed > 0) {
+            next = polling.getMinInterval();
+        } else {
+            Duration backedOff = Duration.ofNanos((long) (interval.toNanos() * polling.getBackoffMultiplier()));
+            next = backedOff.compareTo(polling.getMinInterval()) < 0 ? polling.getMinInterval() : backedOff;
+            next = next.compareTo(polling.getMaxInterval()) > 0 ? polling.getMaxInterval() : next;
+        }
+        interval = next;
+        pipelineMetrics.recordPollInterval(next);
+        return next;
+    }
+
+    private Mono<Void> sampleBacklog() {
+        long now = System.nanoTime();
+        if (lastBacklogSampleNanos != 0
+                && now - lastBacklogSampleNanos < processingProperties.getPolling().getBacklogSampleInterval().toNanos()) {
+            return Mono.empty();
+        }
+        lastBacklogSampleNanos = now;
+        return transactionService.countInProgress()
+                .doOnNext(pipelineMetrics::recordSettlementBacklog)
+                .onErrorResume(error -> {
+                    log.warn("Could not measure the settlement backlog", error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
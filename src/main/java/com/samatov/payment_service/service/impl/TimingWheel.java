@@ -0,0 +1,119 @@
+package com.samatov.payment_service.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Adding a timer and advancing the clock are O(1) per timer no
+ * matter how many are pending, so it can hold every open hold without periodic scans.
+ * <p>
+ * The lowest wheel has {@code wheelSize} slots of one tick each; a slot fires once the clock
+ * has moved past its end, so a timer never fires before its deadline and at most one tick
+ * after it. Deadlines beyond the lowest wheel go to an overflow wheel whose tick is the
+ * whole span of the wheel below; when the clock enters one of its slots the timers in it
+ * are cascaded down. Overflow wheels are created on demand. Not thread-safe.
+ */
+public final class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long intervalMillis;
+    private final List<List<Timer<T>>> slots;
+    private long currentTime;
+    private TimingWheel<T> overflow;
+    private int size;
+
+    public TimingWheel(Duration tick, int wheelSize, long startMillis) {
+        this(tick.toMillis(), wheelSize, startMillis);
+    }
+
+    private TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel must have more than one slot");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.intervalMillis = tickMillis * wheelSize;
+        this.currentTime = startMillis - startMillis % tickMillis;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedules {@code item} for {@code deadlineMillis}. Returns {@code false} without
+     * scheduling it if the deadline is already behind the wheel's clock.
+     */
+    public boolean add(T item, long deadlineMillis) {
+        boolean added = place(new Timer<>(item, deadlineMillis));
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis} and hands every timer whose deadline has passed
+     * to {@code expired}.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        while (currentTime + tickMillis <= nowMillis) {
+            List<Timer<T>> due = drain(currentTime);
+            currentTime += tickMillis;
+            if (overflow != null) {
+                overflow.enter(currentTime, this);
+            }
+            size -= due.size();
+            due.forEach(timer -> expired.accept(timer.item()));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean place(Timer<T> timer) {
+        if (timer.deadline() < currentTime) {
+            return false;
+        }
+        if (timer.deadline() < currentTime + intervalMillis) {
+            slots.get(slotIndex(timer.deadline())).add(timer);
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new TimingWheel<>(intervalMillis, wheelSize, currentTime);
+        }
+        return overflow.place(timer);
+    }
+
+    // overflow wheels cascade a slot as soon as the clock reaches its start
+    private void enter(long time, TimingWheel<T> lower) {
+        while (currentTime + tickMillis <= time) {
+            currentTime += tickMillis;
+            if (overflow != null) {
+                overflow.enter(currentTime, this);
+            }
+            drain(currentTime).forEach(lower::place);
+        }
+    }
+
+    private List<Timer<T>> drain(long time) {
+        int index = slotIndex(time);
+        List<Timer<T>> slot = slots.get(index);
+        if (slot.isEmpty()) {
+            return List.of();
+        }
+        slots.set(index, new ArrayList<>());
+        return slot;
+    }
+
+    private int slotIndex(long time) {
+        return (int) ((time / tickMillis) % wheelSize);
+    }
+
+    private record Timer<T>(T item, long deadline) {
+    }
+}
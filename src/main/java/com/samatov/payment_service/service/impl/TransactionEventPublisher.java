@@ -0,0 +1,68 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.TransactionEventsProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.exception.TooManySubscribersException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * In-memory fan-out of transaction status changes. Every subscriber gets its own
+ * bounded buffer, so a slow consumer only ever loses its own events and never holds
+ * back the publisher or other subscribers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionEventPublisher {
+
+    private final TransactionEventsProperties eventsProperties;
+
+    private final Sinks.Many<TransactionDto> sink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public void publish(TransactionDto transaction) {
+        Sinks.EmitResult result;
+        while ((result = sink.tryEmitNext(transaction)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.warn("Failed to publish status change of transaction {}: {}", transaction.getId(), result);
+        }
+    }
+
+    public Flux<TransactionDto> subscribe(Predicate<TransactionDto> filter) {
+        return Flux.defer(() -> {
+            if (subscribers.incrementAndGet() > eventsProperties.getMaxSubscribers()) {
+                subscribers.decrementAndGet();
+                return Flux.error(new TooManySubscribersException("Too many transaction status subscribers"));
+            }
+            return withOverflowPolicy(sink.asFlux().filter(filter))
+                    .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    private Flux<TransactionDto> withOverflowPolicy(Flux<TransactionDto> events) {
+        int bufferSize = eventsProperties.getSubscriberBufferSize();
+        return switch (eventsProperties.getOverflowPolicy()) {
+            case DROP_OLDEST -> events.onBackpressureBuffer(bufferSize, this::logDropped, BufferOverflowStrategy.DROP_OLDEST);
+            case DROP_LATEST -> events.onBackpressureBuffer(bufferSize, this::logDropped, BufferOverflowStrategy.DROP_LATEST);
+            case DISCONNECT -> events.onBackpressureBuffer(bufferSize, this::logDropped, BufferOverflowStrategy.ERROR);
+        };
+    }
+
+    private void logDropped(TransactionDto transaction) {
+        log.debug("Dropped status change of transaction {} for a slow subscriber", transaction.getId());
+    }
+}
@@ -0,0 +1,93 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.TransactionHoldProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.model.TransactionHold;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the hold deadline of every IN_PROGRESS transaction this node knows about in a
+ * {@link TimingWheel}. Settling a transaction only drops it from the hold map; its wheel
+ * entry is discarded when its slot fires.
+ */
+@Slf4j
+@Component
+public class TransactionHoldTracker {
+
+    private final TransactionHoldProperties holdProperties;
+    private final Map<Long, TransactionHold> holds = new ConcurrentHashMap<>();
+    private final TimingWheel<Long> wheel;
+    private final List<Long> overdue = new ArrayList<>();
+
+    public TransactionHoldTracker(TransactionHoldProperties holdProperties) {
+        this.holdProperties = holdProperties;
+        this.wheel = new TimingWheel<>(holdProperties.getTick(), holdProperties.getWheelSize(), System.currentTimeMillis());
+    }
+
+    public void assignDeadline(TransactionDto transaction) {
+        if (transaction.getStatus() == TransactionStatus.IN_PROGRESS && transaction.getHoldExpiresAt() == null) {
+            transaction.setHoldExpiresAt(LocalDateTime.now().plus(holdProperties.getTtl()));
+        }
+    }
+
+    public void onStatusChange(TransactionDto transaction) {
+        if (transaction.getStatus() == TransactionStatus.IN_PROGRESS) {
+            track(new TransactionHold(transaction.getId(), transaction.getCreatedAt(), transaction.getHoldExpiresAt()));
+        } else {
+            holds.remove(transaction.getId());
+        }
+    }
+
+    public void track(TransactionHold hold) {
+        if (hold.transactionId() == null || hold.expiresAt() == null) {
+            return;
+        }
+        TransactionHold previous = holds.put(hold.transactionId(), hold);
+        if (previous != null && previous.expiresAt().equals(hold.expiresAt())) {
+            return;
+        }
+        synchronized (wheel) {
+            if (!wheel.add(hold.transactionId(), deadline(hold))) {
+                overdue.add(hold.transactionId());
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel to now and returns the holds that have run out. Each is returned once
+     * and is no longer tracked afterwards.
+     */
+    public List<TransactionHold> expire(long nowMillis) {
+        List<Long> due = new ArrayList<>();
+        synchronized (wheel) {
+            due.addAll(overdue);
+            overdue.clear();
+            wheel.advance(nowMillis, due::add);
+        }
+        List<TransactionHold> expired = new ArrayList<>();
+        for (Long transactionId : due) {
+            TransactionHold hold = holds.get(transactionId);
+            if (hold != null && deadline(hold) <= nowMillis && holds.remove(transactionId, hold)) {
+                expired.add(hold);
+            }
+        }
+        return expired;
+    }
+
+    public int trackedCount() {
+        return holds.size();
+    }
+
+    private static long deadline(TransactionHold hold) {
+        return hold.expiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,60 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ClusterConfig;
+import com.samatov.payment_service.config.TransactionPartitioningProperties;
+import com.samatov.payment_service.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionPartitionMaintenance {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionPartitioningProperties partitioningProperties;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        // every node makes sure the partitions it is about to write into exist
+        runMaintenance();
+    }
+
+    @Scheduled(cron = "${transaction.partitioning.maintenance-cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        if (!clusterCoordinator.isLeader(ClusterConfig.PARTITION_MAINTENANCE)) {
+            log.debug("Partition maintenance is owned by another node, skipping");
+            return;
+        }
+        runMaintenance();
+    }
+
+    private void runMaintenance() {
+        log.info("Starting transaction partition maintenance");
+        transactionRepository.ensurePartitions(partitioningProperties.getMonthsAhead())
+                .doOnNext(count -> log.info("Ensured {} monthly transaction partitions", count))
+                .then(dropExpiredPartitions())
+                .subscribe(
+                        dropped -> log.info("Dropped {} expired transaction partitions", dropped),
+                        error -> log.error("Error maintaining transaction partitions", error),
+                        () -> log.info("Finished transaction partition maintenance"));
+    }
+
+    private Mono<Integer> dropExpiredPartitions() {
+        int retentionMonths = partitioningProperties.getRetentionMonths();
+        if (retentionMonths <= 0) {
+            return Mono.empty();
+        }
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths);
+        return transactionRepository.dropPartitionsBefore(cutoff);
+    }
+}
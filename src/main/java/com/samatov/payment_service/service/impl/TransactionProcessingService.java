@@ -1,18 +1,36 @@
 package com.samatov.payment_service.service.impl;
 
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ClusterConfig;
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
 import com.samatov.payment_service.dto.TransactionDto;
 import com.samatov.payment_service.enums.TransactionStatus;
 import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.exception.AccountNotFoundException;
+import com.samatov.payment_service.exception.CurrencyMismatchException;
+import com.samatov.payment_service.exception.InsufficientFundsException;
+import com.samatov.payment_service.jfr.JfrEvents;
+import com.samatov.payment_service.jfr.SettlementEvent;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.service.AccountService;
 import com.samatov.payment_service.service.TransactionService;
 import com.samatov.payment_service.service.WebhookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.util.Random;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Slf4j
 @Service
@@ -22,53 +40,272 @@ public class TransactionProcessingService {
     private final TransactionService transactionService;
     private final AccountService accountService;
     private final WebhookService webhookService;
-    private final Random random = new Random();
-
-    @Scheduled(fixedRate = 6000)
-    public void processTransactions() {
-        log.info("Starting transaction processing");
-        transactionService.findByStatus(TransactionStatus.IN_PROGRESS)
-                .flatMap(this::processTransaction)
-                .flatMap(transaction -> webhookService.sendWebhook(transaction.getId(), transaction.getStatus().toString()))
-                .subscribe(
-                        success -> log.info("Processed and sent webhook for transaction"),
-                        error -> log.error("Error processing transaction", error),
-                        () -> log.info("Finished processing transactions")
-                );
-    }
-
-    private Mono<TransactionDto> processTransaction(TransactionDto transaction) {
-        boolean isSuccess = random.nextDouble() < 0.8; // 80% success rate
-        TransactionStatus newStatus = isSuccess ? TransactionStatus.SUCCESS : TransactionStatus.FAILED;
-        String message = isSuccess ? "Transaction processed successfully" : "Transaction failed due to random chance";
-
-        return transactionService.updateStatus(transaction.getId(), newStatus, message)
-                .flatMap(updatedTransaction -> {
-                    if (updatedTransaction.getType() == TransactionType.TOP_UP) {
-                        return processTopUp(updatedTransaction);
-                    } else {
-                        return processWithdrawal(updatedTransaction);
-                    }
-                });
+    private final TransactionProcessingProperties processingProperties;
+    private final PipelineMetrics pipelineMetrics;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ProviderSimulator providerSimulator;
+    private final TransactionalOperator transactionalOperator;
+
+    private final Sinks.Empty<Void> transitionsStopped = Sinks.empty();
+    private volatile boolean draining;
+
+    /**
+     * Claims one batch from the partitions this node owns and settles it, webhooks included.
+     * The batch is split into priority lanes by transaction type; each lane claims its
+     * weighted share round-robin across merchant accounts and settles with its own
+     * concurrency limit, concurrently with the other lanes. Completes with the number of
+     * transactions claimed once the whole batch is done.
+     */
+    public Mono<Integer> processTransactions() {
+        return Mono.defer(() -> {
+            if (draining) {
+                return Mono.just(0);
+            }
+            Set<Integer> partitions = clusterCoordinator.ownedPartitions(ClusterConfig.SETTLEMENT_SWEEP);
+            if (partitions.isEmpty()) {
+                log.debug("No settlement partitions owned by this node, skipping");
+                return Mono.just(0);
+            }
+            log.debug("Starting transaction processing for {} of {} partitions", partitions.size(), processingProperties.getPartitions());
+            return claimBatch(partitions)
+                    .flatMap(batch -> Flux.fromIterable(batch)
+                            .flatMap(this::settleLane)
+                            .then(Mono.just(batch.stream().mapToInt(laneBatch -> laneBatch.transactions().size()).sum())))
+                    .doOnNext(claimed -> {
+                        if (claimed > 0) {
+                            log.info("Processed {} transactions", claimed);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Stops applying provider answers. Transactions already being settled finish; the batch in
+     * flight then completes without waiting for the answers still outstanding, and later
+     * batches claim nothing.
+     */
+    public void stopTransitions() {
+        draining = true;
+        transitionsStopped.tryEmitEmpty();
+    }
+
+    private Mono<List<LaneBatch>> claimBatch(Set<Integer> partitions) {
+        // a node owning every partition skips the partition filter altogether
+        Set<Integer> claimed = partitions.size() == processingProperties.getPartitions() ? null : partitions;
+        List<TransactionProcessingProperties.Lane> lanes = processingProperties.getLanes();
+        int totalWeight = lanes.stream().mapToInt(TransactionProcessingProperties.Lane::getWeight).sum();
+        return Flux.fromIterable(lanes)
+                .concatMap(lane -> claimLane(lane, claimed, share(processingProperties.getBatchSize(), lane.getWeight(), totalWeight)))
+                .collectList()
+                .flatMap(batch -> redistribute(batch, claimed))
+                .doOnNext(this::recordLaneWaits)
+                .transform(claim -> JfrEvents.record(() -> new SettlementEvent("claim"), claim,
+                        (event, batch) -> event.batchSize = batch.stream().mapToInt(laneBatch -> laneBatch.transactions().size()).sum()));
+    }
+
+    // capacity a lane left unused goes to the lanes that filled their share, so a single busy lane still gets full batches
+    private Mono<List<LaneBatch>> redistribute(List<LaneBatch> batch, Set<Integer> partitions) {
+        int spare = processingProperties.getBatchSize() - batch.stream().mapToInt(laneBatch -> laneBatch.transactions().size()).sum();
+        List<LaneBatch> saturated = batch.stream().filter(LaneBatch::isFull).toList();
+        if (spare <= 0 || saturated.isEmpty()) {
+            return Mono.just(batch);
+        }
+        int saturatedWeight = saturated.stream().mapToInt(laneBatch -> laneBatch.lane().getWeight()).sum();
+        return Flux.fromIterable(batch)
+                .concatMap(laneBatch -> laneBatch.isFull()
+                        ? claimLane(laneBatch.lane(), partitions, laneBatch.limit() + share(spare, laneBatch.lane().getWeight(), saturatedWeight))
+                        : Mono.just(laneBatch))
+                .collectList();
+    }
+
+    private Mono<LaneBatch> claimLane(TransactionProcessingProperties.Lane lane, Set<Integer> partitions, int limit) {
+        SettlementClaim claim = new SettlementClaim(lane.getTypes(), partitions, processingProperties.getPartitions(),
+                processingProperties.getMerchantQuantum(), processingProperties.getAmountTiers(), limit);
+        return pipelineMetrics.settlement("claim", transactionService.findInProgress(claim))
+                .collectList()
+                .map(transactions -> new LaneBatch(lane, limit, transactions));
+    }
+
+    private void recordLaneWaits(List<LaneBatch> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        batch.forEach(laneBatch -> laneBatch.transactions().stream()
+                .filter(transaction -> transaction.getCreatedAt() != null)
+                .forEach(transaction -> pipelineMetrics.recordLaneWait(laneBatch.lane().getName(),
+                        Duration.between(transaction.getCreatedAt(), now))));
+    }
+
+    private Flux<TransactionDto> settleLane(LaneBatch laneBatch) {
+        TransactionProcessingProperties.Lane lane = laneBatch.lane();
+        return settleBatch(laneBatch.transactions(), lane)
+                .flatMap(transaction -> webhookService.sendWebhook(transaction, transaction.getStatus().toString())
+                        .thenReturn(transaction), lane.getConcurrency());
+    }
+
+    private Flux<TransactionDto> settleBatch(List<TransactionDto> batch, TransactionProcessingProperties.Lane lane) {
+        if (batch.isEmpty()) {
+            return Flux.empty();
+        }
+        // the provider answers every transaction after its own delay. Once transitions stop the reply stream
+        // completes rather than being cancelled: transactions already settling finish, funds and webhook
+        // included, and the ones still waiting for an answer stay IN_PROGRESS under their hold
+        return Flux.fromIterable(batch)
+                .flatMap(transaction -> reply(transaction, providerSimulator.decide(transaction)))
+                .takeUntilOther(transitionsStopped.asMono())
+                // payers settle in parallel. The answers of one payer that arrive within the settle window, or
+                // while its previous group is still settling, go together in one database transaction; nothing
+                // orders payers across lanes. Groups are not capped below the batch: a group over the cap would
+                // only start once an open one completed, and those end with the last reply
+                .groupBy(reply -> reply.transaction().getAccountFrom(), batch.size())
+                .flatMap(account -> account
+                        .bufferTimeout(batch.size(), processingProperties.getSettleWindow(), true)
+                        .concatMap(replies -> settleGroup(replies, lane), 1), batch.size())
+                .doOnNext(transaction -> pipelineMetrics.settled(transaction.getStatus().name()));
+    }
+
+    // the status changes and the funds moves of a group commit together: one bulk status CAS, then the
+    // funds of every transaction it won. A funds move that fails or is cut off rolls the whole group back
+    // and leaves it IN_PROGRESS under its holds. A group that collects a single transaction costs the
+    // same three round trips (CAS, debit, credit) as settling it alone; each further transaction of the
+    // payer adds only its own funds moves, plus one account lock query once a third account is involved
+    private Flux<TransactionDto> settleGroup(List<Reply> replies, TransactionProcessingProperties.Lane lane) {
+        return Flux.defer(() -> {
+            if (draining) {
+                return Flux.empty();
+            }
+            List<StatusTransition> transitions = replies.stream()
+                    .map(reply -> new StatusTransition(reply.transaction().getId(), reply.transaction().getCreatedAt(),
+                            reply.outcome().status(), reply.outcome().message()))
+                    .toList();
+            Mono<List<TransactionDto>> settlement = JfrEvents.record(
+                            () -> SettlementEvent.transition(replies.get(0).transaction().getAccountFrom()),
+                            pipelineMetrics.settlement("transition", transactionService.transitionStatuses(transitions, TransactionStatus.IN_PROGRESS)
+                                    .collectList()),
+                            (event, transitioned) -> event.batchSize = transitioned.size())
+                    .flatMap(transitioned -> pipelineMetrics.inLane(lane.getName(),
+                                    pipelineMetrics.settlement("funds", moveFunds(transitioned)))
+                            .thenReturn(transitioned));
+            return transactionalOperator.transactional(settlement)
+                    .flatMapIterable(settled -> settled)
+                    .onErrorResume(error -> settleApart(replies, lane, error));
+        });
+    }
+
+    // one payer's failed transfer must not hold back the rest of its group, so the group is settled
+    // again one transaction at a time and only the transaction at fault is left over
+    private Flux<TransactionDto> settleApart(List<Reply> replies, TransactionProcessingProperties.Lane lane, Throwable error) {
+        if (replies.size() == 1) {
+            TransactionDto claimed = replies.get(0).transaction();
+            if (isPermanent(error)) {
+                return decline(claimed, error).flux();
+            }
+            log.error("Could not settle transaction {}, leaving it IN_PROGRESS", claimed.getId(), error);
+            return Flux.empty();
+        }
+        log.warn("Could not settle {} transactions of account {} together, settling them one by one",
+                replies.size(), replies.get(0).transaction().getAccountFrom(), error);
+        return Flux.fromIterable(replies)
+                .concatMap(reply -> settleGroup(List.of(reply), lane));
+    }
+
+    // a transfer the accounts refuse would be claimed again at the head of every batch until its hold
+    // ran out, so it is declined in a transaction of its own and the payer's frozen funds are released
+    private Mono<TransactionDto> decline(TransactionDto claimed, Throwable rejection) {
+        return Mono.defer(() -> {
+            if (draining) {
+                return Mono.empty();
+            }
+            Mono<TransactionDto> declined = transactionService.transitionStatus(claimed.getId(), claimed.getCreatedAt(),
+                            TransactionStatus.IN_PROGRESS, TransactionStatus.FAILED, "Settlement rejected: " + rejection.getMessage())
+                    .flatMap(failed -> processTransaction(failed)
+                            .onErrorResume(TransactionProcessingService::isPermanent, error -> {
+                                log.error("Declined transaction {} but could not release its frozen funds on account {}, "
+                                        + "they need to be released by hand", failed.getId(), failed.getAccountFrom(), error);
+                                return Mono.just(failed);
+                            }));
+            return transactionalOperator.transactional(declined)
+                    .doOnNext(failed -> log.warn("Declined transaction {}: {}", failed.getId(), rejection.getMessage()))
+                    .onErrorResume(error -> {
+                        log.error("Could not decline transaction {}, leaving it IN_PROGRESS", claimed.getId(), error);
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private static boolean isPermanent(Throwable error) {
+        return error instanceof InsufficientFundsException
+                || error instanceof CurrencyMismatchException
+                || error instanceof AccountNotFoundException;
+    }
+
+    private Mono<Void> moveFunds(List<TransactionDto> transitioned) {
+        if (transitioned.isEmpty()) {
+            return Mono.empty();
+        }
+        Set<Long> accounts = new TreeSet<>();
+        transitioned.forEach(transaction -> {
+            accounts.add(transaction.getAccountFrom());
+            if (transaction.getStatus() == TransactionStatus.SUCCESS) {
+                accounts.add(transaction.getAccountTo());
+            }
+        });
+        // two accounts are locked in id order by the transfer itself
+        Mono<Void> locked = accounts.size() > 2 ? accountService.lockAccounts(accounts) : Mono.empty();
+        return locked.thenMany(Flux.fromIterable(transitioned)
+                        .concatMap(transaction -> JfrEvents.record(
+                                () -> SettlementEvent.funds(transaction.getId(), transaction.getStatus().name(),
+                                        transaction.getAccountFrom(), transaction.getAccountTo()),
+                                processTransaction(transaction))))
+                .then();
+    }
+
+    // rounded up so the lanes together never claim less than the batch size
+    private static int share(int total, int weight, int totalWeight) {
+        return Math.max(1, (total * weight + totalWeight - 1) / totalWeight);
+    }
+
+    private static Mono<Reply> reply(TransactionDto transaction, ProviderSimulator.Decision decision) {
+        Reply reply = new Reply(transaction, decision.outcome());
+        return decision.delay().isZero() ? Mono.just(reply) : Mono.delay(decision.delay()).thenReturn(reply);
+    }
+
+    private Mono<TransactionDto> processTransaction(TransactionDto updatedTransaction) {
+        if (updatedTransaction.getType() == TransactionType.TOP_UP) {
+            return processTopUp(updatedTransaction);
+        } else {
+            return processWithdrawal(updatedTransaction);
+        }
     }
 
     private Mono<TransactionDto> processTopUp(TransactionDto transaction) {
         if (transaction.getStatus() == TransactionStatus.SUCCESS) {
-            return accountService.transferFunds(transaction.getAccountFrom(), transaction.getAccountTo(), transaction.getAmount())
+            return accountService.transferFunds(transaction.getAccountFrom(), transaction.getAccountTo(), amountOf(transaction))
                     .thenReturn(transaction);
         } else {
-            return accountService.unfreezeFunds(transaction.getAccountFrom(), transaction.getAmount())
+            return accountService.unfreezeFunds(transaction.getAccountFrom(), amountOf(transaction))
                     .thenReturn(transaction);
         }
     }
 
     private Mono<TransactionDto> processWithdrawal(TransactionDto transaction) {
         if (transaction.getStatus() == TransactionStatus.SUCCESS) {
-            return accountService.transferFunds(transaction.getAccountFrom(), transaction.getAccountTo(), transaction.getAmount())
+            return accountService.transferFunds(transaction.getAccountFrom(), transaction.getAccountTo(), amountOf(transaction))
                     .thenReturn(transaction);
         } else {
-            return accountService.unfreezeFunds(transaction.getAccountFrom(), transaction.getAmount())
+            return accountService.unfreezeFunds(transaction.getAccountFrom(), amountOf(transaction))
                     .thenReturn(transaction);
         }
     }
+
+    private static Money amountOf(TransactionDto transaction) {
+        return Money.of(transaction.getAmount(), transaction.getCurrency());
+    }
+
+    private record Reply(TransactionDto transaction, ProviderSimulator.Outcome outcome) {
+    }
+
+    private record LaneBatch(TransactionProcessingProperties.Lane lane, int limit, List<TransactionDto> transactions) {
+        boolean isFull() {
+            return transactions.size() >= limit;
+        }
+    }
 }
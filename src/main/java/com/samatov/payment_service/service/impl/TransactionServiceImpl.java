@@ -1,18 +1,30 @@
 package com.samatov.payment_service.service.impl;
 
+import com.samatov.payment_service.config.TransactionListingProperties;
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionCursor;
 import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.dto.TransactionPageDto;
 import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.exception.InvalidRequestException;
 import com.samatov.payment_service.exception.TransactionNotFoundException;
 import com.samatov.payment_service.mapper.TransactionMapper;
+import com.samatov.payment_service.model.TransactionHold;
 import com.samatov.payment_service.repository.TransactionRepository;
 import com.samatov.payment_service.service.TransactionService;
+import com.samatov.payment_service.service.TransactionStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -20,6 +32,12 @@ import java.time.LocalDateTime;
 public class TransactionServiceImpl implements TransactionService {
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
+    private final TransactionListingProperties listingProperties;
+    private final TransactionStatsService transactionStatsService;
+    private final TransactionEventPublisher transactionEventPublisher;
+    private final TransactionStatusWaiters transactionStatusWaiters;
+    private final TransactionHoldTracker transactionHoldTracker;
+    private final TransactionStatusRelay transactionStatusRelay;
 
     @Override
     public Mono<TransactionDto> findById(Long id) {
@@ -30,6 +48,22 @@ public class TransactionServiceImpl implements TransactionService {
                 .switchIfEmpty(Mono.error(new TransactionNotFoundException("Transaction not found with id: " + id)));
     }
 
+    @Override
+    public Mono<TransactionDto> waitForStatus(Long id, Set<TransactionStatus> statuses, Duration timeout) {
+        if (timeout.isNegative()) {
+            return Mono.error(new InvalidRequestException("Timeout must not be negative: " + timeout));
+        }
+        log.debug("Waiting up to {} for transaction {} to reach {}", timeout, id, statuses);
+        // register before reading so a change landing between the read and the wait is not missed
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> transactionStatusWaiters.register(id, statuses)),
+                waiter -> findById(id)
+                        .flatMap(current -> statuses.contains(current.getStatus())
+                                ? Mono.just(current)
+                                : waiter.asMono().timeout(timeout, Mono.defer(() -> reread(current)))),
+                waiter -> Mono.fromRunnable(() -> transactionStatusWaiters.deregister(waiter)));
+    }
+
     @Override
     public Flux<TransactionDto> findAll() {
         log.debug("Finding all transactions");
@@ -46,6 +80,31 @@ public class TransactionServiceImpl implements TransactionService {
                 .doOnComplete(() -> log.debug("Found transactions with status: {}", status));
     }
 
+    @Override
+    public Flux<TransactionDto> findInProgress(SettlementClaim claim) {
+        log.debug("Claiming up to {} in-progress {} transactions", claim.limit(), claim.types());
+        return transactionRepository.findInProgress(claim)
+                .map(transactionMapper::toDto)
+                .doOnComplete(() -> log.debug("Found in-progress transactions"));
+    }
+
+    @Override
+    public Mono<Long> countInProgress() {
+        return transactionRepository.countInProgress();
+    }
+
+    @Override
+    public Flux<TransactionHold> findOpenHolds() {
+        return transactionRepository.findOpenHolds();
+    }
+
+    @Override
+    public Flux<TransactionDto> findExpiredHolds(LocalDateTime now, int limit) {
+        log.debug("Finding up to {} transactions with holds expired by {}", limit, now);
+        return transactionRepository.findExpiredHolds(now, limit)
+                .map(transactionMapper::toDto);
+    }
+
     @Override
     public Flux<TransactionDto> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end) {
         log.debug("Finding transactions between {} and {}", start, end);
@@ -54,25 +113,149 @@ public class TransactionServiceImpl implements TransactionService {
                 .doOnComplete(() -> log.debug("Found transactions between {} and {}", start, end));
     }
 
+    @Override
+    public Flux<TransactionDto> streamByCreatedAtBetween(LocalDateTime start, LocalDateTime end) {
+        int fetchSize = listingProperties.getExportFetchSize();
+        log.debug("Streaming transactions between {} and {} with fetch size {}", start, end, fetchSize);
+        return transactionRepository.streamByCreatedAtBetween(start, end, fetchSize)
+                .limitRate(fetchSize)
+                .map(transactionMapper::toDto)
+                .doOnComplete(() -> log.debug("Streamed transactions between {} and {}", start, end));
+    }
+
+    @Override
+    public Mono<TransactionPageDto> findPage(TransactionFilterDto filter, String cursor, Integer pageSize) {
+        int limit = resolvePageSize(pageSize);
+        log.debug("Finding transaction page: filter={}, cursor={}, limit={}", filter, cursor, limit);
+        return Mono.defer(() -> {
+                    TransactionCursor after = cursor != null ? TransactionCursor.decode(cursor) : null;
+                    return transactionRepository.findPage(filter, after, limit + 1)
+                            .map(transactionMapper::toDto)
+                            .collectList();
+                })
+                .map(items -> toPage(items, limit));
+    }
+
     @Override
     public Mono<TransactionDto> createTransaction(TransactionDto transactionDto) {
-        log.debug("Creating new transaction: {}", transactionDto);
+        log.debug("Creating new {} transaction from account {} to account {}",
+                transactionDto.getType(), transactionDto.getAccountFrom(), transactionDto.getAccountTo());
+        transactionHoldTracker.assignDeadline(transactionDto);
         return transactionRepository.save(transactionMapper.toEntity(transactionDto))
                 .map(transactionMapper::toDto)
-                .doOnSuccess(transaction -> log.info("Created new transaction: {}", transaction));
+                .flatMap(transaction -> transactionStatsService.recordCreated(transaction).thenReturn(transaction))
+                .flatMap(this::publishStatusChange)
+                .doOnSuccess(transaction -> log.atInfo()
+                        .addKeyValue("transactionId", transaction.getId())
+                        .addKeyValue("type", transaction.getType())
+                        .addKeyValue("status", transaction.getStatus())
+                        .log("Created new transaction"));
     }
 
     @Override
-    public Mono<TransactionDto> updateStatus(Long id, TransactionStatus status, String message) {
+    public Mono<TransactionDto> updateStatus(Long id, LocalDateTime createdAt, TransactionStatus status, String message) {
         log.debug("Updating status for transaction {}: {}", id, status);
-        return transactionRepository.findById(id)
+        return transactionRepository.updateStatus(id, createdAt, status, message)
                 .switchIfEmpty(Mono.error(new TransactionNotFoundException("Transaction not found with id: " + id)))
-                .flatMap(transaction -> {
-                    transaction.setStatus(status);
-                    transaction.setMessage(message);
-                    return transactionRepository.save(transaction);
+                .flatMap(change -> {
+                    TransactionDto transaction = transactionMapper.toDto(change.transaction());
+                    return transactionStatsService.recordTransitions(List.of(transaction), change.previousStatus())
+                            .thenReturn(transaction);
                 })
-                .map(transactionMapper::toDto)
+                .flatMap(this::publishStatusChange)
                 .doOnSuccess(transaction -> log.info("Updated status for transaction {}: {}", id, status));
     }
+
+    @Override
+    public Mono<TransactionDto> transitionStatus(Long id, LocalDateTime createdAt, TransactionStatus from, TransactionStatus to, String message) {
+        log.debug("Transitioning transaction {} from {} to {}", id, from, to);
+        return transactionRepository.compareAndSetStatus(id, createdAt, from, to, message)
+                .map(transactionMapper::toDto)
+                .flatMap(transaction -> transactionStatsService.recordTransitions(List.of(transaction), from).thenReturn(transaction))
+                .flatMap(this::publishStatusChange)
+                .doOnNext(transaction -> log.info("Transitioned transaction {} from {} to {}", id, from, to))
+                // losing the race to the expiry sweep or another node's settlement is routine
+                .switchIfEmpty(Mono.fromRunnable(() -> log.debug("Lost transition of transaction {} from {} to {}", id, from, to)));
+    }
+
+    @Override
+    public Flux<TransactionDto> transitionStatuses(List<StatusTransition> transitions, TransactionStatus from) {
+        log.debug("Transitioning {} transactions from {}", transitions.size(), from);
+        return transactionRepository.compareAndSetStatuses(transitions, from)
+                .map(transactionMapper::toDto)
+                .collectList()
+                .filter(transitioned -> !transitioned.isEmpty())
+                .flatMap(transitioned -> transactionStatsService.recordTransitions(transitioned, from)
+                        .then(publishStatusChanges(transitioned)))
+                .doOnNext(transitioned -> {
+                    log.info("Transitioned {} transactions from {}", transitioned.size(), from);
+                    if (transitioned.size() < transitions.size()) {
+                        log.debug("Lost transition of {} of {} transactions from {}",
+                                transitions.size() - transitioned.size(), transitions.size(), from);
+                    }
+                })
+                .flatMapIterable(transitioned -> transitioned);
+    }
+
+    @Override
+    public Flux<TransactionDto> streamStatusChanges(Long accountId, Long transactionId) {
+        if (transactionId != null) {
+            log.debug("Streaming status changes of transaction {}", transactionId);
+            // subscribe to live changes and read the current state at the same time so nothing falls in between
+            return Flux.merge(
+                            findById(transactionId),
+                            transactionEventPublisher.subscribe(transaction -> transactionId.equals(transaction.getId())))
+                    .takeUntil(transaction -> transaction.getStatus() != TransactionStatus.IN_PROGRESS);
+        }
+        if (accountId != null) {
+            log.debug("Streaming status changes of account {}", accountId);
+            return transactionEventPublisher.subscribe(transaction ->
+                    accountId.equals(transaction.getAccountFrom()) || accountId.equals(transaction.getAccountTo()));
+        }
+        return Flux.error(new InvalidRequestException("Either account_id or transaction_id is required"));
+    }
+
+    // a change made inside a surrounding transaction is announced only once that transaction commits,
+    // so a rolled-back settlement never wakes waiters or drops a hold
+    private Mono<TransactionDto> publishStatusChange(TransactionDto transaction) {
+        return publishStatusChanges(List.of(transaction))
+                .thenReturn(transaction);
+    }
+
+    private Mono<List<TransactionDto>> publishStatusChanges(List<TransactionDto> transactions) {
+        return AfterCommit.run(() -> Mono.fromRunnable(() -> transactions.forEach(this::announce))
+                        .then(transactionStatusRelay.broadcast(transactions)))
+                .thenReturn(transactions);
+    }
+
+    // the change may have been committed on another node while its notification was lost
+    private Mono<TransactionDto> reread(TransactionDto current) {
+        return transactionRepository.findByIdAndCreatedAt(current.getId(), current.getCreatedAt())
+                .map(transactionMapper::toDto)
+                .defaultIfEmpty(current);
+    }
+
+    private void announce(TransactionDto transaction) {
+        transactionEventPublisher.publish(transaction);
+        transactionStatusWaiters.complete(transaction);
+        transactionHoldTracker.onStatusChange(transaction);
+    }
+
+    private int resolvePageSize(Integer pageSize) {
+        if (pageSize == null) {
+            return listingProperties.getDefaultPageSize();
+        }
+        return Math.max(1, Math.min(pageSize, listingProperties.getMaxPageSize()));
+    }
+
+    private TransactionPageDto toPage(List<TransactionDto> items, int limit) {
+        TransactionPageDto page = new TransactionPageDto();
+        if (items.size() > limit) {
+            page.setItems(items.subList(0, limit));
+            page.setNextCursor(TransactionCursor.of(items.get(limit - 1)).encode());
+        } else {
+            page.setItems(items);
+        }
+        return page;
+    }
 }
\ No newline at end of file
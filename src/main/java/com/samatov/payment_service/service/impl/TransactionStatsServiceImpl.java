@@ -0,0 +1,123 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.mapper.TransactionDailyStatsMapper;
+import com.samatov.payment_service.model.TransactionDailyStats;
+import com.samatov.payment_service.repository.TransactionDailyStatsRepository;
+import com.samatov.payment_service.service.TransactionStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionStatsServiceImpl implements TransactionStatsService {
+
+    private static final Comparator<StatsKey> KEY_ORDER = Comparator.comparing(StatsKey::merchantAccountId)
+            .thenComparing(StatsKey::day)
+            .thenComparing(StatsKey::currency)
+            .thenComparing(StatsKey::type)
+            .thenComparing(StatsKey::status);
+
+    private final TransactionDailyStatsRepository statsRepository;
+    private final TransactionDailyStatsMapper statsMapper;
+
+    @Override
+    public Mono<Void> recordCreated(TransactionDto transaction) {
+        Map<StatsKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        add(deltas, transaction, transaction.getStatus(), 1);
+        return apply(deltas);
+    }
+
+    @Override
+    public Mono<Void> recordTransitions(List<TransactionDto> transactions, TransactionStatus from) {
+        Map<StatsKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (TransactionDto transaction : transactions) {
+            add(deltas, transaction, from, -1);
+            add(deltas, transaction, transaction.getStatus(), 1);
+        }
+        return apply(deltas);
+    }
+
+    @Override
+    public Flux<TransactionDailyStatsDto> findDailyStats(Long merchantAccountId, LocalDate from, LocalDate to, Currency currency) {
+        log.debug("Finding daily stats for merchant account {} between {} and {}", merchantAccountId, from, to);
+        return statsRepository.findDaily(merchantAccountId, from, to, currency)
+                .map(statsMapper::toDto);
+    }
+
+    @Override
+    @Transactional
+    public Mono<Long> rebuild(LocalDate from, LocalDate to) {
+        log.info("Rebuilding daily transaction stats between {} and {}", from, to);
+        return statsRepository.deleteBetween(from, to)
+                .then(statsRepository.rebuildBetween(from, to))
+                .doOnSuccess(rows -> log.info("Rebuilt {} daily stats rows between {} and {}", rows, from, to));
+    }
+
+    private Mono<Void> apply(Map<StatsKey, Delta> deltas) {
+        List<TransactionDailyStats> rows = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue().count() != 0)
+                .map(entry -> toRow(entry.getKey(), entry.getValue()))
+                .toList();
+        if (rows.isEmpty()) {
+            return Mono.empty();
+        }
+        // rollups are rebuildable, so they are applied after the payment commits: a failed upsert cannot
+        // abort the payment's transaction, and the hot rollup rows are not held locked across it
+        return AfterCommit.run(() -> statsRepository.applyDeltas(rows)
+                .onErrorResume(error -> {
+                    log.error("Failed to update daily transaction stats", error);
+                    return Mono.empty();
+                })
+                .then());
+    }
+
+    private void add(Map<StatsKey, Delta> deltas, TransactionDto transaction, TransactionStatus status, int sign) {
+        StatsKey key = new StatsKey(merchantAccountId(transaction), transaction.getCreatedAt().toLocalDate(),
+                transaction.getCurrency(), transaction.getType(), status);
+        BigDecimal amount = sign > 0 ? transaction.getAmount() : transaction.getAmount().negate();
+        deltas.merge(key, new Delta(sign, amount), Delta::plus);
+    }
+
+    private Long merchantAccountId(TransactionDto transaction) {
+        return transaction.getType() == TransactionType.TOP_UP ? transaction.getAccountTo() : transaction.getAccountFrom();
+    }
+
+    private TransactionDailyStats toRow(StatsKey key, Delta delta) {
+        TransactionDailyStats row = new TransactionDailyStats();
+        row.setMerchantAccountId(key.merchantAccountId());
+        row.setDay(key.day());
+        row.setCurrency(key.currency());
+        row.setType(key.type());
+        row.setStatus(key.status());
+        row.setCount(delta.count());
+        row.setAmount(delta.amount());
+        return row;
+    }
+
+    private record StatsKey(Long merchantAccountId, LocalDate day, Currency currency, TransactionType type,
+                            TransactionStatus status) {
+    }
+
+    private record Delta(long count, BigDecimal amount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount.add(other.amount));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.samatov.payment_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samatov.payment_service.config.ClusterProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Wrapped;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Carries committed status changes to the other replicas over Postgres LISTEN/NOTIFY. Status
+ * streams, long-poll waiters and hold deadlines live in memory on each node, while a change is
+ * committed by whichever node owns the settlement partition or the expiry sweep; without the
+ * relay a client connected to one node would never hear about a settlement done on another.
+ * <p>
+ * Delivery is best effort: a notice sent while a listener reconnects is lost. Long polls
+ * re-read the row when they time out, and a hold that is never dropped only costs a lost CAS.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionStatusRelay {
+
+    static final String CHANNEL = "transaction_status";
+    private static final String NOTIFY_SQL = "SELECT pg_notify(:channel, payload) FROM unnest(CAST(:payloads AS text[])) AS payload";
+
+    private final DatabaseClient databaseClient;
+    private final ConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+    private final ClusterProperties clusterProperties;
+    private final TransactionEventPublisher transactionEventPublisher;
+    private final TransactionStatusWaiters transactionStatusWaiters;
+    private final TransactionHoldTracker transactionHoldTracker;
+
+    private Disposable listener;
+
+    @PostConstruct
+    void start() {
+        if (!clusterProperties.isEnabled()) {
+            return;
+        }
+        listener = listen()
+                .onErrorResume(error -> {
+                    log.warn("Transaction status listener failed, reconnecting", error);
+                    return Mono.empty();
+                })
+                .then(Mono.delay(clusterProperties.getHeartbeatInterval()))
+                .repeat()
+                .subscribe();
+    }
+
+    // one round trip per committed change set, however many transactions it settled
+    public Mono<Void> broadcast(List<TransactionDto> transactions) {
+        if (!clusterProperties.isEnabled() || transactions.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> encode(transactions))
+                .flatMap(payloads -> databaseClient.sql(NOTIFY_SQL)
+                        .bind("channel", CHANNEL)
+                        .bind("payloads", payloads)
+                        .then())
+                .onErrorResume(error -> {
+                    log.warn("Could not relay status changes of {} transactions to other nodes", transactions.size(), error);
+                    return Mono.empty();
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (listener != null) {
+            listener.dispose();
+        }
+    }
+
+    private Mono<Void> listen() {
+        // LISTEN belongs to the session, so it needs a physical connection of its own rather than a pooled one
+        return Mono.usingWhen(
+                Mono.from(unpooled().create()),
+                connection -> {
+                    if (!(connection instanceof PostgresqlConnection postgres)) {
+                        return Mono.error(new IllegalStateException(
+                                "Status relay needs a Postgres connection, got " + connection.getClass().getName()));
+                    }
+                    Mono<Void> subscribed = Flux.from(postgres.createStatement("LISTEN " + CHANNEL).execute())
+                            .flatMap(Result::getRowsUpdated)
+                            .then(Mono.fromRunnable(() -> log.info("Node {} is listening for status changes of other nodes",
+                                    clusterProperties.getNodeId())));
+                    // take notifications before issuing LISTEN so none arriving right after it slip through
+                    return postgres.getNotifications()
+                            .mergeWith(subscribed.then(Mono.<Notification>empty()))
+                            .doOnNext(this::receive)
+                            .then();
+                },
+                Connection::close);
+    }
+
+    private void receive(Notification notification) {
+        try {
+            JsonNode notice = objectMapper.readTree(notification.getParameter());
+            if (clusterProperties.getNodeId().equals(notice.path("node").asText())) {
+                return;
+            }
+            TransactionDto transaction = objectMapper.treeToValue(notice.path("transaction"), TransactionDto.class);
+            transactionEventPublisher.publish(transaction);
+            transactionStatusWaiters.complete(transaction);
+            // only the node that created a hold times it out; the others just forget it once it settles
+            if (transaction.getStatus() != TransactionStatus.IN_PROGRESS) {
+                transactionHoldTracker.onStatusChange(transaction);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed status notification: {}", e.getOriginalMessage());
+        }
+    }
+
+    private String[] encode(List<TransactionDto> transactions) throws JsonProcessingException {
+        String[] payloads = new String[transactions.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = encode(transactions.get(i));
+        }
+        return payloads;
+    }
+
+    private String encode(TransactionDto transaction) throws JsonProcessingException {
+        ObjectNode body = objectMapper.valueToTree(transaction);
+        // notification payloads are visible to every session on the database
+        body.remove("cardNumber");
+        ObjectNode notice = objectMapper.createObjectNode();
+        notice.put("node", clusterProperties.getNodeId());
+        notice.set("transaction", body);
+        return objectMapper.writeValueAsString(notice);
+    }
+
+    private ConnectionFactory unpooled() {
+        if (connectionFactory instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof ConnectionFactory target) {
+            return target;
+        }
+        return connectionFactory;
+    }
+}
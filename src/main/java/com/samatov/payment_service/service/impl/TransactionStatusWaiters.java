@@ -0,0 +1,79 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.TransactionEventsProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.exception.TooManySubscribersException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of long-poll requests suspended until a transaction reaches one of the
+ * awaited statuses. Status updates complete matching waiters directly, so a waiting
+ * request never touches the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionStatusWaiters {
+
+    private final TransactionEventsProperties eventsProperties;
+
+    private final Map<Long, Set<Waiter>> waitersByTransaction = new ConcurrentHashMap<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    public Waiter register(Long transactionId, Set<TransactionStatus> statuses) {
+        if (waiters.incrementAndGet() > eventsProperties.getLongPoll().getMaxWaiters()) {
+            waiters.decrementAndGet();
+            throw new TooManySubscribersException("Too many transactions are being waited on");
+        }
+        Waiter waiter = new Waiter(transactionId, statuses, Sinks.one());
+        // adding inside compute keeps a concurrent deregister from dropping the set this waiter lands in
+        waitersByTransaction.compute(transactionId, (id, registered) -> {
+            Set<Waiter> waitersOfTransaction = registered != null ? registered : ConcurrentHashMap.newKeySet();
+            waitersOfTransaction.add(waiter);
+            return waitersOfTransaction;
+        });
+        return waiter;
+    }
+
+    public void deregister(Waiter waiter) {
+        waitersByTransaction.computeIfPresent(waiter.transactionId(), (id, registered) -> {
+            if (registered.remove(waiter)) {
+                waiters.decrementAndGet();
+            }
+            return registered.isEmpty() ? null : registered;
+        });
+    }
+
+    public void complete(TransactionDto transaction) {
+        Set<Waiter> registered = waitersByTransaction.get(transaction.getId());
+        if (registered == null) {
+            return;
+        }
+        for (Waiter waiter : registered) {
+            if (waiter.statuses().contains(transaction.getStatus())) {
+                waiter.result().tryEmitValue(transaction);
+            }
+        }
+    }
+
+    public int waiterCount() {
+        return waiters.get();
+    }
+
+    public record Waiter(Long transactionId, Set<TransactionStatus> statuses, Sinks.One<TransactionDto> result) {
+
+        public Mono<TransactionDto> asMono() {
+            return result.asMono();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.samatov.payment_service.service.impl;
+
+import com.samatov.payment_service.config.WebhookProperties;
+import com.samatov.payment_service.exception.WebhookBacklogFullException;
+import com.samatov.payment_service.model.Webhook;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Write-behind buffer for webhook delivery records. Records are accumulated and
+ * persisted as one multi-row INSERT when either the size or the time trigger fires,
+ * with at most one flush in flight. When the database lags the queue fills up and
+ * callers are held back until there is room again. A batch the database rejects is
+ * written again one record at a time, so only the offending record fails.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WebhookBatchWriter {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO webhooks (transaction_id, request_body, response_body, status, attempt_number) VALUES ";
+
+    private final DatabaseClient databaseClient;
+    private final WebhookProperties webhookProperties;
+
+    private final Sinks.Empty<Void> terminated = Sinks.empty();
+    private Queue<PendingWrite> queue;
+    private Sinks.Many<PendingWrite> sink;
+
+    @PostConstruct
+    void start() {
+        WebhookProperties.Batch batch = webhookProperties.getBatch();
+        queue = Queues.<PendingWrite>get(batch.getQueueCapacity()).get();
+        sink = Sinks.many().unicast().onBackpressureBuffer(queue);
+        sink.asFlux()
+                .bufferTimeout(batch.getMaxSize(), batch.getMaxWait(), true)
+                .concatMap(this::flush, 1)
+                .doFinally(signal -> terminated.tryEmitEmpty())
+                .subscribe(
+                        null,
+                        error -> log.error("Webhook batch writer stopped unexpectedly", error));
+        log.info("Webhook batch writer started: maxSize={}, maxWait={}, queueCapacity={}",
+                batch.getMaxSize(), batch.getMaxWait(), batch.getQueueCapacity());
+    }
+
+    public Mono<Void> enqueue(Webhook webhook) {
+        return Mono.fromCallable(() -> offer(webhook))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(5))
+                        .maxBackoff(Duration.ofMillis(200))
+                        .filter(WebhookBacklogFullException.class::isInstance))
+                .timeout(webhookProperties.getBatch().getEnqueueTimeout(),
+                        Mono.error(() -> new WebhookBacklogFullException(
+                                "Webhook write queue is full, dropping record for transaction: " + webhook.getTransactionId())))
+                .flatMap(write -> write.done().asMono());
+    }
+
+    public int pendingCount() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        log.info("Flushing buffered webhook records before shutdown");
+        Sinks.EmitResult result;
+        while ((result = sink.tryEmitComplete()) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        if (result.isFailure()) {
+            return;
+        }
+        try {
+            terminated.asMono().block(webhookProperties.getBatch().getShutdownTimeout());
+        } catch (IllegalStateException e) {
+            log.warn("Timed out flushing buffered webhook records on shutdown");
+        }
+    }
+
+    private PendingWrite offer(Webhook webhook) {
+        PendingWrite write = new PendingWrite(webhook, Sinks.one());
+        Sinks.EmitResult result;
+        while ((result = sink.tryEmitNext(write)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+            throw new WebhookBacklogFullException("Webhook write queue is full");
+        }
+        if (result.isFailure()) {
+            throw new IllegalStateException("Webhook batch writer is not accepting records: " + result);
+        }
+        return write;
+    }
+
+    // one bad record must not cost the rest of the batch, so a failed batch is retried row by row
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        return insert(batch)
+                .doOnSuccess(rows -> {
+                    log.debug("Flushed {} webhook records", rows);
+                    batch.forEach(write -> write.done().tryEmitEmpty());
+                })
+                .then()
+                .onErrorResume(error -> {
+                    if (batch.size() == 1) {
+                        fail(batch.get(0), error);
+                        return Mono.empty();
+                    }
+                    log.warn("Failed to flush {} webhook records as one batch, writing them one by one", batch.size(), error);
+                    return Flux.fromIterable(batch)
+                            .concatMap(write -> insert(List.of(write))
+                                    .doOnSuccess(rows -> write.done().tryEmitEmpty())
+                                    .then()
+                                    .onErrorResume(rowError -> {
+                                        fail(write, rowError);
+                                        return Mono.empty();
+                                    }))
+                            .then();
+                });
+    }
+
+    private Mono<Long> insert(List<PendingWrite> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:transactionId").append(i)
+                    .append(", :requestBody").append(i)
+                    .append(", :responseBody").append(i)
+                    .append(", :status").append(i)
+                    .append(", :attemptNumber").append(i)
+                    .append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            Webhook webhook = batch.get(i).webhook();
+            spec = spec.bind("transactionId" + i, webhook.getTransactionId())
+                    .bind("requestBody" + i, webhook.getRequestBody())
+                    .bind("status" + i, webhook.getStatus().name())
+                    .bind("attemptNumber" + i, webhook.getAttemptNumber());
+            spec = webhook.getResponseBody() != null
+                    ? spec.bind("responseBody" + i, webhook.getResponseBody())
+                    : spec.bindNull("responseBody" + i, String.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static void fail(PendingWrite write, Throwable error) {
+        log.error("Failed to write webhook record for transaction {}", write.webhook().getTransactionId(), error);
+        write.done().tryEmitError(error);
+    }
+
+    private record PendingWrite(Webhook webhook, Sinks.One<Void> done) {
+    }
+}
@@ -2,9 +2,11 @@ package com.samatov.payment_service.service.impl;
 
 import com.samatov.payment_service.dto.TransactionDto;
 import com.samatov.payment_service.dto.WebhookDto;
+import com.samatov.payment_service.jfr.JfrEvents;
+import com.samatov.payment_service.jfr.WebhookDeliveryEvent;
 import com.samatov.payment_service.mapper.WebhookMapper;
+import com.samatov.payment_service.metrics.PipelineMetrics;
 import com.samatov.payment_service.repository.WebhookRepository;
-import com.samatov.payment_service.service.TransactionService;
 import com.samatov.payment_service.service.WebhookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,29 +20,34 @@ import reactor.core.publisher.Mono;
 public class WebhookServiceImpl implements WebhookService {
     private final WebhookRepository webhookRepository;
     private final WebhookMapper webhookMapper;
-    private final TransactionService transactionService;
     private final WebClient webClient;
+    private final WebhookBatchWriter webhookBatchWriter;
+    private final PipelineMetrics pipelineMetrics;
 
+    // the caller passes the row it just settled, so a delivery never reads the transaction back
     @Override
-    public Mono<Void> sendWebhook(Long transactionId, String status) {
+    public Mono<Void> sendWebhook(TransactionDto transaction, String status) {
+        Long transactionId = transaction.getId();
         log.debug("Sending webhook for transaction {}: {}", transactionId, status);
-        return transactionService.findById(transactionId)
-                .flatMap(transaction -> {
-                    String webhookUrl = transaction.getNotificationUrl();
-                    String requestBody = createWebhookRequestBody(transaction, status);
+        return Mono.defer(() -> {
+            String webhookUrl = transaction.getNotificationUrl();
+            String requestBody = createWebhookRequestBody(transaction, status);
 
-                    return webClient.post()
-                            .uri(webhookUrl)
-                            .bodyValue(requestBody)
-                            .retrieve()
-                            .bodyToMono(String.class)
-                            .flatMap(response -> saveWebhookResult(transaction.getId(), requestBody, response, "SUCCESS"))
-                            .onErrorResume(e -> {
-                                log.error("Error sending webhook for transaction {}", transactionId, e);
-                                return saveWebhookResult(transaction.getId(), requestBody, e.getMessage(), "FAILED");
-                            });
-                })
-                .then();
+            Mono<String> delivery = webClient.post()
+                    .uri(webhookUrl)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(String.class);
+            return JfrEvents.record(() -> new WebhookDeliveryEvent("send", transactionId, status),
+                            pipelineMetrics.webhook("send", delivery))
+                    .flatMap(response -> pipelineMetrics.webhook("record",
+                            saveWebhookResult(transactionId, requestBody, response, "SUCCESS")))
+                    .onErrorResume(e -> {
+                        log.error("Error sending webhook for transaction {}", transactionId, e);
+                        return pipelineMetrics.webhook("record",
+                                saveWebhookResult(transactionId, requestBody, e.getMessage(), "FAILED"));
+                    });
+        });
     }
 
     @Override
@@ -49,17 +56,17 @@ public class WebhookServiceImpl implements WebhookService {
                 .map(webhookMapper::toDto);
     }
 
-    private Mono<WebhookDto> saveWebhookResult(Long transactionId, String requestBody, String responseBody, String status) {
+    private Mono<Void> saveWebhookResult(Long transactionId, String requestBody, String responseBody, String status) {
         WebhookDto webhookDto = new WebhookDto();
         webhookDto.setTransactionId(transactionId);
         webhookDto.setRequestBody(requestBody);
         webhookDto.setResponseBody(responseBody);
         webhookDto.setStatus(status);
         webhookDto.setAttemptNumber(1);
-        return saveWebhookResult(webhookDto);
+        return webhookBatchWriter.enqueue(webhookMapper.toEntity(webhookDto));
     }
 
-    private String createWebhookRequestBody(TransactionDto transaction, String status) {
+    static String createWebhookRequestBody(TransactionDto transaction, String status) {
         return String.format(
                 "{\"transaction_id\":\"%s\",\"status\":\"%s\",\"amount\":\"%s\",\"currency\":\"%s\"}",
                 transaction.getId(), status, transaction.getAmount(), transaction.getCurrency()
@@ -0,0 +1,6 @@
+CREATE INDEX idx_transactions_created_at_id ON transactions (created_at, id);
+CREATE INDEX idx_transactions_status_created_at_id ON transactions (status, created_at, id);
+CREATE INDEX idx_transactions_type_created_at_id ON transactions (type, created_at, id);
+CREATE INDEX idx_transactions_currency_created_at_id ON transactions (currency, created_at, id);
+CREATE INDEX idx_transactions_account_to_created_at_id ON transactions (account_to, created_at, id);
+CREATE INDEX idx_transactions_account_from_created_at_id ON transactions (account_from, created_at, id);
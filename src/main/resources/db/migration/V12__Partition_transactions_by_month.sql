@@ -0,0 +1,113 @@
+-- A partitioned table can only enforce uniqueness on keys that include the partition key,
+-- so transactions(id) can no longer be the target of a foreign key.
+ALTER TABLE webhooks DROP CONSTRAINT IF EXISTS webhooks_transaction_id_fkey;
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+ALTER INDEX transactions_pkey RENAME TO transactions_unpartitioned_pkey;
+ALTER SEQUENCE transactions_id_seq OWNED BY NONE;
+
+CREATE TABLE transactions
+(
+    id                  INT            NOT NULL DEFAULT nextval('transactions_id_seq'),
+    account_from        INT            NOT NULL,
+    account_to          INT            NOT NULL,
+    amount              DECIMAL(19, 4) NOT NULL,
+    currency            VARCHAR(3)     NOT NULL,
+    payment_method      VARCHAR(20)    NOT NULL,
+    card_number         VARCHAR(16),
+    language            VARCHAR(2)     NOT NULL,
+    notification_url    VARCHAR(255)   NOT NULL,
+    status              VARCHAR(20)    NOT NULL,
+    message             VARCHAR(255),
+    type                VARCHAR(20)    NOT NULL,
+    customer_first_name VARCHAR(100)   NOT NULL,
+    customer_last_name  VARCHAR(100)   NOT NULL,
+    customer_country    VARCHAR(2)     NOT NULL,
+    created_at          TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at          TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    FOREIGN KEY (account_from) REFERENCES accounts (id),
+    FOREIGN KEY (account_to) REFERENCES accounts (id)
+) PARTITION BY RANGE (created_at);
+
+CREATE OR REPLACE FUNCTION create_transactions_partition(p_month DATE) RETURNS TEXT AS
+$$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::DATE;
+    v_end   DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::DATE;
+    v_name  TEXT := 'transactions_' || to_char(v_start, 'YYYY_MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                   v_name, v_start, v_end);
+    RETURN v_name;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ensure_transactions_partitions(p_months_ahead INT) RETURNS INT AS
+$$
+DECLARE
+    v_month INT;
+BEGIN
+    FOR v_month IN 0..p_months_ahead
+        LOOP
+            PERFORM create_transactions_partition((date_trunc('month', now()) + make_interval(months => v_month))::DATE);
+        END LOOP;
+    RETURN p_months_ahead + 1;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches and drops every monthly partition that ends on or before p_cutoff,
+-- together with the webhook records of the transactions it held.
+CREATE OR REPLACE FUNCTION drop_transactions_partitions_before(p_cutoff DATE) RETURNS INT AS
+$$
+DECLARE
+    v_partition RECORD;
+    v_dropped   INT := 0;
+BEGIN
+    FOR v_partition IN
+        SELECT c.relname AS name
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transactions'::REGCLASS
+          AND c.relname ~ '^transactions_\d{4}_\d{2}$'
+          AND to_date(substring(c.relname FROM '\d{4}_\d{2}$'), 'YYYY_MM') + INTERVAL '1 month' <= p_cutoff
+        LOOP
+            EXECUTE format('ALTER TABLE transactions DETACH PARTITION %I', v_partition.name);
+            EXECUTE format('DELETE FROM webhooks WHERE transaction_id IN (SELECT id FROM %I)', v_partition.name);
+            EXECUTE format('DROP TABLE %I', v_partition.name);
+            v_dropped := v_dropped + 1;
+        END LOOP;
+    RETURN v_dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+DO
+$$
+DECLARE
+    v_month DATE := date_trunc('month', COALESCE((SELECT min(created_at) FROM transactions_unpartitioned), now()))::DATE;
+BEGIN
+    WHILE v_month <= (date_trunc('month', now()) + INTERVAL '3 months')::DATE
+        LOOP
+            PERFORM create_transactions_partition(v_month);
+            v_month := (v_month + INTERVAL '1 month')::DATE;
+        END LOOP;
+END;
+$$;
+
+INSERT INTO transactions (id, account_from, account_to, amount, currency, payment_method, card_number, language,
+                          notification_url, status, message, type, customer_first_name, customer_last_name,
+                          customer_country, created_at, updated_at)
+SELECT id, account_from, account_to, amount, currency, payment_method, card_number, language,
+       notification_url, status, message, type, customer_first_name, customer_last_name,
+       customer_country, created_at, updated_at
+FROM transactions_unpartitioned;
+
+DROP TABLE transactions_unpartitioned;
+ALTER SEQUENCE transactions_id_seq OWNED BY transactions.id;
+
+CREATE INDEX idx_transactions_created_at_id ON transactions (created_at, id);
+CREATE INDEX idx_transactions_status_created_at_id ON transactions (status, created_at, id);
+CREATE INDEX idx_transactions_type_created_at_id ON transactions (type, created_at, id);
+CREATE INDEX idx_transactions_currency_created_at_id ON transactions (currency, created_at, id);
+CREATE INDEX idx_transactions_account_to_created_at_id ON transactions (account_to, created_at, id);
+CREATE INDEX idx_transactions_account_from_created_at_id ON transactions (account_from, created_at, id);
@@ -0,0 +1,2 @@
+-- Settlement only ever scans IN_PROGRESS rows; keep an index over just that hot set.
+CREATE INDEX idx_transactions_in_progress ON transactions (created_at, id) WHERE status = 'IN_PROGRESS';
@@ -0,0 +1,25 @@
+CREATE TABLE transaction_daily_stats
+(
+    merchant_account_id INT            NOT NULL,
+    day                 DATE           NOT NULL,
+    currency            VARCHAR(3)     NOT NULL,
+    type                VARCHAR(20)    NOT NULL,
+    status              VARCHAR(20)    NOT NULL,
+    tx_count            BIGINT         NOT NULL DEFAULT 0,
+    amount_sum          DECIMAL(19, 4) NOT NULL DEFAULT 0,
+    updated_at          TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (merchant_account_id, day, currency, type, status)
+);
+
+CREATE INDEX idx_transaction_daily_stats_day ON transaction_daily_stats (day);
+
+INSERT INTO transaction_daily_stats (merchant_account_id, day, currency, type, status, tx_count, amount_sum)
+SELECT CASE WHEN type = 'TOP_UP' THEN account_to ELSE account_from END,
+       created_at::DATE,
+       currency,
+       type,
+       status,
+       count(*),
+       sum(amount)
+FROM transactions
+GROUP BY 1, 2, 3, 4, 5;
@@ -0,0 +1,6 @@
+CREATE TABLE cluster_nodes
+(
+    node_id      VARCHAR(255) PRIMARY KEY,
+    started_at   TIMESTAMPTZ  NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMPTZ  NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
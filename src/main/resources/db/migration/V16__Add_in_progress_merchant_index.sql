@@ -0,0 +1,5 @@
+-- The fair settlement claim walks each merchant's IN_PROGRESS backlog oldest first;
+-- indexing that order lets the window run without sorting the whole backlog.
+CREATE INDEX idx_transactions_in_progress_merchant
+    ON transactions ((CASE WHEN type = 'TOP_UP' THEN account_to ELSE account_from END), created_at, id)
+    WHERE status = 'IN_PROGRESS';
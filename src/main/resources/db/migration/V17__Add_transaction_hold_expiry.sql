@@ -0,0 +1,5 @@
+-- Frozen funds are released if a transaction is still IN_PROGRESS when its hold runs out.
+ALTER TABLE transactions ADD COLUMN hold_expires_at TIMESTAMP;
+
+-- Only the recovery sweep reads this, and only over open holds.
+CREATE INDEX idx_transactions_in_progress_hold ON transactions (hold_expires_at) WHERE status = 'IN_PROGRESS';
@@ -0,0 +1,10 @@
+-- The settlement claim walks each lane type's merchants and then each merchant's IN_PROGRESS
+-- backlog oldest first. Leading with the type keeps one lane from scanning past the other
+-- lane's rows for the same merchant. The plain (created_at, id) index only served the old
+-- unfair claim, which is gone.
+DROP INDEX IF EXISTS idx_transactions_in_progress;
+DROP INDEX IF EXISTS idx_transactions_in_progress_merchant;
+
+CREATE INDEX idx_transactions_in_progress_claim
+    ON transactions (type, (CASE WHEN type = 'TOP_UP' THEN account_to ELSE account_from END), created_at, id)
+    WHERE status = 'IN_PROGRESS';
@@ -0,0 +1,7 @@
+-- Transactions frozen before V17 have no hold deadline, so nothing would ever release them.
+-- Give them the default 15 minute hold from creation; the ones already past it are expired
+-- on the first tick after startup.
+UPDATE transactions
+SET hold_expires_at = created_at + INTERVAL '15 minutes'
+WHERE status = 'IN_PROGRESS'
+  AND hold_expires_at IS NULL;
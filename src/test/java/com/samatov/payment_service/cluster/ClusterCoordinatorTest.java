@@ -0,0 +1,215 @@
+package com.samatov.payment_service.cluster;
+
+import com.samatov.payment_service.config.ClusterProperties;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Тесты для ClusterCoordinator")
+class ClusterCoordinatorTest {
+
+    private static final int PARTITIONS = 16;
+    private static final ClusterJob SWEEPER = ClusterJob.singleton("sweeper");
+    private static final ClusterJob PROCESSOR = ClusterJob.partitioned("processor", PARTITIONS);
+
+    // stands in for the Postgres advisory locks and the cluster_nodes table shared by all nodes
+    private final Map<List<Integer>, String> advisoryLocks = new ConcurrentHashMap<>();
+    private final Set<String> liveNodes = ConcurrentHashMap.newKeySet();
+    private final List<ClusterCoordinator> coordinators = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        coordinators.forEach(coordinator -> ReflectionTestUtils.invokeMethod(coordinator, "shutdown"));
+    }
+
+    @Test
+    @DisplayName("Должен владеть всеми партициями, когда координация выключена")
+    void shouldOwnEverythingWhenDisabled() {
+        ClusterProperties properties = properties("node-a");
+        properties.setEnabled(false);
+        ClusterCoordinator coordinator = coordinator(properties);
+
+        assertTrue(coordinator.isLeader(SWEEPER.name()));
+        assertEquals(PARTITIONS, coordinator.ownedPartitionCount(PROCESSOR.name()));
+    }
+
+    @Test
+    @DisplayName("Не должен владеть партициями до первого heartbeat")
+    void shouldOwnNothingBeforeFirstHeartbeat() {
+        ClusterCoordinator coordinator = coordinator(properties("node-a"));
+
+        assertFalse(coordinator.isLeader(SWEEPER.name()));
+        assertTrue(coordinator.ownedPartitions(PROCESSOR.name()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Должен выбросить исключение для неизвестной задачи")
+    void shouldRejectUnknownJob() {
+        ClusterCoordinator coordinator = coordinator(properties("node-a"));
+
+        assertThrows(IllegalArgumentException.class, () -> coordinator.ownedPartitions("unknown"));
+    }
+
+    @Test
+    @DisplayName("Единственный узел должен взять все задачи")
+    void shouldTakeEverythingAsSingleNode() {
+        ClusterCoordinator coordinator = start(properties("node-a"));
+
+        awaitUntil(() -> coordinator.ownedPartitionCount(PROCESSOR.name()) == PARTITIONS);
+        assertTrue(coordinator.isLeader(SWEEPER.name()));
+    }
+
+    @Test
+    @DisplayName("Два узла должны разделить партиции по кольцу без пересечений")
+    void shouldSplitPartitionsBetweenNodes() {
+        ClusterCoordinator first = start(properties("node-a"));
+        awaitUntil(() -> first.ownedPartitionCount(PROCESSOR.name()) == PARTITIONS);
+
+        ClusterCoordinator second = start(properties("node-b"));
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b"), 64);
+        Set<Integer> expectedFirst = ring.partitionsOf("node-a", PARTITIONS);
+        Set<Integer> expectedSecond = ring.partitionsOf("node-b", PARTITIONS);
+        awaitUntil(() -> first.ownedPartitions(PROCESSOR.name()).equals(expectedFirst)
+                && second.ownedPartitions(PROCESSOR.name()).equals(expectedSecond));
+
+        Set<Integer> overlap = new HashSet<>(first.ownedPartitions(PROCESSOR.name()));
+        overlap.retainAll(second.ownedPartitions(PROCESSOR.name()));
+        assertTrue(overlap.isEmpty());
+        assertTrue(first.isLeader(SWEEPER.name()) ^ second.isLeader(SWEEPER.name()));
+    }
+
+    @Test
+    @DisplayName("Оставшийся узел должен забрать партиции остановленного")
+    void shouldTakeOverPartitionsOfStoppedNode() {
+        ClusterCoordinator first = start(properties("node-a"));
+        ClusterCoordinator second = start(properties("node-b"));
+        awaitUntil(() -> first.ownedPartitionCount(PROCESSOR.name()) + second.ownedPartitionCount(PROCESSOR.name()) == PARTITIONS
+                && first.ownedPartitionCount(PROCESSOR.name()) > 0);
+
+        ReflectionTestUtils.invokeMethod(first, "shutdown");
+
+        awaitUntil(() -> second.ownedPartitionCount(PROCESSOR.name()) == PARTITIONS && second.isLeader(SWEEPER.name()));
+    }
+
+    private ClusterCoordinator start(ClusterProperties properties) {
+        ClusterCoordinator coordinator = coordinator(properties);
+        ReflectionTestUtils.invokeMethod(coordinator, "start");
+        return coordinator;
+    }
+
+    private ClusterCoordinator coordinator(ClusterProperties properties) {
+        ClusterCoordinator coordinator = new ClusterCoordinator(
+                connectionFactory(properties.getNodeId()), properties, List.of(SWEEPER, PROCESSOR));
+        coordinators.add(coordinator);
+        return coordinator;
+    }
+
+    private static ClusterProperties properties(String nodeId) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setNodeId(nodeId);
+        properties.setHeartbeatInterval(Duration.ofMillis(50));
+        properties.setLeaseTimeout(Duration.ofSeconds(2));
+        return properties;
+    }
+
+    private ConnectionFactory connectionFactory(String nodeId) {
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement(anyString())).thenAnswer(invocation -> statement(nodeId, invocation.getArgument(0)));
+        // closing the session drops its advisory locks, as Postgres does
+        doReturn(Mono.fromRunnable(() -> advisoryLocks.values().removeIf(nodeId::equals))).when(connection).close();
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        doReturn(Mono.just(connection)).when(connectionFactory).create();
+        return connectionFactory;
+    }
+
+    private Statement statement(String nodeId, String sql) {
+        Map<String, Object> bindings = new HashMap<>();
+        Statement statement = mock(Statement.class);
+        when(statement.bind(anyString(), any())).thenAnswer(invocation -> {
+            bindings.put(invocation.getArgument(0), invocation.getArgument(1));
+            return statement;
+        });
+        when(statement.execute()).thenAnswer(invocation -> Flux.just(result(execute(nodeId, sql, bindings))));
+        return statement;
+    }
+
+    private List<Object> execute(String nodeId, String sql, Map<String, Object> bindings) {
+        if (sql.startsWith("INSERT INTO cluster_nodes")) {
+            liveNodes.add(nodeId);
+        } else if (sql.startsWith("DELETE FROM cluster_nodes WHERE node_id")) {
+            liveNodes.remove(nodeId);
+        } else if (sql.startsWith("SELECT node_id")) {
+            return List.copyOf(liveNodes);
+        } else if (sql.contains("pg_try_advisory_lock")) {
+            int key = (Integer) bindings.get("$1");
+            return Arrays.stream((Integer[]) bindings.get("$2"))
+                    .filter(partition -> nodeId.equals(advisoryLocks.putIfAbsent(List.of(key, partition), nodeId)))
+                    .collect(Collectors.toList());
+        } else if (sql.contains("pg_advisory_unlock")) {
+            return List.of(advisoryLocks.remove(List.of((Integer) bindings.get("$1"), (Integer) bindings.get("$2")), nodeId));
+        }
+        return List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result result(List<Object> rows) {
+        Result result = mock(Result.class);
+        doReturn(Mono.just((long) rows.size())).when(result).getRowsUpdated();
+        when(result.map(any(BiFunction.class))).thenAnswer(invocation -> {
+            BiFunction<Row, RowMetadata, Object> mapper = invocation.getArgument(0);
+            return Flux.fromIterable(rows).map(value -> {
+                Row row = mock(Row.class);
+                doReturn(value).when(row).get(any(Integer.class), any(Class.class));
+                return mapper.apply(row, mock(RowMetadata.class));
+            });
+        });
+        return result;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.samatov.payment_service.cluster;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для ConsistentHashRing")
+class ConsistentHashRingTest {
+
+    private static final int PARTITIONS = 256;
+    private static final int VIRTUAL_NODES = 64;
+
+    @Test
+    @DisplayName("Должен назначить каждую партицию ровно одному узлу")
+    void shouldAssignEveryPartitionToExactlyOneNode() {
+        List<String> nodes = List.of("node-a", "node-b", "node-c");
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+
+        Set<Integer> assigned = new HashSet<>();
+        int total = 0;
+        for (String node : nodes) {
+            Set<Integer> owned = ring.partitionsOf(node, PARTITIONS);
+            assigned.addAll(owned);
+            total += owned.size();
+        }
+
+        assertEquals(PARTITIONS, assigned.size());
+        assertEquals(PARTITIONS, total);
+    }
+
+    @Test
+    @DisplayName("Должен давать одинаковое назначение независимо от порядка узлов")
+    void shouldBeDeterministic() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("node-c", "node-a", "node-b"), VIRTUAL_NODES);
+
+        IntStream.range(0, PARTITIONS)
+                .forEach(partition -> assertEquals(ring.ownerOf(partition), reordered.ownerOf(partition)));
+    }
+
+    @Test
+    @DisplayName("Должен распределять партиции между узлами примерно поровну")
+    void shouldSpreadPartitionsEvenly() {
+        List<String> nodes = List.of("node-a", "node-b", "node-c", "node-d");
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+
+        for (String node : nodes) {
+            int owned = ring.partitionsOf(node, PARTITIONS).size();
+            assertTrue(owned > PARTITIONS / nodes.size() / 2 && owned < PARTITIONS / nodes.size() * 2,
+                    node + " owns " + owned + " of " + PARTITIONS);
+        }
+    }
+
+    @Test
+    @DisplayName("Должен переносить на новый узел только часть партиций")
+    void shouldOnlyMovePartitionsToJoiningNode() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), VIRTUAL_NODES);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-a", "node-b", "node-c", "node-d"), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (!before.ownerOf(partition).equals(after.ownerOf(partition))) {
+                assertEquals("node-d", after.ownerOf(partition));
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 0 && moved < PARTITIONS / 2, "moved " + moved + " of " + PARTITIONS);
+    }
+
+    @Test
+    @DisplayName("Должен отдать все партиции единственному узлу")
+    void shouldGiveEverythingToSingleNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a"), VIRTUAL_NODES);
+
+        assertEquals(PARTITIONS, ring.partitionsOf("node-a", PARTITIONS).size());
+    }
+
+    @Test
+    @DisplayName("Должен выбросить исключение для пустого кольца")
+    void shouldRejectEmptyRing() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), VIRTUAL_NODES);
+
+        assertThrows(IllegalStateException.class, () -> ring.ownerOf(0));
+    }
+}
@@ -0,0 +1,34 @@
+package com.samatov.payment_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для BlockingSchedulerConfig")
+class BlockingSchedulerConfigTest {
+
+    @Test
+    @DisplayName("Не должен останавливать общий boundedElastic при остановке своего планировщика")
+    void shouldNotDisposeSharedBoundedElastic() {
+        BlockingProperties blockingProperties = new BlockingProperties();
+        blockingProperties.setMode(BlockingProperties.Mode.BOUNDED_ELASTIC);
+
+        Scheduler scheduler = new BlockingSchedulerConfig().blockingScheduler(blockingProperties, new SimpleMeterRegistry());
+        assertNotSame(Schedulers.boundedElastic(), scheduler);
+        scheduler.dispose();
+
+        assertTrue(scheduler.isDisposed());
+        assertFalse(Schedulers.boundedElastic().isDisposed());
+        StepVerifier.create(Mono.fromCallable(() -> Thread.currentThread().getName()).subscribeOn(Schedulers.boundedElastic()))
+                .expectNextMatches(name -> name.startsWith("boundedElastic"))
+                .verifyComplete();
+    }
+}
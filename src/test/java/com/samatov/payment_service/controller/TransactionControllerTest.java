@@ -0,0 +1,75 @@
+package com.samatov.payment_service.controller;
+
+import com.samatov.payment_service.config.TransactionEventsProperties;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.dto.TransactionPageDto;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.exception.InvalidCursorException;
+import com.samatov.payment_service.handler.GlobalExceptionHandler;
+import com.samatov.payment_service.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionController")
+class TransactionControllerTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        webTestClient = WebTestClient.bindToController(new TransactionController(transactionService, new TransactionEventsProperties()))
+                .controllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Должен передать фильтры и курсор страницы в сервис")
+    void shouldReturnTransactionPage() {
+        TransactionPageDto page = new TransactionPageDto();
+        page.setItems(List.of());
+        page.setNextCursor("next");
+        when(transactionService.findPage(any(), eq("abc"), eq(20))).thenReturn(Mono.just(page));
+
+        webTestClient.get()
+                .uri("/api/v1/payments/transaction/page?cursor=abc&page_size=20&type=TOP_UP&merchant_account_id=7")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.nextCursor").isEqualTo("next");
+
+        ArgumentCaptor<TransactionFilterDto> filter = ArgumentCaptor.forClass(TransactionFilterDto.class);
+        verify(transactionService).findPage(filter.capture(), eq("abc"), eq(20));
+        assertEquals(TransactionType.TOP_UP, filter.getValue().getType());
+        assertEquals(7L, filter.getValue().getMerchantAccountId());
+    }
+
+    @Test
+    @DisplayName("Должен вернуть 400 на некорректный курсор")
+    void shouldRejectMalformedCursor() {
+        when(transactionService.findPage(any(), eq("broken"), any()))
+                .thenReturn(Mono.error(new InvalidCursorException("Invalid cursor: broken")));
+
+        webTestClient.get()
+                .uri("/api/v1/payments/transaction/page?cursor=broken")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid cursor: broken");
+    }
+}
@@ -0,0 +1,83 @@
+package com.samatov.payment_service.controller;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.service.TransactionStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionStatsController")
+class TransactionStatsControllerTest {
+
+    @Mock
+    private TransactionStatsService transactionStatsService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        webTestClient = WebTestClient.bindToController(new TransactionStatsController(transactionStatsService)).build();
+    }
+
+    @Test
+    @DisplayName("Должен вернуть дневную статистику с фильтрами")
+    void shouldReturnDailyStats() {
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        LocalDate to = LocalDate.of(2024, 5, 7);
+        TransactionDailyStatsDto stats = new TransactionDailyStatsDto();
+        stats.setMerchantAccountId(2L);
+        stats.setStatus(TransactionStatus.SUCCESS);
+        stats.setCount(42L);
+
+        when(transactionStatsService.findDailyStats(2L, from, to, Currency.USD)).thenReturn(Flux.just(stats));
+
+        webTestClient.get()
+                .uri("/api/v1/payments/stats/daily?merchant_account_id=2&from=2024-05-01&to=2024-05-07&currency=USD")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].merchantAccountId").isEqualTo(2)
+                .jsonPath("$[0].status").isEqualTo("SUCCESS")
+                .jsonPath("$[0].count").isEqualTo(42);
+
+        verify(transactionStatsService).findDailyStats(2L, from, to, Currency.USD);
+    }
+
+    @Test
+    @DisplayName("Должен отклонить запрос статистики без периода")
+    void shouldRejectDailyStatsWithoutRange() {
+        webTestClient.get()
+                .uri("/api/v1/payments/stats/daily?from=2024-05-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(transactionStatsService);
+    }
+
+    @Test
+    @DisplayName("Должен пересчитать статистику и вернуть число строк")
+    void shouldRebuildDailyStats() {
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        LocalDate to = LocalDate.of(2024, 5, 7);
+
+        when(transactionStatsService.rebuild(from, to)).thenReturn(Mono.just(12L));
+
+        webTestClient.post()
+                .uri("/api/v1/payments/stats/daily/rebuild?from=2024-05-01&to=2024-05-07")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class).isEqualTo(12L);
+    }
+}
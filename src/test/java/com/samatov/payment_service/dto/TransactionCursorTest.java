@@ -0,0 +1,42 @@
+package com.samatov.payment_service.dto;
+
+import com.samatov.payment_service.exception.InvalidCursorException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Тесты для TransactionCursor")
+class TransactionCursorTest {
+
+    @Test
+    @DisplayName("Должен восстановить курсор из закодированного токена")
+    void shouldRoundTripThroughToken() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 5, 1, 10, 30, 0, 123_456_000), 1234L);
+
+        String token = cursor.encode();
+
+        assertFalse(token.contains("="));
+        assertEquals(cursor, TransactionCursor.decode(token));
+    }
+
+    @Test
+    @DisplayName("Должен отклонить некорректный токен")
+    void shouldRejectMalformedToken() {
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode("%%%"));
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode(token("2024-05-01T10:30:00")));
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode(token("not-a-date|12")));
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode(token("2024-05-01T10:30:00|abc")));
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode(token("2024-05-01T10:30:00|")));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,269 @@
+package com.samatov.payment_service.loadtest;
+
+import com.samatov.payment_service.PaymentServiceApplication;
+import com.samatov.payment_service.dto.CardDataDto;
+import com.samatov.payment_service.dto.CustomerDto;
+import com.samatov.payment_service.dto.PayoutRequestDto;
+import com.samatov.payment_service.dto.TopUpRequestDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.Language;
+import com.samatov.payment_service.enums.PaymentMethod;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the whole application against an embedded PostgreSQL, seeds merchants and customers,
+ * and drives open-loop top-up and payout traffic at a fixed rate. Endpoint latency is measured
+ * from each request's intended send time, so a stalled server cannot hide its queueing delay
+ * (no coordinated omission). Once traffic stops the test waits for settlement and webhook
+ * delivery and derives per-stage latencies from the row timestamps:
+ * <ul>
+ *     <li>{@code stage.settlement} — transaction created → status changed</li>
+ *     <li>{@code stage.webhook} — status changed → first webhook recorded</li>
+ *     <li>{@code stage.end-to-end} — transaction created → first webhook recorded</li>
+ * </ul>
+ * Reports go to {@code build/reports/load}. Run with
+ * {@code ./gradlew e2eLoadTest -Dload.rate=200 -Dload.durationSeconds=60 -Dload.customers=5000};
+ * {@code -Dload.app.<property>=<value>} is passed to the application as {@code --<property>=<value>}.
+ */
+@Slf4j
+@Tag("e2e-load")
+class EndToEndLoadTest {
+
+    private static final String TOP_UPS = "POST /api/v1/payments/topups";
+    private static final String PAYOUTS = "POST /api/v1/payments/payout";
+    private static final String APP_PROPERTY_PREFIX = "load.app.";
+
+    private final int merchants = Integer.getInteger("load.merchants", 10);
+    private final int customers = Integer.getInteger("load.customers", 1000);
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("load.durationSeconds", 60));
+    private final double payoutRatio = Double.parseDouble(System.getProperty("load.payoutRatio", "0.2"));
+    private final Duration settleTimeout = Duration.ofSeconds(Long.getLong("load.settleTimeoutSeconds", 120));
+    private final int maxConnections = Integer.getInteger("load.maxConnections", 1000);
+    private final Path reportDirectory = Path.of(System.getProperty("load.reportDir", "build/reports/load"));
+
+    @Test
+    void driveTopUpsAndPayouts() throws Exception {
+        LatencyReport report = new LatencyReport("e2e");
+        report.setting("merchants", merchants);
+        report.setting("customers", customers);
+        report.setting("ratePerSecond", rate);
+        report.setting("durationSeconds", duration.toSeconds());
+        report.setting("payoutRatio", payoutRatio);
+
+        FakeWebhookReceiver.Settings receiverSettings = FakeWebhookReceiver.Settings.builder()
+                .latency(LatencyDistribution.parse(System.getProperty("load.latency", "exponential:20")))
+                .errorRate(Double.parseDouble(System.getProperty("load.errorRate", "0")))
+                .build();
+        report.setting("receiver", receiverSettings.toString());
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("timezone", ZoneId.systemDefault().getId())
+                .start();
+             FakeWebhookReceiver receiver = new FakeWebhookReceiver(receiverSettings);
+             ConfigurableApplicationContext application = startApplication(postgres)) {
+
+            DataSource dataSource = postgres.getPostgresDatabase();
+            LoadSeeder.Seed seed = new LoadSeeder(dataSource).seed(merchants, customers, new BigDecimal("1000000000"));
+            int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            long sent = drive(client(port), seed, receiver.url(), report);
+            long created = countTransactions(dataSource);
+            awaitSettlement(dataSource, created);
+            recordStages(dataSource, report);
+
+            report.setting("sent", sent);
+            report.setting("transactionsCreated", created);
+            report.setting("webhookDeliveries", receiver.totalDeliveries());
+            report.print(System.out);
+            report.write(reportDirectory).forEach(path -> log.info("Report written to {}", path.toAbsolutePath()));
+
+            assertThat(report.count(TOP_UPS) + report.count(PAYOUTS)).isPositive();
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.r2dbc.url=r2dbc:pool:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                "--spring.r2dbc.username=postgres",
+                "--spring.r2dbc.password=postgres",
+                "--spring.flyway.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.flyway.user=postgres",
+                "--spring.flyway.password=postgres",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.springframework.web.reactive=WARN",
+                "--logging.level.org.springframework.http=WARN",
+                "--logging.level.com.samatov.payment_service=" + System.getProperty("load.appLogLevel", "WARN")));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(APP_PROPERTY_PREFIX))
+                .forEach(name -> args.add("--" + name.substring(APP_PROPERTY_PREFIX.length()) + "=" + System.getProperty(name)));
+        return new SpringApplicationBuilder(PaymentServiceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private WebClient client(int port) {
+        ConnectionProvider connections = ConnectionProvider.builder("load-generator")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        return WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+    }
+
+    private long drive(WebClient client, LoadSeeder.Seed seed, String notificationUrl, LatencyReport report) {
+        long periodNanos = (long) (1_000_000_000L / rate);
+        long requests = (long) (rate * duration.toSeconds());
+        long start = System.nanoTime();
+
+        // open loop: ticks keep coming on schedule no matter how many requests are still outstanding
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(requests)
+                .flatMap(sequence -> send(client, seed, notificationUrl, report, start + sequence * periodNanos), Integer.MAX_VALUE)
+                .blockLast(duration.plus(settleTimeout));
+        return requests;
+    }
+
+    private Mono<Void> send(WebClient client, LoadSeeder.Seed seed, String notificationUrl, LatencyReport report, long intendedStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LoadSeeder.SeededCustomer customer = seed.customers().get(random.nextInt(seed.customers().size()));
+        boolean payout = random.nextDouble() < payoutRatio;
+        String series = payout ? PAYOUTS : TOP_UPS;
+        Object body = payout
+                ? payoutRequest(seed.merchantUserIds().get(random.nextInt(seed.merchantUserIds().size())), customer, notificationUrl)
+                : topUpRequest(customer, notificationUrl);
+
+        return client.post()
+                .uri(payout ? "/api/v1/payments/payout" : "/api/v1/payments/topups")
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSuccess(response -> report.recordNanos(series, System.nanoTime() - intendedStart))
+                .doOnError(error -> report.increment(series, error.getClass().getSimpleName()))
+                .onErrorComplete()
+                .then();
+    }
+
+    private void awaitSettlement(DataSource dataSource, long created) throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + settleTimeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            long inProgress = queryLong(dataSource, "SELECT count(*) FROM transactions WHERE status = 'IN_PROGRESS'");
+            long notified = queryLong(dataSource, "SELECT count(DISTINCT transaction_id) FROM webhooks");
+            if (inProgress == 0 && notified >= created) {
+                return;
+            }
+            Thread.sleep(500);
+        }
+        log.warn("Settlement did not finish within {}; stage latencies cover what completed", settleTimeout);
+    }
+
+    private void recordStages(DataSource dataSource, LatencyReport report) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("""
+                     SELECT t.type,
+                            EXTRACT(EPOCH FROM (t.updated_at - t.created_at)) * 1000000,
+                            EXTRACT(EPOCH FROM (w.created_at - t.updated_at)) * 1000000,
+                            EXTRACT(EPOCH FROM (w.created_at - t.created_at)) * 1000000
+                     FROM transactions t
+                              LEFT JOIN (SELECT transaction_id, min(created_at) AS created_at
+                                         FROM webhooks
+                                         GROUP BY transaction_id) w ON w.transaction_id = t.id
+                     WHERE t.status <> 'IN_PROGRESS'""");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                String type = rows.getString(1);
+                report.recordMicros("stage.settlement", rows.getLong(2));
+                report.increment("stage.settlement", type);
+                if (rows.getObject(3) != null) {
+                    report.recordMicros("stage.webhook", rows.getLong(3));
+                    report.recordMicros("stage.end-to-end", rows.getLong(4));
+                }
+            }
+        }
+    }
+
+    private static long countTransactions(DataSource dataSource) throws SQLException {
+        return queryLong(dataSource, "SELECT count(*) FROM transactions");
+    }
+
+    private static long queryLong(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rows = statement.executeQuery()) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static TopUpRequestDto topUpRequest(LoadSeeder.SeededCustomer customer, String notificationUrl) {
+        TopUpRequestDto request = new TopUpRequestDto();
+        request.setPaymentMethod(PaymentMethod.CARD);
+        request.setAmount(amount());
+        request.setCurrency(Currency.USD);
+        request.setCardData(cardData(customer));
+        request.setLanguage(Language.EN);
+        request.setNotificationUrl(notificationUrl);
+        request.setCustomer(customer(customer));
+        return request;
+    }
+
+    private static PayoutRequestDto payoutRequest(Long merchantUserId, LoadSeeder.SeededCustomer customer, String notificationUrl) {
+        PayoutRequestDto request = new PayoutRequestDto();
+        request.setMerchantId(merchantUserId);
+        request.setPaymentMethod(PaymentMethod.CARD);
+        request.setAmount(amount());
+        request.setCurrency(Currency.USD);
+        request.setCardData(cardData(customer));
+        request.setLanguage(Language.EN);
+        request.setNotificationUrl(notificationUrl);
+        request.setCustomer(customer(customer));
+        return request;
+    }
+
+    private static BigDecimal amount() {
+        return BigDecimal.valueOf(ThreadLocalRandom.current().nextLong(100, 100_000), 2);
+    }
+
+    private static CardDataDto cardData(LoadSeeder.SeededCustomer customer) {
+        CardDataDto cardData = new CardDataDto();
+        cardData.setCardNumber(customer.cardNumber());
+        cardData.setExpDate(LoadSeeder.EXP_DATE);
+        cardData.setCvv(LoadSeeder.CVV);
+        return cardData;
+    }
+
+    private static CustomerDto customer(LoadSeeder.SeededCustomer customer) {
+        CustomerDto dto = new CustomerDto();
+        dto.setFirstName(customer.firstName());
+        dto.setLastName(customer.lastName());
+        dto.setCountry(customer.country());
+        return dto;
+    }
+}
@@ -0,0 +1,155 @@
+package com.samatov.payment_service.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for a merchant webhook endpoint. Every delivery is answered
+ * according to {@link Settings}: delayed by the latency distribution and then either
+ * accepted, rejected with a 5xx, answered with a slowly dripped body, or cut off by
+ * resetting the connection.
+ */
+@Slf4j
+public class FakeWebhookReceiver implements AutoCloseable {
+
+    private static final Pattern TRANSACTION_ID = Pattern.compile("\"transaction_id\"\\s*:\\s*\"?(\\d+)");
+    private static final String PATH = "/webhook";
+
+    private final Settings settings;
+    private final DisposableServer server;
+    private final Map<Long, Integer> deliveriesByTransaction = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slowDrips = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+
+    public FakeWebhookReceiver(Settings settings) {
+        this.settings = settings;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post(PATH, this::handle))
+                .bindNow();
+        log.info("Fake webhook receiver listening on {} with {}", url(), settings);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.port() + PATH;
+    }
+
+    public int deliveriesFor(Long transactionId) {
+        return deliveriesByTransaction.getOrDefault(transactionId, 0);
+    }
+
+    public long totalDeliveries() {
+        return deliveriesByTransaction.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    // the service posts each settlement once, so a transaction seen twice was settled twice
+    public long duplicatedTransactions() {
+        return deliveriesByTransaction.entrySet().stream()
+                .filter(entry -> entry.getKey() >= 0 && entry.getValue() > 1)
+                .count();
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public long slowDrips() {
+        return slowDrips.sum();
+    }
+
+    public long resets() {
+        return resets.sum();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asString().defaultIfEmpty("")
+                .flatMap(body -> {
+                    recordDelivery(body);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Duration latency = settings.getLatency().sample(random);
+                    double roll = random.nextDouble();
+
+                    if (roll < settings.getResetRate()) {
+                        resets.increment();
+                        return Mono.delay(latency)
+                                .then(Mono.fromRunnable(() -> response.withConnection(connection -> connection.channel().close())));
+                    }
+                    roll -= settings.getResetRate();
+                    if (roll < settings.getErrorRate()) {
+                        errors.increment();
+                        return Mono.delay(latency)
+                                .then(response.status(503).sendString(Mono.just("{\"error\":\"simulated failure\"}")).then());
+                    }
+                    roll -= settings.getErrorRate();
+                    if (roll < settings.getSlowDripRate()) {
+                        slowDrips.increment();
+                        return Mono.delay(latency).then(slowDrip(response));
+                    }
+                    accepted.increment();
+                    return Mono.delay(latency)
+                            .then(response.status(200).sendString(Mono.just("{\"received\":true}")).then());
+                });
+    }
+
+    private Mono<Void> slowDrip(HttpServerResponse response) {
+        String body = "{\"received\":true}";
+        Flux<ByteBuf> chunks = Flux.range(0, body.length())
+                .delayElements(settings.getSlowDripInterval())
+                .map(i -> Unpooled.copiedBuffer(body.substring(i, i + 1), StandardCharsets.UTF_8));
+        return response.status(200)
+                .send(chunks, chunk -> true)
+                .then();
+    }
+
+    private void recordDelivery(String body) {
+        Matcher matcher = TRANSACTION_ID.matcher(body);
+        long transactionId = matcher.find() ? Long.parseLong(matcher.group(1)) : -1L;
+        deliveriesByTransaction.merge(transactionId, 1, Integer::sum);
+    }
+
+    @Value
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        LatencyDistribution latency = LatencyDistribution.none();
+        @Builder.Default
+        double errorRate = 0;
+        @Builder.Default
+        double slowDripRate = 0;
+        @Builder.Default
+        Duration slowDripInterval = Duration.ofMillis(100);
+        @Builder.Default
+        double resetRate = 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.samatov.payment_service.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    Duration sample(ThreadLocalRandom random);
+
+    static LatencyDistribution none() {
+        return random -> Duration.ZERO;
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        return random -> Duration.ofNanos(random.nextLong(min.toNanos(), max.toNanos() + 1));
+    }
+
+    static LatencyDistribution exponential(Duration mean) {
+        return random -> Duration.ofNanos((long) (-Math.log(1 - random.nextDouble()) * mean.toNanos()));
+    }
+
+    // median-centred long tail: most responses are close to the median, a few are many times slower
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        return random -> Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())));
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        return switch (parts[0]) {
+            case "none" -> none();
+            case "fixed" -> fixed(Duration.ofMillis(Long.parseLong(parts[1])));
+            case "uniform" -> uniform(Duration.ofMillis(Long.parseLong(parts[1])), Duration.ofMillis(Long.parseLong(parts[2])));
+            case "exponential" -> exponential(Duration.ofMillis(Long.parseLong(parts[1])));
+            case "lognormal" -> logNormal(Duration.ofMillis(Long.parseLong(parts[1])), Double.parseDouble(parts[2]));
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+}
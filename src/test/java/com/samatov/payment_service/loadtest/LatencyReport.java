@@ -0,0 +1,180 @@
+package com.samatov.payment_service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named HdrHistogram series (values in microseconds) plus counters, written as a JSON
+ * report for diffing between versions and an HTML page for reading. The JSON carries each
+ * histogram in compressed base64 form so full distributions can be re-plotted later.
+ */
+class LatencyReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final String name;
+    private final Instant startedAt = Instant.now();
+    private final Map<String, Object> settings = new LinkedHashMap<>();
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    LatencyReport(String name) {
+        this.name = name;
+    }
+
+    void setting(String key, Object value) {
+        settings.put(key, value);
+    }
+
+    void recordMicros(String seriesName, long micros) {
+        series(seriesName).histogram.recordValue(Math.max(0, micros));
+    }
+
+    void recordNanos(String seriesName, long nanos) {
+        recordMicros(seriesName, nanos / 1_000);
+    }
+
+    void increment(String seriesName, String counter) {
+        series(seriesName).counters.computeIfAbsent(counter, key -> new LongAdder()).increment();
+    }
+
+    long count(String seriesName) {
+        Series s = series.get(seriesName);
+        return s == null ? 0 : s.histogram.getTotalCount();
+    }
+
+    List<Path> write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String baseName = name + "-" + startedAt.toString().replace(':', '-');
+        Path json = directory.resolve(baseName + ".json");
+        Path html = directory.resolve(baseName + ".html");
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(json.toFile(), toJson());
+        Files.writeString(html, toHtml(), StandardCharsets.UTF_8);
+        return List.of(json, html);
+    }
+
+    void print(PrintStream out) {
+        out.printf("=== %s ===%n", name);
+        for (String seriesName : order) {
+            Histogram histogram = series.get(seriesName).histogram;
+            out.printf("%-40s n=%-8d p50=%8.1f p90=%8.1f p99=%8.1f p99.9=%8.1f max=%8.1f ms %s%n",
+                    seriesName, histogram.getTotalCount(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1_000.0, series.get(seriesName).counterValues());
+        }
+    }
+
+    private Series series(String seriesName) {
+        return series.computeIfAbsent(seriesName, key -> {
+            order.add(key);
+            return new Series();
+        });
+    }
+
+    private Map<String, Object> toJson() {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("name", name);
+        root.put("startedAt", startedAt.toString());
+        root.put("settings", settings);
+        Map<String, Object> seriesJson = new LinkedHashMap<>();
+        for (String seriesName : order) {
+            Series s = series.get(seriesName);
+            Histogram histogram = s.histogram;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("unit", "us");
+            entry.put("count", histogram.getTotalCount());
+            entry.put("mean", histogram.getMean());
+            entry.put("min", histogram.getMinValue());
+            for (double percentile : PERCENTILES) {
+                entry.put("p" + percentile, histogram.getValueAtPercentile(percentile));
+            }
+            entry.put("max", histogram.getMaxValue());
+            entry.put("counters", s.counterValues());
+            entry.put("histogram", encode(histogram));
+            seriesJson.put(seriesName, entry);
+        }
+        root.put("series", seriesJson);
+        return root;
+    }
+
+    private String toHtml() {
+        StringBuilder html = new StringBuilder()
+                .append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>").append(name).append("</title>")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse}")
+                .append("td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}th:first-child,td:first-child{text-align:left}")
+                .append("pre{font-size:12px}</style></head><body>")
+                .append("<h1>").append(name).append("</h1><p>Started ").append(startedAt).append("</p>")
+                .append("<h2>Settings</h2><table>");
+        settings.forEach((key, value) -> html.append("<tr><td>").append(key).append("</td><td>").append(value).append("</td></tr>"));
+        html.append("</table><h2>Latency (ms)</h2><table><tr><th>series</th><th>count</th><th>mean</th>");
+        for (double percentile : PERCENTILES) {
+            html.append("<th>p").append(percentile).append("</th>");
+        }
+        html.append("<th>max</th><th>counters</th></tr>");
+        for (String seriesName : order) {
+            Series s = series.get(seriesName);
+            Histogram histogram = s.histogram;
+            html.append("<tr><td>").append(seriesName).append("</td><td>").append(histogram.getTotalCount()).append("</td>")
+                    .append(cell(histogram.getMean() / 1_000.0));
+            for (double percentile : PERCENTILES) {
+                html.append(cell(millis(histogram, percentile)));
+            }
+            html.append(cell(histogram.getMaxValue() / 1_000.0)).append("<td>").append(s.counterValues()).append("</td></tr>");
+        }
+        html.append("</table><h2>Distributions</h2>");
+        for (String seriesName : order) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            series.get(seriesName).histogram.outputPercentileDistribution(
+                    new PrintStream(buffer, true, StandardCharsets.UTF_8), 5, 1_000.0);
+            html.append("<h3>").append(seriesName).append(" (ms)</h3><pre>")
+                    .append(buffer.toString(StandardCharsets.UTF_8)).append("</pre>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private static String cell(double value) {
+        return String.format("<td>%.2f</td>", value);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1_000.0;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    private static class Series {
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+        private Map<String, Long> counterValues() {
+            Map<String, Long> values = new LinkedHashMap<>();
+            counters.forEach((key, value) -> values.put(key, value.sum()));
+            return values;
+        }
+    }
+}
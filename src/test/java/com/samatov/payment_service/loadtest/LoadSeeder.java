@@ -0,0 +1,90 @@
+package com.samatov.payment_service.loadtest;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds merchants and customers straight into a migrated schema with set-based inserts.
+ * Every user gets one USD account; every customer also gets one card.
+ */
+class LoadSeeder {
+
+    static final String EXP_DATE = "12/30";
+    static final String CVV = "123";
+
+    private final DataSource dataSource;
+
+    LoadSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    Seed seed(int merchants, int customers, BigDecimal openingBalance) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            execute(connection, "INSERT INTO users (user_type) SELECT 'MERCHANT' FROM generate_series(1, ?)", merchants);
+            execute(connection, "INSERT INTO users (user_type) SELECT 'CUSTOMER' FROM generate_series(1, ?)", customers);
+            execute(connection, "INSERT INTO merchants (user_id) SELECT id FROM users WHERE user_type = 'MERCHANT' ORDER BY id");
+            execute(connection, """
+                    INSERT INTO customers (user_id, first_name, last_name, country)
+                    SELECT id, 'Load', 'Customer' || id, 'US' FROM users WHERE user_type = 'CUSTOMER' ORDER BY id""");
+            execute(connection, "INSERT INTO accounts (user_id, balance, frozen_amount, currency) SELECT id, ?, 0, 'USD' FROM users ORDER BY id",
+                    openingBalance);
+            execute(connection, """
+                    INSERT INTO cards (account_id, card_number, card_type, exp_date, cvv)
+                    SELECT a.id, '4' || lpad(a.user_id::TEXT, 15, '0'), 'VISA', ?, ?
+                    FROM accounts a JOIN users u ON u.id = a.user_id
+                    WHERE u.user_type = 'CUSTOMER'""", EXP_DATE, CVV);
+            connection.commit();
+
+            return new Seed(merchantUserIds(connection), customers(connection));
+        }
+    }
+
+    private List<Long> merchantUserIds(Connection connection) throws SQLException {
+        List<Long> userIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT user_id FROM merchants ORDER BY id");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                userIds.add(rows.getLong(1));
+            }
+        }
+        return userIds;
+    }
+
+    private List<SeededCustomer> customers(Connection connection) throws SQLException {
+        List<SeededCustomer> customers = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT c.first_name, c.last_name, c.country, card.card_number
+                FROM customers c
+                         JOIN accounts a ON a.user_id = c.user_id
+                         JOIN cards card ON card.account_id = a.id
+                ORDER BY c.id""");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                customers.add(new SeededCustomer(rows.getString(1), rows.getString(2), rows.getString(3), rows.getString(4)));
+            }
+        }
+        return customers;
+    }
+
+    private static void execute(Connection connection, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    record Seed(List<Long> merchantUserIds, List<SeededCustomer> customers) {
+    }
+
+    record SeededCustomer(String firstName, String lastName, String country, String cardNumber) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.samatov.payment_service.loadtest;
+
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ProviderSimulatorProperties;
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.config.WebClientConfig;
+import com.samatov.payment_service.config.WebhookProperties;
+import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.mapper.WebhookMapperImpl;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Webhook;
+import com.samatov.payment_service.repository.WebhookRepository;
+import com.samatov.payment_service.service.AccountService;
+import com.samatov.payment_service.service.TransactionService;
+import com.samatov.payment_service.service.impl.ProviderSimulator;
+import com.samatov.payment_service.service.impl.TransactionProcessingService;
+import com.samatov.payment_service.service.impl.WebhookBatchWriter;
+import com.samatov.payment_service.service.impl.WebhookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives N IN_PROGRESS transactions through {@link TransactionProcessingService} with the
+ * real webhook delivery path pointed at a {@link FakeWebhookReceiver}. Persistence is
+ * stubbed out so the numbers reflect the HTTP client, pool and receiver behaviour only.
+ * Run with {@code ./gradlew webhookLoadTest -Dload.transactions=10000 -Dload.latency=lognormal:50:0.8}.
+ */
+@Slf4j
+@Tag("load")
+class WebhookDeliveryLoadTest {
+
+    private final int transactions = Integer.getInteger("load.transactions", 2000);
+    private final Duration deadline = Duration.ofSeconds(Long.getLong("load.deadlineSeconds", 300));
+
+    private final Map<Long, Long> dispatchedAt = new ConcurrentHashMap<>();
+    private final Map<Long, Long> recordedAt = new ConcurrentHashMap<>();
+    private final Map<Long, String> outcomes = new ConcurrentHashMap<>();
+
+    @Test
+    void deliverWebhooksUnderLoad() throws Exception {
+        FakeWebhookReceiver.Settings settings = FakeWebhookReceiver.Settings.builder()
+                .latency(LatencyDistribution.parse(System.getProperty("load.latency", "exponential:20")))
+                .errorRate(Double.parseDouble(System.getProperty("load.errorRate", "0.02")))
+                .slowDripRate(Double.parseDouble(System.getProperty("load.slowDripRate", "0.01")))
+                .slowDripInterval(Duration.ofMillis(Long.getLong("load.slowDripIntervalMs", 50)))
+                .resetRate(Double.parseDouble(System.getProperty("load.resetRate", "0.01")))
+                .build();
+
+        try (FakeWebhookReceiver receiver = new FakeWebhookReceiver(settings)) {
+            TransactionProcessingService processingService = processingService(receiver.url());
+
+            long start = System.nanoTime();
+            processingService.processTransactions().subscribe();
+            awaitRecords(start);
+            long elapsed = System.nanoTime() - start;
+
+            report(receiver, elapsed);
+            assertThat(recordedAt).hasSize(transactions);
+            assertThat(receiver.duplicatedTransactions()).isZero();
+        }
+    }
+
+    private TransactionProcessingService processingService(String receiverUrl) {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        WebhookProperties properties = new WebhookProperties();
+        properties.setBaseUrl(receiverUrl);
+        properties.getClient().setMaxConnections(Integer.getInteger("load.maxConnections", properties.getClient().getMaxConnections()));
+        properties.getClient().setResponseTimeout(Duration.ofMillis(Long.getLong("load.responseTimeoutMs", properties.getClient().getResponseTimeout().toMillis())));
+
+        Map<Long, TransactionDto> store = new ConcurrentHashMap<>();
+        LongStream.rangeClosed(1, transactions).forEach(id -> store.put(id, transaction(id, receiverUrl)));
+
+        TransactionService transactionService = mock(TransactionService.class);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.fromIterable(store.values())
+                        .filter(transaction -> invocation.<SettlementClaim>getArgument(0).types().contains(transaction.getType())));
+        when(transactionService.transitionStatuses(any(), eq(TransactionStatus.IN_PROGRESS)))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<StatusTransition>>getArgument(0))
+                        .map(transition -> {
+                            TransactionDto transaction = store.get(transition.id());
+                            dispatchedAt.putIfAbsent(transition.id(), System.nanoTime());
+                            transaction.setStatus(transition.status());
+                            transaction.setMessage(transition.message());
+                            return transaction;
+                        }));
+
+        AccountService accountService = mock(AccountService.class);
+        when(accountService.transferFunds(anyLong(), anyLong(), any())).thenReturn(Mono.just(new AccountDto()));
+        when(accountService.unfreezeFunds(anyLong(), any())).thenReturn(Mono.just(new AccountDto()));
+        when(accountService.lockAccounts(any())).thenReturn(Mono.empty());
+
+        WebhookBatchWriter batchWriter = mock(WebhookBatchWriter.class);
+        when(batchWriter.enqueue(any(Webhook.class))).thenAnswer(invocation -> {
+            Webhook webhook = invocation.getArgument(0);
+            recordedAt.putIfAbsent(webhook.getTransactionId(), System.nanoTime());
+            outcomes.putIfAbsent(webhook.getTransactionId(), webhook.getStatus().name());
+            return Mono.empty();
+        });
+
+        WebhookServiceImpl webhookService = new WebhookServiceImpl(
+                mock(WebhookRepository.class),
+                new WebhookMapperImpl(),
+                new WebClientConfig().webClient(properties),
+                batchWriter,
+                pipelineMetrics);
+
+        TransactionProcessingProperties processingProperties = new TransactionProcessingProperties();
+        processingProperties.setBatchSize(transactions);
+
+        TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+        when(clusterCoordinator.ownedPartitions(anyString())).thenReturn(
+                IntStream.range(0, processingProperties.getPartitions()).boxed().collect(Collectors.toSet()));
+
+        return new TransactionProcessingService(transactionService, accountService, webhookService, processingProperties, pipelineMetrics,
+                clusterCoordinator, new ProviderSimulator(new ProviderSimulatorProperties()), transactionalOperator);
+    }
+
+    private TransactionDto transaction(long id, String notificationUrl) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(id);
+        transaction.setAccountFrom(1L);
+        transaction.setAccountTo(2L);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setCurrency(Currency.USD);
+        transaction.setNotificationUrl(notificationUrl);
+        transaction.setStatus(TransactionStatus.IN_PROGRESS);
+        transaction.setType(id % 2 == 0 ? TransactionType.TOP_UP : TransactionType.WITHDRAWAL);
+        return transaction;
+    }
+
+    private void awaitRecords(long start) throws InterruptedException {
+        long deadlineNanos = start + deadline.toNanos();
+        while (recordedAt.size() < transactions && System.nanoTime() < deadlineNanos) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void report(FakeWebhookReceiver receiver, long elapsedNanos) {
+        long[] latencies = recordedAt.entrySet().stream()
+                .filter(entry -> dispatchedAt.containsKey(entry.getKey()))
+                .mapToLong(entry -> entry.getValue() - dispatchedAt.get(entry.getKey()))
+                .sorted()
+                .toArray();
+        long delivered = outcomes.values().stream().filter("SUCCESS"::equals).count();
+        double seconds = elapsedNanos / 1e9;
+
+        List<String> lines = List.of(
+                "=== Webhook delivery load test ===",
+                String.format("transactions        %d (recorded %d)", transactions, recordedAt.size()),
+                String.format("elapsed             %.2f s", seconds),
+                String.format("throughput          %.1f deliveries/s", recordedAt.size() / seconds),
+                String.format("succeeded / failed  %d / %d", delivered, recordedAt.size() - delivered),
+                String.format("receiver            accepted=%d errors=%d slowDrips=%d resets=%d",
+                        receiver.accepted(), receiver.errors(), receiver.slowDrips(), receiver.resets()),
+                String.format("deliveries          %d (duplicated transactions %d)", receiver.totalDeliveries(), receiver.duplicatedTransactions()),
+                String.format("latency ms          p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                        percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                        percentile(latencies, 99.9), percentile(latencies, 100)));
+        lines.forEach(System.out::println);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
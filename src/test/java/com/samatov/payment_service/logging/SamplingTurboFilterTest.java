@@ -0,0 +1,87 @@
+package com.samatov.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для SamplingTurboFilter")
+class SamplingTurboFilterTest {
+
+    private static final String SAMPLED = "com.samatov.payment_service.service.impl.PaymentServiceImpl";
+
+    private Logger logger;
+    private Logger otherLogger;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        logger = context.getLogger(SAMPLED);
+        logger.setLevel(Level.DEBUG);
+        otherLogger = context.getLogger("com.samatov.payment_service.service.impl.AccountServiceImpl");
+        otherLogger.setLevel(Level.DEBUG);
+    }
+
+    @Test
+    @DisplayName("Должен отбрасывать события категории по частоте семплирования")
+    void shouldDropEventsOutsideSampleRate() {
+        SamplingTurboFilter filter = filter(0.0, 0);
+
+        assertEquals(FilterReply.DENY, filter.decide(null, logger, Level.INFO, "Processing {}", new Object[]{1}, null));
+        assertEquals(1, filter.getSuppressedCount());
+    }
+
+    @Test
+    @DisplayName("Не должен семплировать проверки isEnabled без формата")
+    void shouldNotSampleLevelChecks() {
+        SamplingTurboFilter filter = filter(0.0, 0);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, null, null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.DEBUG, null, null, null));
+        assertEquals(0, filter.getSuppressedCount());
+    }
+
+    @Test
+    @DisplayName("Не должен отбрасывать WARN, ERROR и события других логгеров")
+    void shouldKeepWarningsAndOtherLoggers() {
+        SamplingTurboFilter filter = filter(0.0, 0);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.WARN, "Slow", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.ERROR, "Failed", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, otherLogger, Level.INFO, "Processing", null, null));
+    }
+
+    @Test
+    @DisplayName("Должен ограничивать число событий в секунду")
+    void shouldCapEventsPerSecond() {
+        SamplingTurboFilter filter = filter(1.0, 3);
+
+        int admitted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (filter.decide(null, logger, Level.INFO, "Processing {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                admitted++;
+            }
+        }
+
+        // the cap window may roll over once during the loop
+        assertTrue(admitted >= 3 && admitted <= 6);
+        assertEquals(10 - admitted, filter.getSuppressedCount());
+    }
+
+    private static SamplingTurboFilter filter(double sampleRate, int maxPerSecond) {
+        SamplingTurboFilter.Category category = new SamplingTurboFilter.Category();
+        category.setLogger(SAMPLED);
+        category.setSampleRate(sampleRate);
+        category.setMaxPerSecond(maxPerSecond);
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.addCategory(category);
+        filter.start();
+        return filter;
+    }
+}
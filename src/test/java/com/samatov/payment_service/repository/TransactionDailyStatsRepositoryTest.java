@@ -0,0 +1,115 @@
+package com.samatov.payment_service.repository;
+
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.model.TransactionDailyStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionDailyStatsRepository")
+class TransactionDailyStatsRepositoryTest {
+
+    @Mock
+    private R2dbcEntityTemplate template;
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    @Mock
+    private FetchSpec<Map<String, Object>> fetchSpec;
+
+    private DatabaseClient.GenericExecuteSpec spec;
+    private TransactionDailyStatsRepository statsRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        spec = mock(DatabaseClient.GenericExecuteSpec.class, RETURNS_SELF);
+        when(template.getDatabaseClient()).thenReturn(databaseClient);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.fetch()).thenReturn(fetchSpec);
+        when(fetchSpec.rowsUpdated()).thenReturn(Mono.just(2L));
+        statsRepository = new TransactionDailyStatsRepository(template);
+    }
+
+    @Test
+    @DisplayName("Должен записать все дельты одним upsert-запросом")
+    void shouldApplyAllDeltasInOneUpsert() {
+        List<TransactionDailyStats> deltas = List.of(
+                delta(TransactionStatus.IN_PROGRESS, -1L, "-10.00"),
+                delta(TransactionStatus.SUCCESS, 1L, "10.00"));
+
+        StepVerifier.create(statsRepository.applyDeltas(deltas))
+                .expectNext(2L)
+                .verifyComplete();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(databaseClient).sql(sql.capture());
+        assertTrue(sql.getValue().contains("VALUES (:merchantAccountId0, :day0, :currency0, :type0, :status0, :count0, :amount0),"
+                + " (:merchantAccountId1, :day1, :currency1, :type1, :status1, :count1, :amount1)"));
+        assertTrue(sql.getValue().contains("ON CONFLICT (merchant_account_id, day, currency, type, status) DO UPDATE"));
+        assertTrue(sql.getValue().contains("tx_count = transaction_daily_stats.tx_count + EXCLUDED.tx_count"));
+        verify(spec).bind("status0", "IN_PROGRESS");
+        verify(spec).bind("count0", -1L);
+        verify(spec).bind("amount0", new BigDecimal("-10.00"));
+        verify(spec).bind("status1", "SUCCESS");
+        verify(spec).bind("count1", 1L);
+        verify(spec).bind("amount1", new BigDecimal("10.00"));
+    }
+
+    @Test
+    @DisplayName("Не должен обращаться к базе без дельт")
+    void shouldSkipEmptyDeltas() {
+        StepVerifier.create(statsRepository.applyDeltas(List.of()))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verifyNoInteractions(databaseClient);
+    }
+
+    @Test
+    @DisplayName("Должен пересчитать период по полуоткрытому интервалу created_at")
+    void shouldRebuildHalfOpenRange() {
+        LocalDate from = LocalDate.of(2024, 5, 1);
+        LocalDate to = LocalDate.of(2024, 5, 2);
+
+        StepVerifier.create(statsRepository.rebuildBetween(from, to))
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(spec).bind("from", from.atStartOfDay());
+        verify(spec).bind("toExclusive", LocalDate.of(2024, 5, 3).atStartOfDay());
+    }
+
+    private static TransactionDailyStats delta(TransactionStatus status, Long count, String amount) {
+        TransactionDailyStats delta = new TransactionDailyStats();
+        delta.setMerchantAccountId(20L);
+        delta.setDay(LocalDate.of(2024, 5, 1));
+        delta.setCurrency(Currency.USD);
+        delta.setType(TransactionType.TOP_UP);
+        delta.setStatus(status);
+        delta.setCount(count);
+        delta.setAmount(new BigDecimal(amount));
+        return delta;
+    }
+}
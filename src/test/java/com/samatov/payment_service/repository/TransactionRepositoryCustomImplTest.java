@@ -0,0 +1,187 @@
+package com.samatov.payment_service.repository;
+
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionCursor;
+import com.samatov.payment_service.dto.TransactionFilterDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveSelectOperation;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionRepositoryCustomImpl")
+class TransactionRepositoryCustomImplTest {
+
+    @Mock
+    private R2dbcEntityTemplate template;
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    @Mock
+    private RowsFetchSpec<Object> rowsFetchSpec;
+
+    private DatabaseClient.GenericExecuteSpec spec;
+    private TransactionRepositoryCustomImpl repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        spec = mock(DatabaseClient.GenericExecuteSpec.class, RETURNS_SELF);
+        when(template.getDatabaseClient()).thenReturn(databaseClient);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        doReturn(rowsFetchSpec).when(spec).map(any(BiFunction.class));
+        when(rowsFetchSpec.all()).thenReturn(Flux.empty());
+        repository = new TransactionRepositoryCustomImpl(template);
+    }
+
+    @Test
+    @DisplayName("Должен выбирать очередь каждого мерчанта через LATERAL с ограничением")
+    void shouldClaimEachMerchantBacklogThroughBoundedLateral() {
+        StepVerifier.create(repository.findInProgress(claim(null)))
+                .verifyComplete();
+
+        String sql = capturedSql();
+        assertTrue(sql.contains("WITH RECURSIVE merchants"));
+        assertTrue(sql.contains("CROSS JOIN LATERAL"));
+        assertFalse(sql.contains("mod(t.account_from"));
+        verify(spec).bind("types", new String[]{"TOP_UP"});
+        verify(spec).bind("amountTiers", "{100,1000}");
+        verify(spec).bind("merchantQuantum", 10);
+        verify(spec).bind("limit", 50);
+        verify(spec, never()).bind(eq("partitions"), any());
+    }
+
+    @Test
+    @DisplayName("Должен ограничить выборку партициями узла")
+    void shouldFilterByOwnedPartitions() {
+        StepVerifier.create(repository.findInProgress(claim(List.of(1, 3))))
+                .verifyComplete();
+
+        assertTrue(capturedSql().contains("AND mod(t.account_from, :partitionCount) IN (:partitions)"));
+        verify(spec).bind("partitionCount", 8);
+        verify(spec).bind("partitions", List.of(1, 3));
+    }
+
+    @Test
+    @DisplayName("Должен читать обе стороны мерчанта по отдельности и сливать их от новых к старым")
+    @SuppressWarnings("unchecked")
+    void shouldMergeBothMerchantSidesNewestFirst() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        ReactiveSelectOperation.ReactiveSelect<Transaction> select = mock(ReactiveSelectOperation.ReactiveSelect.class);
+        ReactiveSelectOperation.TerminatingSelect<Transaction> topUps = mock(ReactiveSelectOperation.TerminatingSelect.class);
+        ReactiveSelectOperation.TerminatingSelect<Transaction> payouts = mock(ReactiveSelectOperation.TerminatingSelect.class);
+        when(template.select(Transaction.class)).thenReturn(select);
+        when(select.matching(any(Query.class))).thenReturn(topUps, payouts);
+        when(topUps.all()).thenReturn(Flux.just(transaction(5L, now), transaction(3L, now.minusMinutes(2))));
+        when(payouts.all()).thenReturn(Flux.just(transaction(4L, now.minusMinutes(1)), transaction(2L, now.minusMinutes(3))));
+
+        TransactionFilterDto filter = new TransactionFilterDto();
+        filter.setMerchantAccountId(7L);
+
+        StepVerifier.create(repository.findPage(filter, new TransactionCursor(now.plusMinutes(1), 10L), 3).map(Transaction::getId))
+                .expectNext(5L, 4L, 3L)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(select, times(2)).matching(queries.capture());
+        queries.getAllValues().forEach(query -> assertEquals(3, query.getLimit()));
+    }
+
+    @Test
+    @DisplayName("Должен читать только одну сторону мерчанта при фильтре по типу")
+    @SuppressWarnings("unchecked")
+    void shouldReadOneMerchantSideWhenTypeIsFiltered() {
+        ReactiveSelectOperation.ReactiveSelect<Transaction> select = mock(ReactiveSelectOperation.ReactiveSelect.class);
+        ReactiveSelectOperation.TerminatingSelect<Transaction> payouts = mock(ReactiveSelectOperation.TerminatingSelect.class);
+        when(template.select(Transaction.class)).thenReturn(select);
+        when(select.matching(any(Query.class))).thenReturn(payouts);
+        when(payouts.all()).thenReturn(Flux.just(transaction(4L, LocalDateTime.of(2024, 5, 1, 12, 0))));
+
+        TransactionFilterDto filter = new TransactionFilterDto();
+        filter.setMerchantAccountId(7L);
+        filter.setType(TransactionType.WITHDRAWAL);
+
+        StepVerifier.create(repository.findPage(filter, null, 3).map(Transaction::getId))
+                .expectNext(4L)
+                .verifyComplete();
+
+        verify(select, times(1)).matching(any(Query.class));
+    }
+
+    @Test
+    @DisplayName("Должен переводить статусы группы одним UPDATE в пределах её партиций")
+    void shouldTransitionGroupInOneUpdate() {
+        LocalDateTime older = LocalDateTime.of(2024, 4, 30, 23, 59);
+        LocalDateTime newer = LocalDateTime.of(2024, 5, 1, 0, 1);
+        List<StatusTransition> transitions = List.of(
+                new StatusTransition(2L, newer, TransactionStatus.SUCCESS, "ok"),
+                new StatusTransition(1L, older, TransactionStatus.FAILED, null));
+
+        StepVerifier.create(repository.compareAndSetStatuses(transitions, TransactionStatus.IN_PROGRESS))
+                .verifyComplete();
+
+        assertTrue(capturedSql().contains("FROM unnest("));
+        verify(spec).bind("ids", new Long[]{2L, 1L});
+        verify(spec).bind("createdAts", new String[]{"2024-05-01T00:01", "2024-04-30T23:59"});
+        verify(spec).bind("statuses", new String[]{"SUCCESS", "FAILED"});
+        verify(spec).bind("messages", new String[]{"ok", null});
+        verify(spec).bind("expected", "IN_PROGRESS");
+        verify(spec).bind("oldest", older);
+        verify(spec).bind("newest", newer);
+    }
+
+    @Test
+    @DisplayName("Не должен обращаться к базе для пустой группы")
+    void shouldSkipEmptyTransitionGroup() {
+        StepVerifier.create(repository.compareAndSetStatuses(List.of(), TransactionStatus.IN_PROGRESS))
+                .verifyComplete();
+
+        verifyNoInteractions(databaseClient);
+    }
+
+    private static Transaction transaction(Long id, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
+
+    private String capturedSql() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(databaseClient).sql(sql.capture());
+        return sql.getValue();
+    }
+
+    private static SettlementClaim claim(List<Integer> partitions) {
+        return new SettlementClaim(Set.of(TransactionType.TOP_UP), partitions, 8, 10,
+                List.of(new BigDecimal("100"), new BigDecimal("1000")), 50);
+    }
+}
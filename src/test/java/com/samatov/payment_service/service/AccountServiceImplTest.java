@@ -1,13 +1,19 @@
 package com.samatov.payment_service.service;
 
 import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.exception.AccountNotFoundException;
+import com.samatov.payment_service.exception.CurrencyMismatchException;
+import com.samatov.payment_service.exception.InsufficientFundsException;
 import com.samatov.payment_service.mapper.AccountMapper;
 import com.samatov.payment_service.model.Account;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.repository.AccountRepository;
 import com.samatov.payment_service.service.impl.AccountServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -149,75 +155,170 @@ class AccountServiceImplTest {
     }
 
     @Test
-    @DisplayName("Должен заморозить средства на счете")
+    @DisplayName("Должен заморозить средства на счете одним условным обновлением")
     void shouldFreezeFunds() {
         Long accountId = 1L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of(new BigDecimal("100.00"), Currency.USD);
         Account account = new Account();
-        account.setBalance(new BigDecimal("200.00"));
-        account.setFrozenAmount(BigDecimal.ZERO);
         AccountDto accountDto = new AccountDto();
 
-        when(accountRepository.findById(accountId)).thenReturn(Mono.just(account));
-        when(accountRepository.save(account)).thenReturn(Mono.just(account));
+        when(accountRepository.freeze(accountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(account));
         when(accountMapper.toDto(account)).thenReturn(accountDto);
 
         StepVerifier.create(accountService.freezeFunds(accountId, amount))
                 .expectNext(accountDto)
                 .verifyComplete();
 
-        verify(accountRepository).findById(accountId);
-        verify(accountRepository).save(account);
-        verify(accountMapper).toDto(account);
+        verify(accountRepository).freeze(accountId, new BigDecimal("100.00"), "USD");
+        verify(accountRepository, never()).findById(accountId);
+        verify(accountRepository, never()).save(any(Account.class));
     }
 
     @Test
-    @DisplayName("Должен разморозить средства на счете")
+    @DisplayName("Должен отклонить заморозку при недостатке средств")
+    void shouldRejectFreezeWithInsufficientFunds() {
+        Long accountId = 1L;
+        Account account = new Account();
+        account.setId(accountId);
+        account.setCurrency(Currency.USD);
+
+        when(accountRepository.freeze(accountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.empty());
+        when(accountRepository.findById(accountId)).thenReturn(Mono.just(account));
+
+        StepVerifier.create(accountService.freezeFunds(accountId, Money.of(new BigDecimal("100.00"), Currency.USD)))
+                .expectError(InsufficientFundsException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Должен отклонить заморозку на несуществующем счете")
+    void shouldRejectFreezeOnMissingAccount() {
+        Long accountId = 1L;
+
+        when(accountRepository.freeze(accountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.empty());
+        when(accountRepository.findById(accountId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountService.freezeFunds(accountId, Money.of(new BigDecimal("100.00"), Currency.USD)))
+                .expectError(AccountNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Должен отклонить заморозку в валюте, отличной от валюты счета")
+    void shouldRejectFreezeInOtherCurrency() {
+        Long accountId = 1L;
+        Account account = new Account();
+        account.setId(accountId);
+        account.setCurrency(Currency.EUR);
+
+        when(accountRepository.freeze(accountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.empty());
+        when(accountRepository.findById(accountId)).thenReturn(Mono.just(account));
+
+        StepVerifier.create(accountService.freezeFunds(accountId, Money.of(new BigDecimal("100.00"), Currency.USD)))
+                .expectError(CurrencyMismatchException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Должен разморозить средства на счете одним условным обновлением")
     void shouldUnfreezeFunds() {
         Long accountId = 1L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of(new BigDecimal("100.00"), Currency.USD);
         Account account = new Account();
-        account.setBalance(new BigDecimal("100.00"));
-        account.setFrozenAmount(new BigDecimal("100.00"));
         AccountDto accountDto = new AccountDto();
 
-        when(accountRepository.findById(accountId)).thenReturn(Mono.just(account));
-        when(accountRepository.save(account)).thenReturn(Mono.just(account));
+        when(accountRepository.unfreeze(accountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(account));
         when(accountMapper.toDto(account)).thenReturn(accountDto);
 
         StepVerifier.create(accountService.unfreezeFunds(accountId, amount))
                 .expectNext(accountDto)
                 .verifyComplete();
 
-        verify(accountRepository).findById(accountId);
-        verify(accountRepository).save(account);
-        verify(accountMapper).toDto(account);
+        verify(accountRepository).unfreeze(accountId, new BigDecimal("100.00"), "USD");
+        verify(accountRepository, never()).save(any(Account.class));
     }
 
     @Test
-    @DisplayName("Должен перевести средства между счетами")
+    @DisplayName("Должен перевести средства, сначала списав со счета с меньшим ID")
     void shouldTransferFunds() {
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of(new BigDecimal("100.00"), Currency.USD);
         Account fromAccount = new Account();
-        fromAccount.setBalance(new BigDecimal("200.00"));
         Account toAccount = new Account();
-        toAccount.setBalance(new BigDecimal("50.00"));
         AccountDto accountDto = new AccountDto();
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Mono.just(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Mono.just(toAccount));
-        when(accountRepository.save(any(Account.class))).thenReturn(Mono.just(new Account()));
-        when(accountMapper.toDto(any(Account.class))).thenReturn(accountDto);
+        when(accountRepository.debit(fromAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(fromAccount));
+        when(accountRepository.credit(toAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(toAccount));
+        when(accountMapper.toDto(toAccount)).thenReturn(accountDto);
+
+        StepVerifier.create(accountService.transferFunds(fromAccountId, toAccountId, amount))
+                .expectNext(accountDto)
+                .verifyComplete();
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).debit(fromAccountId, new BigDecimal("100.00"), "USD");
+        inOrder.verify(accountRepository).credit(toAccountId, new BigDecimal("100.00"), "USD");
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    @DisplayName("Должен перевести средства, сначала зачислив на счет с меньшим ID")
+    void shouldTransferFundsInAccountIdOrder() {
+        Long fromAccountId = 2L;
+        Long toAccountId = 1L;
+        Money amount = Money.of(new BigDecimal("100.00"), Currency.USD);
+        Account fromAccount = new Account();
+        Account toAccount = new Account();
+        AccountDto accountDto = new AccountDto();
+
+        when(accountRepository.debit(fromAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(fromAccount));
+        when(accountRepository.credit(toAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(toAccount));
+        when(accountMapper.toDto(toAccount)).thenReturn(accountDto);
 
         StepVerifier.create(accountService.transferFunds(fromAccountId, toAccountId, amount))
                 .expectNext(accountDto)
                 .verifyComplete();
 
-        verify(accountRepository).findById(fromAccountId);
-        verify(accountRepository).findById(toAccountId);
-        verify(accountRepository, times(2)).save(any(Account.class));
-        verify(accountMapper).toDto(any(Account.class));
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).credit(toAccountId, new BigDecimal("100.00"), "USD");
+        inOrder.verify(accountRepository).debit(fromAccountId, new BigDecimal("100.00"), "USD");
+    }
+
+    @Test
+    @DisplayName("Должен отклонить перевод, если счет получателя в другой валюте")
+    void shouldRejectTransferWhenTargetCurrencyDiffers() {
+        Long fromAccountId = 1L;
+        Long toAccountId = 2L;
+        Account toAccount = new Account();
+        toAccount.setId(toAccountId);
+        toAccount.setCurrency(Currency.EUR);
+
+        when(accountRepository.debit(fromAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.just(new Account()));
+        when(accountRepository.credit(toAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.empty());
+        when(accountRepository.findById(toAccountId)).thenReturn(Mono.just(toAccount));
+
+        StepVerifier.create(accountService.transferFunds(fromAccountId, toAccountId, Money.of(new BigDecimal("100.00"), Currency.USD)))
+                .expectError(CurrencyMismatchException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Не должен зачислять средства, если списание не прошло")
+    void shouldNotCreditWhenDebitFails() {
+        Long fromAccountId = 1L;
+        Long toAccountId = 2L;
+        Account fromAccount = new Account();
+        fromAccount.setId(fromAccountId);
+        fromAccount.setCurrency(Currency.USD);
+
+        when(accountRepository.debit(fromAccountId, new BigDecimal("100.00"), "USD")).thenReturn(Mono.empty());
+        when(accountRepository.findById(fromAccountId)).thenReturn(Mono.just(fromAccount));
+
+        StepVerifier.create(accountService.transferFunds(fromAccountId, toAccountId, Money.of(new BigDecimal("100.00"), Currency.USD)))
+                .expectError(InsufficientFundsException.class)
+                .verify();
+
+        verify(accountRepository, never()).credit(any(), any(), any());
     }
 }
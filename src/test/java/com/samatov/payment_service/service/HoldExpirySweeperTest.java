@@ -0,0 +1,166 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ClusterConfig;
+import com.samatov.payment_service.config.TransactionHoldProperties;
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.TransactionHold;
+import com.samatov.payment_service.service.impl.HoldExpirySweeper;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для HoldExpirySweeper")
+class HoldExpirySweeperTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final AccountService accountService = mock(AccountService.class);
+    private final WebhookService webhookService = mock(WebhookService.class);
+    private final PipelineMetrics pipelineMetrics = mock(PipelineMetrics.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+    private final TransactionHoldProperties holdProperties = new TransactionHoldProperties();
+    private final TransactionProcessingProperties processingProperties = new TransactionProcessingProperties();
+
+    private VirtualTimeScheduler scheduler;
+    private TransactionHoldTracker holdTracker;
+    private HoldExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        holdProperties.setTick(Duration.ofSeconds(1));
+        holdProperties.setRecoveryInterval(Duration.ofMinutes(10));
+        processingProperties.setDrainTimeout(Duration.ofSeconds(30));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionService.findOpenHolds()).thenReturn(Flux.empty());
+        when(accountService.unfreezeFunds(any(), any())).thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(), anyString())).thenReturn(Mono.empty());
+        holdTracker = new TransactionHoldTracker(holdProperties);
+        sweeper = new HoldExpirySweeper(holdTracker, transactionService, accountService, webhookService, holdProperties,
+                processingProperties, pipelineMetrics, clusterCoordinator, transactionalOperator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.stop();
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    @DisplayName("Должен взять на отслеживание открытые удержания из базы при старте")
+    void shouldSeedTrackerFromOpenHolds() {
+        when(transactionService.findOpenHolds()).thenReturn(Flux.just(
+                new TransactionHold(1L, CREATED_AT, LocalDateTime.now().plusMinutes(5)),
+                new TransactionHold(2L, CREATED_AT, LocalDateTime.now().plusMinutes(10))));
+
+        sweeper.start();
+
+        assertEquals(2, holdTracker.trackedCount());
+    }
+
+    @Test
+    @DisplayName("Должен провалить транзакцию и вернуть замороженные средства, когда удержание истекло")
+    void shouldFailTransactionAndReleaseFundsOnExpiry() {
+        TransactionDto failed = transaction(TransactionStatus.FAILED);
+        when(transactionService.findOpenHolds()).thenReturn(Flux.just(overdueHold()));
+        when(transactionService.transitionStatus(eq(1L), eq(CREATED_AT), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED), anyString()))
+                .thenReturn(Mono.just(failed));
+
+        sweeper.start();
+        scheduler.advanceTimeBy(holdProperties.getTick());
+
+        verify(accountService).unfreezeFunds(eq(10L), any());
+        verify(webhookService).sendWebhook(failed, "FAILED");
+        verify(pipelineMetrics).holdExpired("wheel");
+        assertEquals(0, holdTracker.trackedCount());
+    }
+
+    @Test
+    @DisplayName("Не должен размораживать средства, если транзакцию успели провести раньше истечения")
+    void shouldNotReleaseFundsWhenSettlementWinsRace() {
+        when(transactionService.findOpenHolds()).thenReturn(Flux.just(overdueHold()));
+        // settlement flipped the status first, so the compare-and-set finds no IN_PROGRESS row
+        when(transactionService.transitionStatus(any(), any(), any(), any(), anyString())).thenReturn(Mono.empty());
+
+        sweeper.start();
+        scheduler.advanceTimeBy(holdProperties.getTick());
+
+        verify(transactionService).transitionStatus(eq(1L), eq(CREATED_AT), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED), anyString());
+        verifyNoInteractions(accountService, webhookService);
+        verify(pipelineMetrics, never()).holdExpired(anyString());
+    }
+
+    @Test
+    @DisplayName("Должен запускать страховочный проход только на лидере")
+    void shouldRunRecoverySweepOnlyOnLeader() {
+        when(clusterCoordinator.isLeader(ClusterConfig.HOLD_RECOVERY)).thenReturn(false);
+        when(transactionService.findExpiredHolds(any(), anyInt())).thenReturn(Flux.empty());
+
+        sweeper.start();
+        scheduler.advanceTimeBy(holdProperties.getRecoveryInterval());
+
+        verify(transactionService, never()).findExpiredHolds(any(), anyInt());
+
+        when(clusterCoordinator.isLeader(ClusterConfig.HOLD_RECOVERY)).thenReturn(true);
+        scheduler.advanceTimeBy(holdProperties.getRecoveryInterval());
+
+        verify(transactionService).findExpiredHolds(any(), eq(holdProperties.getRecoveryBatchSize()));
+    }
+
+    @Test
+    @DisplayName("Должен вернуть средства по удержанию, которое не отслеживал ни один узел")
+    void shouldExpireUntrackedHoldInRecoverySweep() {
+        TransactionDto failed = transaction(TransactionStatus.FAILED);
+        when(clusterCoordinator.isLeader(ClusterConfig.HOLD_RECOVERY)).thenReturn(true);
+        when(transactionService.findExpiredHolds(any(), anyInt())).thenReturn(Flux.just(transaction(TransactionStatus.IN_PROGRESS)));
+        when(transactionService.transitionStatus(eq(1L), eq(CREATED_AT), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED), anyString()))
+                .thenReturn(Mono.just(failed));
+
+        sweeper.start();
+        scheduler.advanceTimeBy(holdProperties.getRecoveryInterval());
+
+        verify(accountService).unfreezeFunds(eq(10L), any());
+        verify(pipelineMetrics).holdExpired("recovery");
+    }
+
+    private static TransactionHold overdueHold() {
+        return new TransactionHold(1L, CREATED_AT, LocalDateTime.now().minusMinutes(1));
+    }
+
+    private static TransactionDto transaction(TransactionStatus status) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(1L);
+        transaction.setAccountFrom(10L);
+        transaction.setAccountTo(20L);
+        transaction.setAmount(new BigDecimal("100.00"));
+        transaction.setCurrency(Currency.USD);
+        transaction.setStatus(status);
+        transaction.setCreatedAt(CREATED_AT);
+        return transaction;
+    }
+}
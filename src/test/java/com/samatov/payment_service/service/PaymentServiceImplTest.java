@@ -5,19 +5,26 @@ import com.samatov.payment_service.enums.Currency;
 import com.samatov.payment_service.enums.Language;
 import com.samatov.payment_service.enums.PaymentMethod;
 import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.exception.CurrencyMismatchException;
+import com.samatov.payment_service.exception.InvalidRequestException;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.model.Money;
 import com.samatov.payment_service.service.impl.PaymentServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @DisplayName("Тесты для PaymentServiceImpl")
@@ -33,6 +40,8 @@ class PaymentServiceImplTest {
     private MerchantService merchantService;
     @Mock
     private TransactionService transactionService;
+    @Spy
+    private PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -47,6 +56,7 @@ class PaymentServiceImplTest {
     void shouldProcessTopUp() {
         TopUpRequestDto request = new TopUpRequestDto();
         request.setAmount(BigDecimal.valueOf(100));
+        request.setCurrency(Currency.USD);
         request.setCardData(new CardDataDto());
         request.setCustomer(new CustomerDto());
 
@@ -55,10 +65,12 @@ class PaymentServiceImplTest {
         customerDto.setUserId(1L);
         AccountDto customerAccountDto = new AccountDto();
         customerAccountDto.setId(1L);
+        customerAccountDto.setCurrency(Currency.USD);
         MerchantDto merchantDto = new MerchantDto();
         merchantDto.setUserId(2L);
         AccountDto merchantAccountDto = new AccountDto();
         merchantAccountDto.setId(2L);
+        merchantAccountDto.setCurrency(Currency.USD);
         TransactionDto transactionDto = new TransactionDto();
         transactionDto.setId(1L);
         transactionDto.setStatus(TransactionStatus.IN_PROGRESS);
@@ -83,7 +95,7 @@ class PaymentServiceImplTest {
         verify(customerService).findOrCreateCustomer(any());
         verify(accountService, times(2)).findByUserId(any());
         verify(merchantService).findDefaultMerchant();
-        verify(accountService).freezeFunds(any(), any());
+        verify(accountService).freezeFunds(any(), eq(Money.of(BigDecimal.valueOf(100), Currency.USD)));
         verify(transactionService).createTransaction(any());
     }
 
@@ -109,6 +121,7 @@ class PaymentServiceImplTest {
         merchantDto.setUserId(1L);
         AccountDto merchantAccountDto = new AccountDto();
         merchantAccountDto.setId(1L);
+        merchantAccountDto.setCurrency(Currency.USD);
         CustomerDto customerDto = new CustomerDto();
         customerDto.setUserId(2L);
         customerDto.setFirstName("John");
@@ -116,6 +129,7 @@ class PaymentServiceImplTest {
         customerDto.setCountry("US");
         AccountDto customerAccountDto = new AccountDto();
         customerAccountDto.setId(2L);
+        customerAccountDto.setCurrency(Currency.USD);
         TransactionDto transactionDto = new TransactionDto();
         transactionDto.setId(1L);
         transactionDto.setStatus(TransactionStatus.IN_PROGRESS);
@@ -138,7 +152,69 @@ class PaymentServiceImplTest {
         verify(merchantService).findByUserId(1L);
         verify(accountService, times(2)).findByUserId(any());
         verify(customerService).findOrCreateCustomer(any());
-        verify(accountService).freezeFunds(any(), any());
+        verify(accountService).freezeFunds(any(), eq(Money.of(BigDecimal.valueOf(100), Currency.USD)));
         verify(transactionService).createTransaction(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Должен отклонить пополнение с неположительной суммой")
+    void shouldRejectTopUpWithNonPositiveAmount() {
+        TopUpRequestDto request = new TopUpRequestDto();
+        request.setAmount(BigDecimal.ZERO);
+        request.setCurrency(Currency.USD);
+
+        StepVerifier.create(paymentService.processTopUp(request))
+                .expectError(InvalidRequestException.class)
+                .verify();
+
+        verifyNoInteractions(cardService, transactionService);
+    }
+
+    @Test
+    @DisplayName("Должен отклонить вывод средств с суммой, непредставимой в валюте")
+    void shouldRejectWithdrawalWithUnrepresentableAmount() {
+        PayoutRequestDto request = new PayoutRequestDto();
+        request.setAmount(new BigDecimal("10.5"));
+        request.setCurrency(Currency.JPY);
+
+        StepVerifier.create(paymentService.processWithdrawal(request))
+                .expectError(InvalidRequestException.class)
+                .verify();
+
+        verifyNoInteractions(merchantService, transactionService);
+    }
+
+    @Test
+    @DisplayName("Должен отклонить пополнение, если счет мерчанта в другой валюте")
+    void shouldRejectTopUpWhenMerchantAccountCurrencyDiffers() {
+        TopUpRequestDto request = new TopUpRequestDto();
+        request.setAmount(BigDecimal.valueOf(100));
+        request.setCurrency(Currency.USD);
+        request.setCardData(new CardDataDto());
+        request.setCustomer(new CustomerDto());
+
+        CustomerDto customerDto = new CustomerDto();
+        customerDto.setUserId(1L);
+        AccountDto customerAccountDto = new AccountDto();
+        customerAccountDto.setId(1L);
+        customerAccountDto.setCurrency(Currency.USD);
+        MerchantDto merchantDto = new MerchantDto();
+        merchantDto.setUserId(2L);
+        AccountDto merchantAccountDto = new AccountDto();
+        merchantAccountDto.setId(2L);
+        merchantAccountDto.setCurrency(Currency.EUR);
+
+        when(cardService.validateCard(any(), any(), any())).thenReturn(Mono.just(new CardDto()));
+        when(customerService.findOrCreateCustomer(any())).thenReturn(Mono.just(customerDto));
+        when(accountService.findByUserId(customerDto.getUserId())).thenReturn(Mono.just(customerAccountDto));
+        when(merchantService.findDefaultMerchant()).thenReturn(Mono.just(merchantDto));
+        when(accountService.findByUserId(merchantDto.getUserId())).thenReturn(Mono.just(merchantAccountDto));
+
+        StepVerifier.create(paymentService.processTopUp(request))
+                .expectError(CurrencyMismatchException.class)
+                .verify();
+
+        verify(accountService, never()).freezeFunds(any(), any());
+        verifyNoInteractions(transactionService);
+    }
+}
@@ -0,0 +1,98 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.ProfilingProperties;
+import com.samatov.payment_service.dto.RecordingDto;
+import com.samatov.payment_service.exception.RecordingNotFoundException;
+import com.samatov.payment_service.service.impl.ProfilingServiceImpl;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для ProfilingServiceImpl")
+class ProfilingServiceImplTest {
+
+    @TempDir
+    private Path dumpDirectory;
+
+    private final ProfilingProperties profilingProperties = new ProfilingProperties();
+    private ProfilingServiceImpl profilingService;
+    private Recording foreignRecording;
+
+    @BeforeEach
+    void setUp() {
+        profilingProperties.setDumpDirectory(dumpDirectory);
+        profilingProperties.setSettings("default");
+        profilingService = new ProfilingServiceImpl(profilingProperties, Schedulers.immediate());
+        foreignRecording = new Recording();
+        foreignRecording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        foreignRecording.close();
+        profilingService.findRecordings()
+                .flatMap(recording -> profilingService.closeRecording(recording.getId()))
+                .blockLast();
+    }
+
+    @Test
+    @DisplayName("Должен показывать только записи, запущенные сервисом")
+    void shouldOnlyExposeOwnRecordings() {
+        RecordingDto started = profilingService.startRecording(null, null).block();
+
+        StepVerifier.create(profilingService.findRecordings().map(RecordingDto::getId))
+                .expectNext(started.getId())
+                .verifyComplete();
+        StepVerifier.create(profilingService.stopRecording(foreignRecording.getId()))
+                .expectError(RecordingNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Должен удалить дампы записи при ее закрытии")
+    void shouldDeleteDumpsOnClose() {
+        RecordingDto started = profilingService.startRecording(null, null).block();
+        Path dump = profilingService.dumpRecording(started.getId()).block();
+        assertTrue(Files.exists(dump));
+
+        StepVerifier.create(profilingService.closeRecording(started.getId()))
+                .verifyComplete();
+
+        assertFalse(Files.exists(dump));
+    }
+
+    @Test
+    @DisplayName("Должен удалить дампы старше срока хранения и сверх лимита")
+    void shouldPruneDumpsBeyondRetention() throws Exception {
+        profilingProperties.setMaxDumpFiles(2);
+        profilingProperties.setDumpRetention(Duration.ofHours(1));
+        Path expired = Files.createFile(dumpDirectory.resolve("expired.jfr"));
+        Files.setLastModifiedTime(expired, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Path older = Files.createFile(dumpDirectory.resolve("older.jfr"));
+        Files.setLastModifiedTime(older, FileTime.from(Instant.now().minus(Duration.ofMinutes(10))));
+        Path newer = Files.createFile(dumpDirectory.resolve("newer.jfr"));
+        Files.setLastModifiedTime(newer, FileTime.from(Instant.now().minus(Duration.ofMinutes(5))));
+        RecordingDto started = profilingService.startRecording(null, null).block();
+
+        Path dump = profilingService.dumpRecording(started.getId()).block();
+
+        assertTrue(Files.exists(dump));
+        assertTrue(Files.exists(newer));
+        assertFalse(Files.exists(older));
+        assertFalse(Files.exists(expired));
+    }
+}
@@ -0,0 +1,118 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.ProviderSimulatorProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.service.impl.ProviderSimulator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для ProviderSimulator")
+class ProviderSimulatorTest {
+
+    private final ProviderSimulatorProperties simulatorProperties = new ProviderSimulatorProperties();
+    private final ProviderSimulator simulator = new ProviderSimulator(simulatorProperties);
+
+    @Test
+    @DisplayName("Должен повторять решения при одинаковом seed")
+    void shouldReplayDecisionsWithSameSeed() {
+        simulatorProperties.setSeed(42L);
+        simulatorProperties.getDefaults().getDelay().setDistribution(ProviderSimulatorProperties.Distribution.LONG_TAIL);
+        simulatorProperties.getDefaults().getDelay().setMean(Duration.ofMillis(100));
+
+        List<ProviderSimulator.Decision> first = decideAll();
+        List<ProviderSimulator.Decision> replay = decideAll();
+        simulatorProperties.setSeed(43L);
+        List<ProviderSimulator.Decision> otherSeed = decideAll();
+
+        assertEquals(first, replay);
+        assertNotEquals(first, otherSeed);
+    }
+
+    @Test
+    @DisplayName("Должен принудительно задать исход по тестовой карте")
+    void shouldForceOutcomeForTestCard() {
+        simulatorProperties.getDefaults().setSuccessRate(1.0);
+
+        ProviderSimulator.Decision declined = simulator.decide(transaction(1L, 10L, "100.00", "4000000000009995"));
+        assertEquals(TransactionStatus.FAILED, declined.outcome().status());
+        assertEquals("Transaction declined: insufficient_funds", declined.outcome().message());
+
+        simulatorProperties.getDefaults().setSuccessRate(0.0);
+
+        assertEquals(TransactionStatus.SUCCESS, simulator.decide(transaction(2L, 10L, "100.00", "4242424242424242")).outcome().status());
+    }
+
+    @Test
+    @DisplayName("Должен применить первое подходящее правило")
+    void shouldApplyFirstMatchingRule() {
+        ProviderSimulatorProperties.Rule bigPayouts = new ProviderSimulatorProperties.Rule();
+        bigPayouts.setMerchantAccounts(Set.of(10L));
+        bigPayouts.setCurrencies(Set.of(Currency.USD));
+        bigPayouts.setMinAmount(new BigDecimal("1000"));
+        bigPayouts.setSuccessRate(0.0);
+        bigPayouts.setDeclineCodes(Map.of("do_not_honor", 1.0));
+        bigPayouts.getDelay().setMean(Duration.ofSeconds(2));
+        ProviderSimulatorProperties.Rule catchAll = new ProviderSimulatorProperties.Rule();
+        catchAll.setSuccessRate(0.0);
+        catchAll.setDeclineCodes(Map.of("card_declined", 1.0));
+        simulatorProperties.setRules(List.of(bigPayouts, catchAll));
+
+        ProviderSimulator.Decision matched = simulator.decide(transaction(1L, 10L, "1000.00", null));
+        assertEquals("Transaction declined: do_not_honor", matched.outcome().message());
+        assertEquals(Duration.ofSeconds(2), matched.delay());
+
+        ProviderSimulator.Decision belowMinimum = simulator.decide(transaction(2L, 10L, "999.99", null));
+        assertEquals("Transaction declined: card_declined", belowMinimum.outcome().message());
+        assertEquals(Duration.ZERO, belowMinimum.delay());
+
+        assertEquals("Transaction declined: card_declined",
+                simulator.decide(transaction(3L, 11L, "5000.00", null)).outcome().message());
+    }
+
+    @Test
+    @DisplayName("Должен ограничить задержку максимумом")
+    void shouldCapDelay() {
+        simulatorProperties.setSeed(7L);
+        ProviderSimulatorProperties.Delay delay = simulatorProperties.getDefaults().getDelay();
+        delay.setDistribution(ProviderSimulatorProperties.Distribution.NORMAL);
+        delay.setMean(Duration.ofMillis(500));
+        delay.setStddev(Duration.ofSeconds(5));
+        delay.setMax(Duration.ofSeconds(1));
+
+        decideAll().forEach(decision -> assertTrue(
+                !decision.delay().isNegative() && decision.delay().compareTo(Duration.ofSeconds(1)) <= 0,
+                "delay " + decision.delay()));
+    }
+
+    private List<ProviderSimulator.Decision> decideAll() {
+        return LongStream.rangeClosed(1, 200)
+                .mapToObj(id -> simulator.decide(transaction(id, 10L, "100.00", null)))
+                .toList();
+    }
+
+    private static TransactionDto transaction(Long id, Long merchantAccount, String amount, String cardNumber) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(id);
+        transaction.setType(TransactionType.WITHDRAWAL);
+        transaction.setAccountFrom(merchantAccount);
+        transaction.setAccountTo(99L);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setCurrency(Currency.USD);
+        transaction.setCardNumber(cardNumber);
+        return transaction;
+    }
+}
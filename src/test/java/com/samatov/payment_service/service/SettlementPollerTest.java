@@ -0,0 +1,163 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.TransactionProcessingProperties;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.service.impl.SettlementPoller;
+import com.samatov.payment_service.service.impl.TransactionProcessingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для SettlementPoller")
+class SettlementPollerTest {
+
+    private final TransactionProcessingService processingService = mock(TransactionProcessingService.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final PipelineMetrics pipelineMetrics = mock(PipelineMetrics.class);
+    private final TransactionProcessingProperties processingProperties = new TransactionProcessingProperties();
+
+    private VirtualTimeScheduler scheduler;
+    private SettlementPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        processingProperties.setBatchSize(10);
+        processingProperties.setDrainTimeout(Duration.ofSeconds(30));
+        when(transactionService.countInProgress()).thenReturn(Mono.just(0L));
+        poller = new SettlementPoller(processingService, transactionService, processingProperties, pipelineMetrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        poller.stop();
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    @DisplayName("Должен брать следующую партию сразу после полной, через минимальный интервал после неполной")
+    void shouldPollRightAfterFullBatchAndAfterMinIntervalOtherwise() {
+        processingProperties.getPolling().setMinInterval(Duration.ofMillis(250));
+        stubClaims(10, 3, 10);
+
+        poller.start();
+        scheduler.advanceTimeBy(Duration.ofMillis(250));
+
+        assertEquals(List.of(Duration.ZERO, Duration.ofMillis(250), Duration.ZERO), recordedIntervals().subList(0, 3));
+    }
+
+    @Test
+    @DisplayName("Должен экспоненциально увеличивать паузу на пустых партиях до максимума")
+    void shouldBackOffExponentiallyUpToMaxInterval() {
+        processingProperties.getPolling().setMinInterval(Duration.ofMillis(250));
+        processingProperties.getPolling().setMaxInterval(Duration.ofSeconds(1));
+        processingProperties.getPolling().setBackoffMultiplier(2.0);
+        stubClaims(0, 0, 0, 0);
+
+        poller.start();
+        scheduler.advanceTimeBy(Duration.ofMillis(250 + 500 + 1000));
+
+        assertEquals(List.of(Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(1)),
+                recordedIntervals().subList(0, 4));
+    }
+
+    @Test
+    @DisplayName("Должен вернуться к минимальному интервалу после пустых партий, как только найдётся работа")
+    void shouldResetBackOffOnceWorkAppears() {
+        processingProperties.getPolling().setMinInterval(Duration.ofMillis(250));
+        processingProperties.getPolling().setBackoffMultiplier(2.0);
+        stubClaims(0, 0, 4);
+
+        poller.start();
+        scheduler.advanceTimeBy(Duration.ofMillis(250 + 500));
+
+        assertEquals(List.of(Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofMillis(250)), recordedIntervals().subList(0, 3));
+    }
+
+    @Test
+    @DisplayName("Должен дождаться партии в работе и не брать новую после остановки")
+    void shouldDrainBatchInFlight() {
+        Sinks.One<Integer> batch = Sinks.one();
+        when(processingService.processTransactions()).thenReturn(batch.asMono());
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        poller.start();
+        poller.stop(() -> stopped.set(true));
+
+        verify(processingService).stopTransitions();
+        assertTrue(poller.isDraining());
+        assertFalse(stopped.get());
+
+        batch.tryEmitValue(10);
+        scheduler.advanceTime();
+
+        assertTrue(stopped.get());
+        assertFalse(poller.isRunning());
+        verify(processingService, times(1)).processTransactions();
+    }
+
+    @Test
+    @DisplayName("Должен прервать партию, не завершившуюся за время drain-timeout")
+    void shouldCutOffBatchAfterDrainTimeout() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(processingService.processTransactions()).thenReturn(Mono.<Integer>never().doOnCancel(() -> cancelled.set(true)));
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        poller.start();
+        poller.stop(() -> stopped.set(true));
+        scheduler.advanceTimeBy(Duration.ofSeconds(29));
+
+        assertFalse(stopped.get());
+        assertFalse(cancelled.get());
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+        assertTrue(stopped.get());
+        assertTrue(cancelled.get());
+        assertFalse(poller.isRunning());
+    }
+
+    @Test
+    @DisplayName("Должен остановиться сразу, если партии в работе нет")
+    void shouldStopImmediatelyWhileWaitingForNextPoll() {
+        when(processingService.processTransactions()).thenReturn(Mono.just(0));
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        poller.start();
+        poller.stop(() -> stopped.set(true));
+        scheduler.advanceTime();
+
+        assertTrue(stopped.get());
+        verify(processingService, times(1)).processTransactions();
+    }
+
+    // answers the claims in order, then keeps coming back empty
+    private void stubClaims(int... claimed) {
+        AtomicInteger poll = new AtomicInteger();
+        when(processingService.processTransactions()).thenAnswer(invocation -> {
+            int index = poll.getAndIncrement();
+            return Mono.just(index < claimed.length ? claimed[index] : 0);
+        });
+    }
+
+    private List<Duration> recordedIntervals() {
+        ArgumentCaptor<Duration> intervals = ArgumentCaptor.forClass(Duration.class);
+        verify(pipelineMetrics, atLeastOnce()).recordPollInterval(intervals.capture());
+        return intervals.getAllValues();
+    }
+}
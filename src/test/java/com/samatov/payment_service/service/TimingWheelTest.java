@@ -0,0 +1,105 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.service.impl.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для TimingWheel")
+class TimingWheelTest {
+
+    @Test
+    @DisplayName("Должен сработать только после истечения слота с дедлайном")
+    void shouldFireOnlyAfterDeadlineSlotEnds() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 8, 0);
+        List<String> fired = new ArrayList<>();
+        wheel.add("hold", 250);
+
+        wheel.advance(299, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(300, fired::add);
+        assertEquals(List.of("hold"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Должен спускать таймеры из вышестоящих колес")
+    void shouldCascadeFromOverflowWheels() {
+        // one slot spans 100ms, 400ms and 1.6s on the first three wheels
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 4, 0);
+        Map<String, Long> firedAt = new HashMap<>();
+        wheel.add("near", 150);
+        wheel.add("overflow", 1_000);
+        wheel.add("second-overflow", 5_000);
+        assertEquals(3, wheel.size());
+
+        for (long now = 0; now <= 6_000; now += 100) {
+            long time = now;
+            wheel.advance(now, item -> firedAt.put(item, time));
+        }
+
+        assertEquals(Map.of("near", 200L, "overflow", 1_100L, "second-overflow", 5_100L), firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Должен отклонить дедлайн, который уже позади")
+    void shouldRejectOverdueDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 8, 0);
+        wheel.advance(1_000, item -> {
+        });
+
+        assertFalse(wheel.add("late", 900));
+        assertTrue(wheel.add("due", 1_000));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Должен сработать не раньше дедлайна и не позже одного тика после него")
+    void shouldFireWithinOneTickOfDeadline() {
+        long tick = 10;
+        TimingWheel<Integer> wheel = new TimingWheel<>(Duration.ofMillis(tick), 16, 3);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        List<String> violations = new ArrayList<>();
+        int next = 0;
+
+        for (long now = 3; now < 120_000; now++) {
+            if (now < 60_000 && random.nextInt(10) == 0) {
+                long deadline = now + random.nextInt(50_000);
+                assertTrue(wheel.add(next, deadline));
+                deadlines.put(next++, deadline);
+            }
+            long time = now;
+            wheel.advance(now, item -> {
+                long deadline = deadlines.remove(item);
+                if (time <= deadline || time > deadline + tick) {
+                    violations.add(item + ": deadline " + deadline + ", fired at " + time);
+                }
+            });
+        }
+
+        assertTrue(violations.isEmpty(), violations.toString());
+        assertTrue(deadlines.isEmpty(), "never fired: " + deadlines);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Должен отклонить некорректный размер колеса")
+    void shouldRejectInvalidWheel() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(Duration.ZERO, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(Duration.ofMillis(100), 1, 0));
+    }
+}
@@ -0,0 +1,98 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.TransactionHoldProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.model.TransactionHold;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тесты для TransactionHoldTracker")
+class TransactionHoldTrackerTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private final TransactionHoldProperties holdProperties = new TransactionHoldProperties();
+    private final TransactionHoldTracker holdTracker = new TransactionHoldTracker(holdProperties);
+
+    @Test
+    @DisplayName("Должен сразу вернуть удержание, срок которого уже истёк")
+    void shouldExpireOverdueHoldOnNextTick() {
+        TransactionHold overdue = new TransactionHold(1L, CREATED_AT, LocalDateTime.now().minusMinutes(1));
+        holdTracker.track(overdue);
+
+        long now = System.currentTimeMillis();
+        assertEquals(List.of(overdue), holdTracker.expire(now));
+        assertTrue(holdTracker.expire(now).isEmpty());
+        assertEquals(0, holdTracker.trackedCount());
+    }
+
+    @Test
+    @DisplayName("Должен вернуть удержание только после его дедлайна")
+    void shouldExpireHoldOnlyAfterDeadline() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(5);
+        TransactionHold hold = new TransactionHold(1L, CREATED_AT, expiresAt);
+        holdTracker.track(hold);
+        long deadline = millis(expiresAt);
+
+        assertTrue(holdTracker.expire(deadline - 1).isEmpty());
+        assertEquals(List.of(hold), holdTracker.expire(deadline + holdProperties.getTick().toMillis()));
+    }
+
+    @Test
+    @DisplayName("Не должен возвращать удержание транзакции, завершившейся до дедлайна")
+    void shouldForgetHoldOnceSettled() {
+        holdTracker.track(new TransactionHold(1L, CREATED_AT, LocalDateTime.now().minusMinutes(1)));
+
+        holdTracker.onStatusChange(transaction(1L, TransactionStatus.SUCCESS, null));
+
+        assertTrue(holdTracker.expire(System.currentTimeMillis()).isEmpty());
+        assertEquals(0, holdTracker.trackedCount());
+    }
+
+    @Test
+    @DisplayName("Должен вернуть удержание один раз, даже если его дедлайн повторили")
+    void shouldExpireRetrackedHoldOnce() {
+        TransactionHold hold = new TransactionHold(1L, CREATED_AT, LocalDateTime.now().minusMinutes(1));
+        holdTracker.track(hold);
+        holdTracker.track(hold);
+
+        assertEquals(List.of(hold), holdTracker.expire(System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("Должен назначить дедлайн новой транзакции в работе")
+    void shouldAssignDeadlineToNewTransaction() {
+        holdProperties.setTtl(Duration.ofMinutes(15));
+        TransactionDto transaction = transaction(1L, TransactionStatus.IN_PROGRESS, null);
+
+        holdTracker.assignDeadline(transaction);
+        holdTracker.onStatusChange(transaction);
+
+        assertNotNull(transaction.getHoldExpiresAt());
+        assertEquals(1, holdTracker.trackedCount());
+    }
+
+    private static TransactionDto transaction(Long id, TransactionStatus status, LocalDateTime holdExpiresAt) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(id);
+        transaction.setStatus(status);
+        transaction.setCreatedAt(CREATED_AT);
+        transaction.setHoldExpiresAt(holdExpiresAt);
+        return transaction;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,22 +1,45 @@
 package com.samatov.payment_service.service;
 
+import com.samatov.payment_service.cluster.ClusterCoordinator;
+import com.samatov.payment_service.config.ProviderSimulatorProperties;
+import com.samatov.payment_service.config.TransactionProcessingProperties;
 import com.samatov.payment_service.dto.AccountDto;
+import com.samatov.payment_service.dto.SettlementClaim;
+import com.samatov.payment_service.dto.StatusTransition;
 import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
 import com.samatov.payment_service.enums.TransactionStatus;
 import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.exception.InsufficientFundsException;
+import com.samatov.payment_service.metrics.PipelineMetrics;
+import com.samatov.payment_service.service.impl.ProviderSimulator;
 import com.samatov.payment_service.service.impl.TransactionProcessingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class TransactionProcessingServiceTest {
@@ -27,6 +50,16 @@ class TransactionProcessingServiceTest {
     private AccountService accountService;
     @Mock
     private WebhookService webhookService;
+    @Spy
+    private TransactionProcessingProperties processingProperties = new TransactionProcessingProperties();
+    @Spy
+    private PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+    @Mock
+    private ClusterCoordinator clusterCoordinator;
+    @Spy
+    private ProviderSimulator providerSimulator = new ProviderSimulator(new ProviderSimulatorProperties());
+    @Mock
+    private TransactionalOperator transactionalOperator;
 
     @InjectMocks
     private TransactionProcessingService transactionProcessingService;
@@ -34,6 +67,9 @@ class TransactionProcessingServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(clusterCoordinator.ownedPartitions(anyString())).thenReturn(
+                IntStream.range(0, processingProperties.getPartitions()).boxed().collect(Collectors.toSet()));
     }
 
     @Test
@@ -43,6 +79,7 @@ class TransactionProcessingServiceTest {
         transaction.setStatus(TransactionStatus.IN_PROGRESS);
         transaction.setType(TransactionType.TOP_UP);
         transaction.setAmount(BigDecimal.valueOf(100));
+        transaction.setCurrency(Currency.USD);
         transaction.setAccountFrom(1L);
         transaction.setAccountTo(2L);
 
@@ -51,26 +88,31 @@ class TransactionProcessingServiceTest {
         updatedTransaction.setStatus(TransactionStatus.SUCCESS);
         updatedTransaction.setType(transaction.getType());
         updatedTransaction.setAmount(transaction.getAmount());
+        updatedTransaction.setCurrency(transaction.getCurrency());
         updatedTransaction.setAccountFrom(transaction.getAccountFrom());
         updatedTransaction.setAccountTo(transaction.getAccountTo());
 
-        when(transactionService.findByStatus(TransactionStatus.IN_PROGRESS))
-                .thenReturn(Flux.just(transaction));
-        when(transactionService.updateStatus(anyLong(), any(), any()))
-                .thenReturn(Mono.just(updatedTransaction));
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(transaction)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        when(transactionService.transitionStatuses(any(), eq(TransactionStatus.IN_PROGRESS)))
+                .thenReturn(Flux.just(updatedTransaction));
         when(accountService.transferFunds(any(), any(), any()))
                 .thenReturn(Mono.just(new AccountDto()));
         when(accountService.unfreezeFunds(any(), any()))
                 .thenReturn(Mono.just(new AccountDto()));
-        when(webhookService.sendWebhook(anyLong(), any()))
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
                 .thenReturn(Mono.empty());
 
-        transactionProcessingService.processTransactions();
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(1)
+                .verifyComplete();
 
-        verify(transactionService).findByStatus(TransactionStatus.IN_PROGRESS);
-        verify(transactionService).updateStatus(anyLong(), any(), any());
+        verify(transactionService, times(processingProperties.getLanes().size())).findInProgress(any(SettlementClaim.class));
+        verify(transactionService).transitionStatuses(argThat(transitions -> transitions.size() == 1), eq(TransactionStatus.IN_PROGRESS));
         verify(accountService, times(1)).transferFunds(any(), any(), any());
-        verify(webhookService).sendWebhook(anyLong(), any());
+        verify(accountService, never()).lockAccounts(any());
+        verify(webhookService).sendWebhook(any(TransactionDto.class), any());
     }
 
     @Test
@@ -80,31 +122,282 @@ class TransactionProcessingServiceTest {
         transaction.setStatus(TransactionStatus.IN_PROGRESS);
         transaction.setType(TransactionType.WITHDRAWAL);
         transaction.setAmount(BigDecimal.valueOf(100));
+        transaction.setCurrency(Currency.USD);
         transaction.setAccountFrom(1L);
         transaction.setAccountTo(2L);
+        transaction.setCardNumber("4000000000009995");
 
         TransactionDto updatedTransaction = new TransactionDto();
         updatedTransaction.setId(transaction.getId());
         updatedTransaction.setStatus(TransactionStatus.FAILED);
         updatedTransaction.setType(transaction.getType());
         updatedTransaction.setAmount(transaction.getAmount());
+        updatedTransaction.setCurrency(transaction.getCurrency());
         updatedTransaction.setAccountFrom(transaction.getAccountFrom());
         updatedTransaction.setAccountTo(transaction.getAccountTo());
 
-        when(transactionService.findByStatus(TransactionStatus.IN_PROGRESS))
-                .thenReturn(Flux.just(transaction));
-        when(transactionService.updateStatus(anyLong(), any(), any()))
-                .thenReturn(Mono.just(updatedTransaction));
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(transaction)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        when(transactionService.transitionStatuses(any(), eq(TransactionStatus.IN_PROGRESS)))
+                .thenReturn(Flux.just(updatedTransaction));
         when(accountService.unfreezeFunds(any(), any()))
                 .thenReturn(Mono.just(new AccountDto()));
-        when(webhookService.sendWebhook(anyLong(), any()))
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
                 .thenReturn(Mono.empty());
 
-        transactionProcessingService.processTransactions();
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(1)
+                .verifyComplete();
 
-        verify(transactionService).findByStatus(TransactionStatus.IN_PROGRESS);
-        verify(transactionService).updateStatus(anyLong(), any(), any());
+        verify(transactionService, times(processingProperties.getLanes().size())).findInProgress(any(SettlementClaim.class));
+        verify(transactionService).transitionStatuses(
+                eq(List.of(new StatusTransition(1L, null, TransactionStatus.FAILED, "Transaction declined: insufficient_funds"))),
+                eq(TransactionStatus.IN_PROGRESS));
         verify(accountService, times(1)).unfreezeFunds(any(), any());
-        verify(webhookService).sendWebhook(anyLong(), any());
+        verify(webhookService).sendWebhook(any(TransactionDto.class), any());
+    }
+
+    @Test
+    void testFundsDoNotWaitForSlowestReply() {
+        TransactionDto slow = topUp(1L, 1L);
+        TransactionDto fast = topUp(2L, 3L);
+        ProviderSimulator.Outcome succeeded = new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "Transaction processed successfully");
+        doReturn(new ProviderSimulator.Decision(succeeded, Duration.ofSeconds(5))).when(providerSimulator).decide(slow);
+        doReturn(new ProviderSimulator.Decision(succeeded, Duration.ZERO)).when(providerSimulator).decide(fast);
+
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(slow, fast)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(slow, fast);
+        when(accountService.transferFunds(any(), any(), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.withVirtualTime(() -> transactionProcessingService.processTransactions())
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .then(() -> {
+                    verify(accountService).transferFunds(eq(3L), any(), any());
+                    verify(accountService, never()).transferFunds(eq(1L), any(), any());
+                })
+                .thenAwait(Duration.ofSeconds(5))
+                .expectNext(2)
+                .verifyComplete();
+
+        verify(accountService).transferFunds(eq(1L), any(), any());
+        verify(webhookService, times(2)).sendWebhook(any(TransactionDto.class), any());
+    }
+
+    @Test
+    void testStopTransitionsLeavesUnansweredTransactionsInProgress() {
+        TransactionDto slow = topUp(1L, 1L);
+        TransactionDto fast = topUp(2L, 3L);
+        ProviderSimulator.Outcome succeeded = new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "Transaction processed successfully");
+        doReturn(new ProviderSimulator.Decision(succeeded, Duration.ofSeconds(5))).when(providerSimulator).decide(slow);
+        doReturn(new ProviderSimulator.Decision(succeeded, Duration.ZERO)).when(providerSimulator).decide(fast);
+
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(slow, fast)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(slow, fast);
+        when(accountService.transferFunds(any(), any(), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.withVirtualTime(() -> transactionProcessingService.processTransactions())
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .then(transactionProcessingService::stopTransitions)
+                .expectNext(2)
+                .verifyComplete();
+
+        verify(transactionService, never()).transitionStatuses(
+                argThat(transitions -> transitions.stream().anyMatch(transition -> transition.id() == 1L)), any());
+        verify(accountService).transferFunds(eq(3L), any(), any());
+        verify(webhookService).sendWebhook(argThat(transaction -> transaction.getId() == 2L), any());
+        verifyNoMoreInteractions(webhookService);
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(0)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFailedFundsMoveDoesNotStopTheBatch() {
+        TransactionDto failing = topUp(1L, 1L);
+        TransactionDto settled = topUp(2L, 3L);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(failing, settled)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(failing, settled);
+        doReturn(new ProviderSimulator.Decision(new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "ok"), Duration.ZERO))
+                .when(providerSimulator).decide(any());
+        when(accountService.transferFunds(eq(1L), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("insufficient funds")));
+        when(accountService.transferFunds(eq(3L), any(), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(2)
+                .verifyComplete();
+
+        verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+        verify(transactionService, never()).transitionStatus(any(), any(), any(), any(), any());
+        verify(webhookService).sendWebhook(argThat(transaction -> transaction.getId() == 2L), any());
+        verifyNoMoreInteractions(webhookService);
+    }
+
+    @Test
+    void testRefusedTransferDeclinesTransaction() {
+        TransactionDto refused = topUp(1L, 1L);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(refused)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(refused);
+        doReturn(new ProviderSimulator.Decision(new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "ok"), Duration.ZERO))
+                .when(providerSimulator).decide(any());
+        when(accountService.transferFunds(any(), any(), any()))
+                .thenReturn(Mono.error(new InsufficientFundsException("Insufficient funds for account: 1")));
+        TransactionDto declined = topUp(1L, 1L);
+        declined.setStatus(TransactionStatus.FAILED);
+        when(transactionService.transitionStatus(eq(1L), any(), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED), anyString()))
+                .thenReturn(Mono.just(declined));
+        when(accountService.unfreezeFunds(eq(1L), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(1)
+                .verifyComplete();
+
+        // the rejected settlement rolled back, the decline commits on its own
+        verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+        verify(transactionService).transitionStatus(eq(1L), any(), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED),
+                eq("Settlement rejected: Insufficient funds for account: 1"));
+        verify(accountService).unfreezeFunds(eq(1L), any());
+        verify(webhookService).sendWebhook(declined, "FAILED");
+    }
+
+    @Test
+    void testDeclineKeepsFailedStatusWhenFundsCannotBeReleased() {
+        TransactionDto refused = topUp(1L, 1L);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(refused)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(refused);
+        doReturn(new ProviderSimulator.Decision(new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "ok"), Duration.ZERO))
+                .when(providerSimulator).decide(any());
+        when(accountService.transferFunds(any(), any(), any()))
+                .thenReturn(Mono.error(new InsufficientFundsException("Insufficient funds for account: 1")));
+        TransactionDto declined = topUp(1L, 1L);
+        declined.setStatus(TransactionStatus.FAILED);
+        when(transactionService.transitionStatus(eq(1L), any(), eq(TransactionStatus.IN_PROGRESS), eq(TransactionStatus.FAILED), anyString()))
+                .thenReturn(Mono.just(declined));
+        when(accountService.unfreezeFunds(eq(1L), any()))
+                .thenReturn(Mono.error(new InsufficientFundsException("Insufficient frozen funds for account: 1")));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(1)
+                .verifyComplete();
+
+        verify(webhookService).sendWebhook(declined, "FAILED");
+    }
+
+    @Test
+    void testPayerAnswersSettleInOneTransition() {
+        TransactionDto first = topUp(1L, 1L);
+        TransactionDto second = topUp(2L, 1L);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(first, second)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(first, second);
+        doReturn(new ProviderSimulator.Decision(new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "ok"), Duration.ZERO))
+                .when(providerSimulator).decide(any());
+        when(accountService.transferFunds(any(), any(), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(2)
+                .verifyComplete();
+
+        verify(transactionService).transitionStatuses(argThat(transitions -> transitions.size() == 2), eq(TransactionStatus.IN_PROGRESS));
+        verify(transactionalOperator, times(1)).transactional(any(Mono.class));
+        verify(accountService, times(2)).transferFunds(eq(1L), eq(2L), any());
+        // one payer and one payee: the transfers lock them in id order on their own
+        verify(accountService, never()).lockAccounts(any());
+        verify(webhookService, times(2)).sendWebhook(any(TransactionDto.class), any());
+    }
+
+    @Test
+    void testGroupWithFailedTransferIsSettledApart() {
+        TransactionDto failing = topUp(1L, 1L);
+        failing.setAccountTo(4L);
+        TransactionDto settled = topUp(2L, 1L);
+        when(transactionService.findInProgress(any(SettlementClaim.class)))
+                .thenAnswer(invocation -> Flux.just(failing, settled)
+                        .filter(claimed -> invocation.<SettlementClaim>getArgument(0).types().contains(claimed.getType())));
+        stubTransitions(failing, settled);
+        doReturn(new ProviderSimulator.Decision(new ProviderSimulator.Outcome(TransactionStatus.SUCCESS, "ok"), Duration.ZERO))
+                .when(providerSimulator).decide(any());
+        when(accountService.lockAccounts(any())).thenReturn(Mono.empty());
+        when(accountService.transferFunds(eq(1L), eq(4L), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Could not credit account: 4")));
+        when(accountService.transferFunds(eq(1L), eq(2L), any()))
+                .thenReturn(Mono.just(new AccountDto()));
+        when(webhookService.sendWebhook(any(TransactionDto.class), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionProcessingService.processTransactions())
+                .expectNext(2)
+                .verifyComplete();
+
+        // payer 1 and payees 2 and 4 are locked in id order before the group moves funds
+        verify(accountService).lockAccounts(Set.of(1L, 2L, 4L));
+        verify(transactionService, times(3)).transitionStatuses(any(), eq(TransactionStatus.IN_PROGRESS));
+        verify(transactionalOperator, times(3)).transactional(any(Mono.class));
+        verify(webhookService).sendWebhook(argThat(transaction -> transaction.getId() == 2L), any());
+        verifyNoMoreInteractions(webhookService);
+    }
+
+    // answers every transition the way a won CAS would: the claimed row with its new status
+    private void stubTransitions(TransactionDto... transactions) {
+        Map<Long, TransactionDto> claimed = Stream.of(transactions)
+                .collect(Collectors.toMap(TransactionDto::getId, Function.identity()));
+        when(transactionService.transitionStatuses(any(), eq(TransactionStatus.IN_PROGRESS)))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<StatusTransition>>getArgument(0))
+                        .map(transition -> {
+                            TransactionDto transaction = claimed.get(transition.id());
+                            TransactionDto transitioned = new TransactionDto();
+                            transitioned.setId(transaction.getId());
+                            transitioned.setType(transaction.getType());
+                            transitioned.setAmount(transaction.getAmount());
+                            transitioned.setCurrency(transaction.getCurrency());
+                            transitioned.setAccountFrom(transaction.getAccountFrom());
+                            transitioned.setAccountTo(transaction.getAccountTo());
+                            transitioned.setStatus(transition.status());
+                            return transitioned;
+                        }));
+    }
+
+    private static TransactionDto topUp(Long id, Long accountFrom) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(id);
+        transaction.setStatus(TransactionStatus.IN_PROGRESS);
+        transaction.setType(TransactionType.TOP_UP);
+        transaction.setAmount(BigDecimal.valueOf(100));
+        transaction.setCurrency(Currency.USD);
+        transaction.setAccountFrom(accountFrom);
+        transaction.setAccountTo(2L);
+        return transaction;
     }
 }
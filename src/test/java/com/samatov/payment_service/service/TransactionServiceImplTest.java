@@ -1,25 +1,45 @@
 package com.samatov.payment_service.service;
 
+import com.samatov.payment_service.config.TransactionListingProperties;
+import com.samatov.payment_service.dto.StatusTransition;
+import com.samatov.payment_service.dto.TransactionCursor;
 import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.dto.TransactionFilterDto;
 import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.exception.InvalidCursorException;
+import com.samatov.payment_service.exception.InvalidRequestException;
 import com.samatov.payment_service.exception.TransactionNotFoundException;
 import com.samatov.payment_service.mapper.TransactionMapper;
 import com.samatov.payment_service.model.Transaction;
+import com.samatov.payment_service.model.TransactionStatusChange;
 import com.samatov.payment_service.repository.TransactionRepository;
+import com.samatov.payment_service.service.impl.TransactionEventPublisher;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
 import com.samatov.payment_service.service.impl.TransactionServiceImpl;
+import com.samatov.payment_service.service.impl.TransactionStatusRelay;
+import com.samatov.payment_service.service.impl.TransactionStatusWaiters;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @DisplayName("Тесты для TransactionServiceImpl")
@@ -31,12 +51,31 @@ class TransactionServiceImplTest {
     @Mock
     private TransactionMapper transactionMapper;
 
+    @Mock
+    private TransactionStatsService transactionStatsService;
+
+    @Mock
+    private TransactionEventPublisher transactionEventPublisher;
+
+    @Mock
+    private TransactionStatusWaiters transactionStatusWaiters;
+
+    @Mock
+    private TransactionHoldTracker transactionHoldTracker;
+
+    @Mock
+    private TransactionStatusRelay transactionStatusRelay;
+
+    @Spy
+    private TransactionListingProperties listingProperties = new TransactionListingProperties();
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionStatusRelay.broadcast(any())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -101,6 +140,7 @@ class TransactionServiceImplTest {
         when(transactionMapper.toEntity(inputDto)).thenReturn(transaction);
         when(transactionRepository.save(transaction)).thenReturn(Mono.just(transaction));
         when(transactionMapper.toDto(transaction)).thenReturn(outputDto);
+        when(transactionStatsService.recordCreated(outputDto)).thenReturn(Mono.empty());
 
         StepVerifier.create(transactionService.createTransaction(inputDto))
                 .expectNext(outputDto)
@@ -109,28 +149,50 @@ class TransactionServiceImplTest {
         verify(transactionMapper).toEntity(inputDto);
         verify(transactionRepository).save(transaction);
         verify(transactionMapper).toDto(transaction);
+        verify(transactionStatsService).recordCreated(outputDto);
+        verify(transactionEventPublisher).publish(outputDto);
+        verify(transactionStatusRelay).broadcast(List.of(outputDto));
     }
 
     @Test
     @DisplayName("Должен обновить статус транзакции")
     void shouldUpdateTransactionStatus() {
         Long transactionId = 1L;
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
         TransactionStatus newStatus = TransactionStatus.SUCCESS;
-        Transaction transaction = new Transaction();
+        Transaction updatedTransaction = new Transaction();
         TransactionDto transactionDto = new TransactionDto();
         String message = "OK";
 
-        when(transactionRepository.findById(transactionId)).thenReturn(Mono.just(transaction));
-        when(transactionRepository.save(transaction)).thenReturn(Mono.just(transaction));
-        when(transactionMapper.toDto(transaction)).thenReturn(transactionDto);
+        when(transactionRepository.updateStatus(transactionId, createdAt, newStatus, message))
+                .thenReturn(Mono.just(new TransactionStatusChange(updatedTransaction, TransactionStatus.IN_PROGRESS)));
+        when(transactionMapper.toDto(updatedTransaction)).thenReturn(transactionDto);
+        when(transactionStatsService.recordTransitions(List.of(transactionDto), TransactionStatus.IN_PROGRESS))
+                .thenReturn(Mono.empty());
 
-        StepVerifier.create(transactionService.updateStatus(transactionId, newStatus,message))
+        StepVerifier.create(transactionService.updateStatus(transactionId, createdAt, newStatus, message))
                 .expectNext(transactionDto)
                 .verifyComplete();
 
-        verify(transactionRepository).findById(transactionId);
-        verify(transactionRepository).save(transaction);
-        verify(transactionMapper).toDto(transaction);
+        verify(transactionRepository).updateStatus(transactionId, createdAt, newStatus, message);
+        verify(transactionRepository, never()).findById(transactionId);
+        verify(transactionStatsService).recordTransitions(List.of(transactionDto), TransactionStatus.IN_PROGRESS);
+        verify(transactionEventPublisher).publish(transactionDto);
+    }
+
+    @Test
+    @DisplayName("Должен выбросить исключение при обновлении статуса несуществующей транзакции")
+    void shouldThrowExceptionWhenUpdatingStatusOfMissingTransaction() {
+        Long transactionId = 1L;
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+        when(transactionRepository.updateStatus(transactionId, createdAt, TransactionStatus.SUCCESS, null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.updateStatus(transactionId, createdAt, TransactionStatus.SUCCESS, null))
+                .expectError(TransactionNotFoundException.class)
+                .verify();
+
+        verifyNoInteractions(transactionStatsService);
     }
 
     @Test
@@ -155,4 +217,155 @@ class TransactionServiceImplTest {
         verify(transactionRepository).findByCreatedAtBetween(startDate, endDate);
         verify(transactionMapper, times(2)).toDto(any(Transaction.class));
     }
+
+    @Test
+    @DisplayName("Должен отклонить подписку без account_id и transaction_id")
+    void shouldRejectStatusStreamWithoutFilter() {
+        StepVerifier.create(transactionService.streamStatusChanges(null, null))
+                .expectError(InvalidRequestException.class)
+                .verify();
+
+        verifyNoInteractions(transactionEventPublisher);
+    }
+
+    @Test
+    @DisplayName("Должен отклонить ожидание статуса с отрицательным таймаутом")
+    void shouldRejectNegativeWaitTimeout() {
+        StepVerifier.create(transactionService.waitForStatus(1L, Set.of(TransactionStatus.SUCCESS), Duration.ofSeconds(-1)))
+                .expectError(InvalidRequestException.class)
+                .verify();
+
+        verifyNoInteractions(transactionStatusWaiters, transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Должен перечитать транзакцию по истечении ожидания статуса")
+    void shouldRereadTransactionWhenWaitTimesOut() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+        Set<TransactionStatus> statuses = Set.of(TransactionStatus.SUCCESS);
+        Transaction stored = transaction(1L, createdAt);
+        stored.setStatus(TransactionStatus.IN_PROGRESS);
+        Transaction settled = transaction(1L, createdAt);
+        settled.setStatus(TransactionStatus.SUCCESS);
+        TransactionDto inProgress = new TransactionDto();
+        inProgress.setId(1L);
+        inProgress.setCreatedAt(createdAt);
+        inProgress.setStatus(TransactionStatus.IN_PROGRESS);
+        TransactionDto success = new TransactionDto();
+        success.setId(1L);
+        success.setCreatedAt(createdAt);
+        success.setStatus(TransactionStatus.SUCCESS);
+
+        when(transactionStatusWaiters.register(1L, statuses))
+                .thenReturn(new TransactionStatusWaiters.Waiter(1L, statuses, Sinks.one()));
+        when(transactionRepository.findById(1L)).thenReturn(Mono.just(stored));
+        when(transactionMapper.toDto(stored)).thenReturn(inProgress);
+        // settled on another node whose notification never arrived
+        when(transactionRepository.findByIdAndCreatedAt(1L, createdAt)).thenReturn(Mono.just(settled));
+        when(transactionMapper.toDto(settled)).thenReturn(success);
+
+        StepVerifier.withVirtualTime(() -> transactionService.waitForStatus(1L, statuses, Duration.ofSeconds(10)))
+                .thenAwait(Duration.ofSeconds(10))
+                .expectNext(success)
+                .verifyComplete();
+
+        verify(transactionStatusWaiters).deregister(any());
+    }
+
+    @Test
+    @DisplayName("Должен перевести группу транзакций одним CAS и учесть выигранные")
+    void shouldTransitionGroupAndRecordWonRows() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+        List<StatusTransition> transitions = List.of(
+                new StatusTransition(1L, createdAt, TransactionStatus.SUCCESS, "ok"),
+                new StatusTransition(2L, createdAt, TransactionStatus.FAILED, "declined"));
+        Transaction won = transaction(1L, createdAt);
+        TransactionDto wonDto = new TransactionDto();
+        wonDto.setId(1L);
+
+        when(transactionRepository.compareAndSetStatuses(transitions, TransactionStatus.IN_PROGRESS)).thenReturn(Flux.just(won));
+        when(transactionMapper.toDto(won)).thenReturn(wonDto);
+        when(transactionStatsService.recordTransitions(List.of(wonDto), TransactionStatus.IN_PROGRESS)).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.transitionStatuses(transitions, TransactionStatus.IN_PROGRESS))
+                .expectNext(wonDto)
+                .verifyComplete();
+
+        verify(transactionStatsService).recordTransitions(List.of(wonDto), TransactionStatus.IN_PROGRESS);
+        verify(transactionEventPublisher).publish(wonDto);
+        verify(transactionStatusRelay).broadcast(List.of(wonDto));
+    }
+
+    @Test
+    @DisplayName("Должен завершиться пусто, если переход статуса уже выполнен другим узлом")
+    void shouldCompleteEmptyWhenTransitionIsLost() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+        when(transactionRepository.compareAndSetStatus(1L, createdAt, TransactionStatus.IN_PROGRESS, TransactionStatus.FAILED, "expired"))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.transitionStatus(1L, createdAt, TransactionStatus.IN_PROGRESS, TransactionStatus.FAILED, "expired"))
+                .verifyComplete();
+
+        verifyNoInteractions(transactionStatsService, transactionEventPublisher, transactionStatusRelay);
+    }
+
+    @Test
+    @DisplayName("Должен вернуть курсор по последней транзакции страницы, если есть следующая")
+    void shouldReturnNextCursorWhenMoreRowsThanPage() {
+        TransactionFilterDto filter = new TransactionFilterDto();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        stubPage(filter, null, 3, transaction(3L, now), transaction(2L, now.minusMinutes(1)), transaction(1L, now.minusMinutes(2)));
+
+        StepVerifier.create(transactionService.findPage(filter, null, 2))
+                .assertNext(page -> {
+                    assertEquals(List.of(3L, 2L), page.getItems().stream().map(TransactionDto::getId).toList());
+                    assertEquals(new TransactionCursor(now.minusMinutes(1), 2L), TransactionCursor.decode(page.getNextCursor()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Должен не возвращать курсор на последней странице")
+    void shouldOmitNextCursorOnLastPage() {
+        TransactionFilterDto filter = new TransactionFilterDto();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        TransactionCursor after = new TransactionCursor(now.plusMinutes(1), 9L);
+        stubPage(filter, after, 3, transaction(3L, now), transaction(2L, now.minusMinutes(1)));
+
+        StepVerifier.create(transactionService.findPage(filter, after.encode(), 2))
+                .assertNext(page -> {
+                    assertEquals(2, page.getItems().size());
+                    assertNull(page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Должен отклонить некорректный курсор без запроса к базе")
+    void shouldRejectMalformedCursor() {
+        StepVerifier.create(transactionService.findPage(new TransactionFilterDto(), "not-a-cursor", 2))
+                .expectError(InvalidCursorException.class)
+                .verify();
+
+        verify(transactionRepository, never()).findPage(any(), any(), anyInt());
+    }
+
+    private void stubPage(TransactionFilterDto filter, TransactionCursor after, int limit, Transaction... rows) {
+        when(transactionRepository.findPage(eq(filter), eq(after), eq(limit))).thenReturn(Flux.just(rows));
+        when(transactionMapper.toDto(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction row = invocation.getArgument(0);
+            TransactionDto dto = new TransactionDto();
+            dto.setId(row.getId());
+            dto.setCreatedAt(row.getCreatedAt());
+            return dto;
+        });
+    }
+
+    private static Transaction transaction(Long id, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
 }
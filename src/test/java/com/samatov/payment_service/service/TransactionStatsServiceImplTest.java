@@ -0,0 +1,237 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.dto.TransactionDailyStatsDto;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.Currency;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.enums.TransactionType;
+import com.samatov.payment_service.mapper.TransactionDailyStatsMapper;
+import com.samatov.payment_service.model.TransactionDailyStats;
+import com.samatov.payment_service.repository.TransactionDailyStatsRepository;
+import com.samatov.payment_service.service.impl.TransactionStatsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionStatsServiceImpl")
+class TransactionStatsServiceImplTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Mock
+    private TransactionDailyStatsRepository statsRepository;
+
+    @Mock
+    private TransactionDailyStatsMapper statsMapper;
+
+    @Captor
+    private ArgumentCaptor<List<TransactionDailyStats>> rowsCaptor;
+
+    @InjectMocks
+    private TransactionStatsServiceImpl transactionStatsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(statsRepository.applyDeltas(anyList())).thenReturn(Mono.just(1L));
+    }
+
+    @Test
+    @DisplayName("Должен учесть созданную транзакцию в статистике мерчанта")
+    void shouldRecordCreatedTransaction() {
+        TransactionDto transaction = transaction(1L, TransactionType.TOP_UP, TransactionStatus.IN_PROGRESS, "10.00");
+
+        StepVerifier.create(transactionStatsService.recordCreated(transaction))
+                .verifyComplete();
+
+        verify(statsRepository).applyDeltas(rowsCaptor.capture());
+        List<TransactionDailyStats> rows = rowsCaptor.getValue();
+        assertEquals(1, rows.size());
+        assertRow(rows.get(0), 20L, TransactionStatus.IN_PROGRESS, 1L, "10.00");
+    }
+
+    @Test
+    @DisplayName("Должен перенести переходы статусов из старого статуса в новый одним пакетом")
+    void shouldMoveTransitionsBetweenStatuses() {
+        List<TransactionDto> transactions = List.of(
+                transaction(1L, TransactionType.TOP_UP, TransactionStatus.SUCCESS, "10.00"),
+                transaction(2L, TransactionType.TOP_UP, TransactionStatus.SUCCESS, "5.00"),
+                transaction(3L, TransactionType.WITHDRAWAL, TransactionStatus.SUCCESS, "7.00"));
+
+        StepVerifier.create(transactionStatsService.recordTransitions(transactions, TransactionStatus.IN_PROGRESS))
+                .verifyComplete();
+
+        verify(statsRepository).applyDeltas(rowsCaptor.capture());
+        List<TransactionDailyStats> rows = rowsCaptor.getValue();
+        assertEquals(4, rows.size());
+        assertRow(rows.get(0), 10L, TransactionStatus.IN_PROGRESS, -1L, "-7.00");
+        assertRow(rows.get(1), 10L, TransactionStatus.SUCCESS, 1L, "7.00");
+        assertRow(rows.get(2), 20L, TransactionStatus.IN_PROGRESS, -2L, "-15.00");
+        assertRow(rows.get(3), 20L, TransactionStatus.SUCCESS, 2L, "15.00");
+    }
+
+    @Test
+    @DisplayName("Не должен падать, если обновление статистики не удалось")
+    void shouldIgnoreRollupFailures() {
+        when(statsRepository.applyDeltas(anyList())).thenReturn(Mono.error(new IllegalStateException("deadlock")));
+
+        StepVerifier.create(transactionStatsService.recordCreated(
+                        transaction(1L, TransactionType.TOP_UP, TransactionStatus.IN_PROGRESS, "10.00")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Должен применить статистику только после коммита платежа")
+    void shouldApplyRollupsAfterCommit() {
+        StubTransactionManager transactionManager = new StubTransactionManager();
+        Mono<String> settlement = transactionStatsService.recordTransitions(
+                        List.of(transaction(1L, TransactionType.TOP_UP, TransactionStatus.SUCCESS, "10.00")), TransactionStatus.IN_PROGRESS)
+                .then(Mono.fromCallable(() -> {
+                    verify(statsRepository, never()).applyDeltas(anyList());
+                    return "settled";
+                }));
+
+        StepVerifier.create(TransactionalOperator.create(transactionManager).transactional(settlement))
+                .expectNext("settled")
+                .verifyComplete();
+
+        verify(statsRepository).applyDeltas(anyList());
+        assertEquals(1, transactionManager.commits);
+    }
+
+    @Test
+    @DisplayName("Должен провести платеж, даже если обновление статистики внутри него не удалось")
+    void shouldCommitSettlementWhenRollupFails() {
+        when(statsRepository.applyDeltas(anyList())).thenReturn(Mono.error(new IllegalStateException("deadlock detected")));
+        StubTransactionManager transactionManager = new StubTransactionManager();
+        Mono<String> settlement = transactionStatsService.recordTransitions(
+                        List.of(transaction(1L, TransactionType.TOP_UP, TransactionStatus.SUCCESS, "10.00")), TransactionStatus.IN_PROGRESS)
+                .thenReturn("settled");
+
+        StepVerifier.create(TransactionalOperator.create(transactionManager).transactional(settlement))
+                .expectNext("settled")
+                .verifyComplete();
+
+        verify(statsRepository).applyDeltas(anyList());
+        assertEquals(1, transactionManager.commits);
+        assertEquals(0, transactionManager.rollbacks);
+    }
+
+    @Test
+    @DisplayName("Не должен применять статистику откатившегося платежа")
+    void shouldSkipRollupsOfRolledBackSettlement() {
+        StubTransactionManager transactionManager = new StubTransactionManager();
+        Mono<String> settlement = transactionStatsService.recordTransitions(
+                        List.of(transaction(1L, TransactionType.TOP_UP, TransactionStatus.SUCCESS, "10.00")), TransactionStatus.IN_PROGRESS)
+                .then(Mono.error(new IllegalStateException("funds move failed")));
+
+        StepVerifier.create(TransactionalOperator.create(transactionManager).transactional(settlement))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(statsRepository, never()).applyDeltas(anyList());
+        assertEquals(1, transactionManager.rollbacks);
+    }
+
+    @Test
+    @DisplayName("Должен найти дневную статистику")
+    void shouldFindDailyStats() {
+        LocalDate day = CREATED_AT.toLocalDate();
+        TransactionDailyStats row = new TransactionDailyStats();
+        TransactionDailyStatsDto dto = new TransactionDailyStatsDto();
+
+        when(statsRepository.findDaily(20L, day, day, Currency.USD)).thenReturn(Flux.just(row));
+        when(statsMapper.toDto(row)).thenReturn(dto);
+
+        StepVerifier.create(transactionStatsService.findDailyStats(20L, day, day, Currency.USD))
+                .expectNext(dto)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Должен пересчитать статистику, удалив старые строки")
+    void shouldRebuildDailyStats() {
+        LocalDate day = CREATED_AT.toLocalDate();
+
+        when(statsRepository.deleteBetween(day, day)).thenReturn(Mono.just(3L));
+        when(statsRepository.rebuildBetween(day, day)).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(transactionStatsService.rebuild(day, day))
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(statsRepository).deleteBetween(day, day);
+        verify(statsRepository).rebuildBetween(day, day);
+    }
+
+    private static void assertRow(TransactionDailyStats row, Long merchantAccountId, TransactionStatus status,
+                                  Long count, String amount) {
+        assertEquals(merchantAccountId, row.getMerchantAccountId());
+        assertEquals(CREATED_AT.toLocalDate(), row.getDay());
+        assertEquals(status, row.getStatus());
+        assertEquals(count, row.getCount());
+        assertEquals(new BigDecimal(amount), row.getAmount());
+    }
+
+    private static TransactionDto transaction(Long id, TransactionType type, TransactionStatus status, String amount) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(id);
+        transaction.setType(type);
+        transaction.setStatus(status);
+        transaction.setAccountFrom(10L);
+        transaction.setAccountTo(20L);
+        transaction.setCurrency(Currency.USD);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setCreatedAt(CREATED_AT);
+        return transaction;
+    }
+
+    // commits and rollbacks are no-ops; only the synchronization callbacks matter here
+    private static class StubTransactionManager extends AbstractReactiveTransactionManager {
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+            return new Object();
+        }
+
+        @Override
+        protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction,
+                                     TransactionDefinition definition) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.fromRunnable(() -> commits++);
+        }
+
+        @Override
+        protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.fromRunnable(() -> rollbacks++);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.samatov.payment_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samatov.payment_service.config.ClusterProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.service.impl.TransactionEventPublisher;
+import com.samatov.payment_service.service.impl.TransactionHoldTracker;
+import com.samatov.payment_service.service.impl.TransactionStatusRelay;
+import com.samatov.payment_service.service.impl.TransactionStatusWaiters;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlStatement;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для TransactionStatusRelay")
+class TransactionStatusRelayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final TransactionEventPublisher eventPublisher = mock(TransactionEventPublisher.class);
+    private final TransactionStatusWaiters statusWaiters = mock(TransactionStatusWaiters.class);
+    private final TransactionHoldTracker holdTracker = mock(TransactionHoldTracker.class);
+    private final List<TransactionStatusRelay> relays = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        relays.forEach(relay -> ReflectionTestUtils.invokeMethod(relay, "stop"));
+    }
+
+    @Test
+    @DisplayName("Должен отправить изменение статуса другим узлам без номера карты")
+    void shouldBroadcastWithoutCardNumber() throws Exception {
+        DatabaseClient.GenericExecuteSpec spec = notifySpec();
+        TransactionStatusRelay relay = sender("node-a", databaseClient(spec));
+
+        StepVerifier.create(relay.broadcast(List.of(transaction(TransactionStatus.SUCCESS))))
+                .verifyComplete();
+
+        JsonNode notice = objectMapper.readTree(payload(spec));
+        assertEquals("node-a", notice.path("node").asText());
+        assertEquals(7L, notice.path("transaction").path("id").asLong());
+        assertFalse(notice.path("transaction").has("cardNumber"));
+    }
+
+    @Test
+    @DisplayName("Должен отправить изменения группы одним запросом")
+    void shouldBroadcastGroupInOneStatement() {
+        DatabaseClient.GenericExecuteSpec spec = notifySpec();
+        DatabaseClient databaseClient = databaseClient(spec);
+        TransactionStatusRelay relay = sender("node-a", databaseClient);
+
+        StepVerifier.create(relay.broadcast(List.of(transaction(TransactionStatus.SUCCESS), transaction(TransactionStatus.FAILED))))
+                .verifyComplete();
+
+        verify(databaseClient, times(1)).sql(anyString());
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(spec).bind(eq("payloads"), payloads.capture());
+        assertEquals(2, ((String[]) payloads.getValue()).length);
+    }
+
+    @Test
+    @DisplayName("Не должен ломать коммит, если уведомление не отправлено")
+    void shouldSwallowBroadcastFailure() {
+        DatabaseClient.GenericExecuteSpec spec = notifySpec();
+        when(spec.then()).thenReturn(Mono.error(new IllegalStateException("connection closed")));
+        TransactionStatusRelay relay = sender("node-a", databaseClient(spec));
+
+        StepVerifier.create(relay.broadcast(List.of(transaction(TransactionStatus.SUCCESS))))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Не должен ничего отправлять, когда кластер выключен")
+    void shouldNotBroadcastWhenClusterDisabled() {
+        DatabaseClient databaseClient = mock(DatabaseClient.class);
+        ClusterProperties clusterProperties = clusterProperties("node-a");
+        clusterProperties.setEnabled(false);
+        TransactionStatusRelay relay = new TransactionStatusRelay(databaseClient, mock(ConnectionFactory.class), objectMapper,
+                clusterProperties, eventPublisher, statusWaiters, holdTracker);
+
+        StepVerifier.create(relay.broadcast(List.of(transaction(TransactionStatus.SUCCESS))))
+                .verifyComplete();
+
+        verifyNoInteractions(databaseClient);
+    }
+
+    @Test
+    @DisplayName("Должен доставить изменение статуса с другого узла локальным подписчикам")
+    void shouldAnnounceChangeFromOtherNode() {
+        String settled = encodedBy("node-a", transaction(TransactionStatus.SUCCESS));
+        relay("node-b", mock(DatabaseClient.class), listeningFactory(settled));
+
+        verify(eventPublisher, timeout(1000)).publish(argThat(transaction -> transaction.getId() == 7L));
+        verify(statusWaiters).complete(argThat(transaction -> transaction.getStatus() == TransactionStatus.SUCCESS));
+        verify(holdTracker).onStatusChange(argThat(transaction -> transaction.getId() == 7L));
+    }
+
+    @Test
+    @DisplayName("Должен пропускать собственные уведомления")
+    void shouldIgnoreOwnNotifications() {
+        String own = encodedBy("node-b", transaction(TransactionStatus.SUCCESS));
+        String foreign = encodedBy("node-a", transaction(TransactionStatus.FAILED));
+        relay("node-b", mock(DatabaseClient.class), listeningFactory(own, foreign));
+
+        verify(eventPublisher, timeout(1000)).publish(argThat(transaction -> transaction.getStatus() == TransactionStatus.FAILED));
+        verify(eventPublisher, times(1)).publish(any());
+    }
+
+    @Test
+    @DisplayName("Не должен брать чужое удержание на отслеживание")
+    void shouldNotTrackHoldCreatedOnOtherNode() {
+        String created = encodedBy("node-a", transaction(TransactionStatus.IN_PROGRESS));
+        relay("node-b", mock(DatabaseClient.class), listeningFactory(created));
+
+        verify(eventPublisher, timeout(1000)).publish(any());
+        verifyNoInteractions(holdTracker);
+    }
+
+    private TransactionStatusRelay relay(String nodeId, DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        TransactionStatusRelay relay = new TransactionStatusRelay(databaseClient, connectionFactory, objectMapper,
+                clusterProperties(nodeId), eventPublisher, statusWaiters, holdTracker);
+        ReflectionTestUtils.invokeMethod(relay, "start");
+        relays.add(relay);
+        return relay;
+    }
+
+    private String encodedBy(String nodeId, TransactionDto transaction) {
+        DatabaseClient.GenericExecuteSpec spec = notifySpec();
+        sender(nodeId, databaseClient(spec)).broadcast(List.of(transaction)).block();
+        return payload(spec);
+    }
+
+    // a relay that only sends, its listener is never started
+    private TransactionStatusRelay sender(String nodeId, DatabaseClient databaseClient) {
+        return new TransactionStatusRelay(databaseClient, mock(ConnectionFactory.class), objectMapper,
+                clusterProperties(nodeId), eventPublisher, statusWaiters, holdTracker);
+    }
+
+    private static ConnectionFactory listeningFactory(String... payloads) {
+        PostgresqlStatement listen = mock(PostgresqlStatement.class);
+        when(listen.execute()).thenReturn(Flux.empty());
+        PostgresqlConnection connection = mock(PostgresqlConnection.class);
+        when(connection.createStatement("LISTEN transaction_status")).thenReturn(listen);
+        when(connection.getNotifications()).thenReturn(Flux.fromArray(payloads).map(TransactionStatusRelayTest::notification));
+        when(connection.close()).thenReturn(Mono.empty());
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        doReturn(Mono.just(connection)).when(connectionFactory).create();
+        return connectionFactory;
+    }
+
+    private static Notification notification(String payload) {
+        Notification notification = mock(Notification.class);
+        when(notification.getName()).thenReturn("transaction_status");
+        when(notification.getParameter()).thenReturn(payload);
+        return notification;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec notifySpec() {
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class, RETURNS_SELF);
+        when(spec.then()).thenReturn(Mono.empty());
+        return spec;
+    }
+
+    private static DatabaseClient databaseClient(DatabaseClient.GenericExecuteSpec spec) {
+        DatabaseClient databaseClient = mock(DatabaseClient.class);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        return databaseClient;
+    }
+
+    private static String payload(DatabaseClient.GenericExecuteSpec spec) {
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(spec).bind(eq("payloads"), payloads.capture());
+        return ((String[]) payloads.getValue())[0];
+    }
+
+    private static ClusterProperties clusterProperties(String nodeId) {
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setNodeId(nodeId);
+        clusterProperties.setHeartbeatInterval(Duration.ofHours(1));
+        return clusterProperties;
+    }
+
+    private static TransactionDto transaction(TransactionStatus status) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(7L);
+        transaction.setAccountFrom(1L);
+        transaction.setAccountTo(2L);
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setCardNumber("4111111111111111");
+        transaction.setStatus(status);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 0));
+        return transaction;
+    }
+}
@@ -0,0 +1,114 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.TransactionEventsProperties;
+import com.samatov.payment_service.dto.TransactionDto;
+import com.samatov.payment_service.enums.TransactionStatus;
+import com.samatov.payment_service.exception.TooManySubscribersException;
+import com.samatov.payment_service.service.impl.TransactionStatusWaiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Тесты для TransactionStatusWaiters")
+class TransactionStatusWaitersTest {
+
+    private static final Long TRANSACTION_ID = 1L;
+
+    private final TransactionEventsProperties eventsProperties = new TransactionEventsProperties();
+    private TransactionStatusWaiters waiters;
+
+    @BeforeEach
+    void setUp() {
+        waiters = new TransactionStatusWaiters(eventsProperties);
+    }
+
+    @Test
+    @DisplayName("Должен завершить ожидание при переходе в ожидаемый статус")
+    void shouldCompleteWaiterOnAwaitedStatus() {
+        TransactionStatusWaiters.Waiter waiter = waiters.register(TRANSACTION_ID, Set.of(TransactionStatus.SUCCESS));
+        TransactionDto transaction = transaction(TransactionStatus.SUCCESS);
+
+        waiters.complete(transaction(TransactionStatus.FAILED));
+        waiters.complete(transaction);
+
+        StepVerifier.create(waiter.asMono())
+                .expectNext(transaction)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Должен отклонить ожидание сверх лимита")
+    void shouldRejectWaitersOverLimit() {
+        eventsProperties.getLongPoll().setMaxWaiters(1);
+        waiters.register(TRANSACTION_ID, Set.of(TransactionStatus.SUCCESS));
+
+        assertThrows(TooManySubscribersException.class,
+                () -> waiters.register(TRANSACTION_ID, Set.of(TransactionStatus.SUCCESS)));
+        assertEquals(1, waiters.waiterCount());
+    }
+
+    @Test
+    @DisplayName("Не должен терять ожидания при параллельной регистрации и снятии")
+    void shouldNotLoseWaitersRegisteredConcurrentlyWithDeregistration() throws Exception {
+        int threads = 8;
+        int iterations = 2_000;
+        Queue<TransactionStatusWaiters.Waiter> kept = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = IntStream.range(0, threads)
+                    .<Future<?>>mapToObj(thread -> executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            TransactionStatusWaiters.Waiter waiter = waiters.register(TRANSACTION_ID, Set.of(TransactionStatus.SUCCESS));
+                            if (thread % 2 == 0 && i % 100 == 0) {
+                                kept.add(waiter);
+                            } else {
+                                waiters.deregister(waiter);
+                            }
+                        }
+                        return null;
+                    }))
+                    .toList();
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(kept.size(), waiters.waiterCount());
+        TransactionDto transaction = transaction(TransactionStatus.SUCCESS);
+        waiters.complete(transaction);
+        for (TransactionStatusWaiters.Waiter waiter : kept) {
+            StepVerifier.create(waiter.asMono())
+                    .expectNext(transaction)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(1));
+        }
+    }
+
+    private static TransactionDto transaction(TransactionStatus status) {
+        TransactionDto transaction = new TransactionDto();
+        transaction.setId(TRANSACTION_ID);
+        transaction.setStatus(status);
+        return transaction;
+    }
+}
@@ -0,0 +1,137 @@
+package com.samatov.payment_service.service;
+
+import com.samatov.payment_service.config.WebhookProperties;
+import com.samatov.payment_service.enums.WebhookStatus;
+import com.samatov.payment_service.exception.WebhookBacklogFullException;
+import com.samatov.payment_service.model.Webhook;
+import com.samatov.payment_service.service.impl.WebhookBatchWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Тесты для WebhookBatchWriter")
+class WebhookBatchWriterTest {
+
+    @Mock
+    private DatabaseClient databaseClient;
+
+    @Mock
+    private FetchSpec<Map<String, Object>> fetchSpec;
+
+    private final WebhookProperties webhookProperties = new WebhookProperties();
+    private WebhookBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        DatabaseClient.GenericExecuteSpec spec = mock(DatabaseClient.GenericExecuteSpec.class, RETURNS_SELF);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.fetch()).thenReturn(fetchSpec);
+        webhookProperties.getBatch().setShutdownTimeout(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(writer, "shutdown");
+    }
+
+    @Test
+    @DisplayName("Должен записать неполный пакет по истечении max-wait")
+    void shouldFlushPartialBatchAfterMaxWait() {
+        webhookProperties.getBatch().setMaxWait(Duration.ofMillis(50));
+        when(fetchSpec.rowsUpdated()).thenReturn(Mono.just(1L));
+        startWriter();
+
+        StepVerifier.create(writer.enqueue(webhook(1L)))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(databaseClient).sql(anyString());
+    }
+
+    @Test
+    @DisplayName("Должен отклонить запись, когда очередь переполнена")
+    void shouldRejectRecordsWhenQueueIsFull() {
+        webhookProperties.getBatch().setMaxSize(1);
+        webhookProperties.getBatch().setQueueCapacity(2);
+        webhookProperties.getBatch().setEnqueueTimeout(Duration.ofMillis(100));
+        when(fetchSpec.rowsUpdated()).thenReturn(Mono.never());
+        startWriter();
+
+        StepVerifier.create(Flux.range(0, 50)
+                        .flatMap(i -> writer.enqueue(webhook((long) i))
+                                .thenReturn(false)
+                                .onErrorResume(WebhookBacklogFullException.class, error -> Mono.just(true)))
+                        .any(rejected -> rejected))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Должен записать буфер при остановке")
+    void shouldFlushBufferedRecordsOnShutdown() {
+        webhookProperties.getBatch().setMaxWait(Duration.ofSeconds(30));
+        when(fetchSpec.rowsUpdated()).thenReturn(Mono.just(1L));
+        startWriter();
+
+        StepVerifier.create(writer.enqueue(webhook(1L)))
+                .then(() -> ReflectionTestUtils.invokeMethod(writer, "shutdown"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(databaseClient).sql(anyString());
+    }
+
+    @Test
+    @DisplayName("Должен повторить отклоненный пакет по одной записи")
+    void shouldRetryRejectedBatchRecordByRecord() {
+        webhookProperties.getBatch().setMaxSize(3);
+        webhookProperties.getBatch().setMaxWait(Duration.ofSeconds(30));
+        when(fetchSpec.rowsUpdated()).thenReturn(
+                Mono.error(new IllegalStateException("batch rejected")),
+                Mono.just(1L),
+                Mono.error(new IllegalStateException("bad row")),
+                Mono.just(1L));
+        startWriter();
+
+        StepVerifier.create(Flux.mergeSequential(
+                        writer.enqueue(webhook(1L)).thenReturn("written"),
+                        writer.enqueue(webhook(2L)).thenReturn("written").onErrorReturn("failed"),
+                        writer.enqueue(webhook(3L)).thenReturn("written")))
+                .expectNext("written", "failed", "written")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(databaseClient, times(4)).sql(anyString());
+    }
+
+    private void startWriter() {
+        writer = new WebhookBatchWriter(databaseClient, webhookProperties);
+        ReflectionTestUtils.invokeMethod(writer, "start");
+    }
+
+    private static Webhook webhook(Long transactionId) {
+        Webhook webhook = new Webhook();
+        webhook.setTransactionId(transactionId);
+        webhook.setRequestBody("{}");
+        webhook.setStatus(WebhookStatus.SUCCESS);
+        webhook.setAttemptNumber(1);
+        return webhook;
+    }
+}